@@ -0,0 +1,58 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Every benchmark draws its students from here so that results are comparable between benchmarks and between runs
+ */
+package WaitlistProj.bench;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import WaitlistProj.GpaOutOfRangeException;
+import WaitlistProj.Student;
+import WaitlistProj.UnitsOutOfRangeException;
+
+// Creates reproducible random students and the priority algorithms used by the benchmarks
+public final class BenchmarkStudents
+{
+	// Constants used in the weighted priority algorithm, the same weights as TestPriorityQueue
+	public static final float UNITSWEIGHT = 0.7f;
+	public static final float GPAWEIGHT = 0.3f;
+	public static final float MAXUNITS = 150.0f;
+	public static final float MAXGPA = 4.0f;
+	
+	// The weighted comparator as written in TestPriorityQueue, it boxes both sides of every comparison
+	public static final Comparator<Student> WEIGHTEDCOMPARATOR = (x, y) -> ((Float)weightedPriority(x)).compareTo((Float)weightedPriority(y));
+	
+	private BenchmarkStudents()
+	{
+		
+	}
+	
+	// Priority: unitWeight * (numUnits / maxunits) + gpaWeight * (gpa / maxgpa)
+	public static float weightedPriority(Student student)
+	{
+		return (UNITSWEIGHT * ((float)student.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (student.getGpa() / MAXGPA));
+	}
+	
+	public static List<Student> randomStudents(int count, long seed)
+	{
+		Random rndGen = new Random(seed);
+		List<Student> students = new ArrayList<Student>(count);
+		try
+		{
+			for (int index = 0; index < count; index++)
+			{
+				students.add(new Student("Student" + index, Integer.toString(800000000 + index), "student" + index + "@sdsu.edu", 
+						rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (GpaOutOfRangeException | UnitsOutOfRangeException e)
+		{
+			throw new IllegalStateException(e); // Cannot happen, the generated GPA and units are always in range
+		}
+		return students;
+	}
+}
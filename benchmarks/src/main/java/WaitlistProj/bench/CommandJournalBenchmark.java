@@ -0,0 +1,94 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The temporary directory is on the same kind of disk the journal would be stored on in production, fsync cost depends entirely on it
+ */
+package WaitlistProj.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.CommandJournal;
+import WaitlistProj.CommandProcessor;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.SectionCommandDecoder;
+import WaitlistProj.SectionOfferCommand;
+import WaitlistProj.SectionPollCommand;
+import WaitlistProj.Student;
+
+// Measures the throughput of a journaling CommandProcessor for each group commit size, 1 is an fsync per command
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandJournalBenchmark
+{
+	private static final int SIZE = 100000; // students offered in turn
+	private static final String SECTIONID = "CS108";
+	
+	@Param({"1", "16", "256"})
+	public int groupCommitSize;
+	
+	private Path directory;
+	private List<Student> students;
+	private PriorityQueue<Student> section;
+	private CommandJournal journal;
+	private CommandProcessor processor;
+	private int nextStudent; // index into students of the next student to offer
+	
+	@Setup(Level.Iteration)
+	public void openJournal() throws IOException
+	{
+		directory = Files.createTempDirectory("journal-bench");
+		students = BenchmarkStudents.randomStudents(SIZE, 42);
+		section = new PriorityQueue<Student>();
+		journal = new CommandJournal(directory.resolve("commands.journal"), groupCommitSize, new SectionCommandDecoder(sectionId -> section));
+		processor = new CommandProcessor(1024, Long.MAX_VALUE, journal);
+		nextStudent = 0;
+	}
+	
+	// A fresh journal per iteration keeps it from growing past what one iteration appends
+	@TearDown(Level.Iteration)
+	public void deleteJournal() throws IOException
+	{
+		journal.close();
+		try (Stream<Path> files = Files.list(directory))
+		{
+			for (Path file : (Iterable<Path>) files::iterator)
+			{
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+	
+	// An offer and a poll keep the section at a steady size, each one is a journaled record
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int offerPoll()
+	{
+		processor.doIt(new SectionOfferCommand(SECTIONID, section, students.get(nextStudent)));
+		nextStudent = nextStudent + 1 < SIZE ? nextStudent + 1 : 0;
+		processor.doIt(new SectionPollCommand(SECTIONID, section, 1));
+		return section.size();
+	}
+}
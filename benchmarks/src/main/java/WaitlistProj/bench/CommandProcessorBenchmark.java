@@ -0,0 +1,103 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Each command offers one student and its undo removes that student, the way TestPriorityQueue drives the CommandProcessor
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.CommandProcessor;
+import WaitlistProj.OfferCommand;
+import WaitlistProj.PluggableCommand;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+
+// Measures doIt followed by undoIt of size commands, the PriorityQueue is empty again after every invocation
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandProcessorBenchmark
+{
+	@Param({"1000", "10000", "100000"})
+	public int size;
+	
+	private List<Student> students;
+	private PluggableCommand[] commands;
+	private PriorityQueue<Student> pq;
+	
+	@Setup
+	public void createCommands()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+		pq = new PriorityQueue<Student>(Comparator.naturalOrder(), true); // position indexed so that the undo of each offer is an O(log(n)) remove
+		commands = new PluggableCommand[size];
+		for (int index = 0; index < size; index++)
+		{
+			Student student = students.get(index);
+			commands[index] = new PluggableCommand(() -> pq.offer(student), () -> pq.remove(student));
+		}
+	}
+	
+	@Benchmark
+	public int doItUndoIt()
+	{
+		CommandProcessor cmdProcessor = new CommandProcessor(size, Long.MAX_VALUE); // deep enough to undo every command
+		for (PluggableCommand command : commands)
+		{
+			cmdProcessor.doIt(command);
+		}
+		for (int index = 0; index < commands.length; index++)
+		{
+			cmdProcessor.undoIt();
+		}
+		return pq.size();
+	}
+	
+	// The same commands executed as one CompositeCommand with a single undo
+	@Benchmark
+	public int batchedDoItUndoIt()
+	{
+		CommandProcessor cmdProcessor = new CommandProcessor();
+		cmdProcessor.beginBatch();
+		for (PluggableCommand command : commands)
+		{
+			cmdProcessor.doIt(command);
+		}
+		cmdProcessor.endBatch();
+		cmdProcessor.undoIt();
+		return pq.size();
+	}
+	
+	// OfferCommands coalesce into a single addAll, they are created for each invocation because coalescing changes the first one
+	@Benchmark
+	public int coalescedDoItUndoIt()
+	{
+		CommandProcessor cmdProcessor = new CommandProcessor();
+		cmdProcessor.beginBatch();
+		for (Student student : students)
+		{
+			cmdProcessor.doIt(new OfferCommand<Student>(pq, student));
+		}
+		cmdProcessor.endBatch();
+		cmdProcessor.undoIt();
+		return pq.size();
+	}
+}
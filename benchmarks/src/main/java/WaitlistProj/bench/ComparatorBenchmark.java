@@ -0,0 +1,98 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Sorting a waitlist by polling it is dominated by comparisons, so polling every student measures the cost of each priority algorithm
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.StudentPriorityKey;
+import WaitlistProj.StudentWaitlist;
+
+// Builds a waitlist and polls every student, comparing natural GPA order, the boxing weighted comparator, cached keys and StudentWaitlist,
+// with and without listening to priority changes
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ComparatorBenchmark
+{
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int size;
+	
+	private List<Student> students;
+	
+	@Setup
+	public void createStudents()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+	}
+	
+	@Benchmark
+	public void naturalOrder(Blackhole bh)
+	{
+		drain(new PriorityQueue<Student>(students, Comparator.naturalOrder()), bh);
+	}
+	
+	@Benchmark
+	public void weightedComparator(Blackhole bh)
+	{
+		drain(new PriorityQueue<Student>(students, BenchmarkStudents.WEIGHTEDCOMPARATOR), bh);
+	}
+	
+	@Benchmark
+	public void weightedCachedKey(Blackhole bh)
+	{
+		drain(new PriorityQueue<Student>(students, BenchmarkStudents::weightedPriority), bh);
+	}
+	
+	@Benchmark
+	public void weightedStudentWaitlist(Blackhole bh)
+	{
+		StudentWaitlist waitlist = new StudentWaitlist(students, StudentPriorityKey.weighted(BenchmarkStudents.UNITSWEIGHT, BenchmarkStudents.GPAWEIGHT));
+		for (Student student = waitlist.poll(); student != null; student = waitlist.poll())
+		{
+			bh.consume(student);
+		}
+	}
+	
+	// The same as weightedStudentWaitlist with the waitlist listening to priority changes, the cost of registering with every student
+	@Benchmark
+	public void weightedStudentWaitlistListening(Blackhole bh)
+	{
+		StudentWaitlist waitlist = new StudentWaitlist(students, StudentPriorityKey.weighted(BenchmarkStudents.UNITSWEIGHT, BenchmarkStudents.GPAWEIGHT));
+		waitlist.listenToPriorityChanges(true);
+		for (Student student = waitlist.poll(); student != null; student = waitlist.poll())
+		{
+			bh.consume(student);
+		}
+	}
+	
+	private void drain(PriorityQueue<Student> pq, Blackhole bh)
+	{
+		for (Student student = pq.poll(); student != null; student = pq.poll())
+		{
+			bh.consume(student);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Every thread offers and then polls, so the queue stays at its starting size and every invocation does the same work
+ * 	- The baseline is a PriorityQueue guarded by one lock, as registration threads shared a waitlist before ConcurrentPriorityQueue
+ */
+package WaitlistProj.bench;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.ConcurrentPriorityQueue;
+import WaitlistProj.PriorityQueue;
+
+// Measures the throughput of offer plus poll on a shared ConcurrentPriorityQueue against a synchronized PriorityQueue, from 1 to 32 threads
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentPriorityQueueBenchmark
+{
+	@Param({"1000"})
+	public int size;
+	
+	@Param({"skiplist", "synchronized"})
+	public String queueType;
+	
+	private Queue<Integer> queue; // shared by every thread of a trial
+	
+	@Setup
+	public void fillQueue()
+	{
+		queue = queueType.equals("skiplist") ? new ConcurrentPriorityQueue<Integer>() : new SynchronizedQueue<Integer>(new PriorityQueue<Integer>());
+		for (int index = 0; index < size; index++)
+		{
+			queue.offer(ThreadLocalRandom.current().nextInt());
+		}
+	}
+	
+	private Integer offerPoll()
+	{
+		queue.offer(ThreadLocalRandom.current().nextInt());
+		return queue.poll();
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public Integer threads1()
+	{
+		return offerPoll();
+	}
+	
+	@Benchmark
+	@Threads(2)
+	public Integer threads2()
+	{
+		return offerPoll();
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public Integer threads4()
+	{
+		return offerPoll();
+	}
+	
+	@Benchmark
+	@Threads(8)
+	public Integer threads8()
+	{
+		return offerPoll();
+	}
+	
+	@Benchmark
+	@Threads(16)
+	public Integer threads16()
+	{
+		return offerPoll();
+	}
+	
+	@Benchmark
+	@Threads(32)
+	public Integer threads32()
+	{
+		return offerPoll();
+	}
+	
+	// Every operation the benchmark uses holds the lock of the queue
+	private static class SynchronizedQueue<E> extends AbstractQueue<E>
+	{
+		private final Queue<E> queue;
+		
+		SynchronizedQueue(Queue<E> queue)
+		{
+			this.queue = queue;
+		}
+		
+		@Override
+		public synchronized boolean offer(E e)
+		{
+			return queue.offer(e);
+		}
+		
+		@Override
+		public synchronized E poll()
+		{
+			return queue.poll();
+		}
+		
+		@Override
+		public synchronized E peek()
+		{
+			return queue.peek();
+		}
+		
+		@Override
+		public synchronized int size()
+		{
+			return queue.size();
+		}
+		
+		@Override
+		public Iterator<E> iterator()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
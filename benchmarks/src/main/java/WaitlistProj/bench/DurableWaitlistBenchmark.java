@@ -0,0 +1,135 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The temporary directory is on the same kind of disk the waitlist would be stored on in production, fsync cost depends entirely on it
+ */
+package WaitlistProj.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WaitlistProj.DurableWaitlist;
+import WaitlistProj.Student;
+import WaitlistProj.StudentCodec;
+
+// Measures what durability costs per operation for each sync batch size, and how recovery time grows with the log tail left since the last snapshot
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DurableWaitlistBenchmark
+{
+	private static final int SIZE = 100000; // students in the waitlist
+	
+	@State(Scope.Benchmark)
+	public static class Logging
+	{
+		@Param({"1", "64", "1024"})
+		public int syncBatchSize;
+		
+		private Path directory;
+		private List<Student> students;
+		private DurableWaitlist<Student> waitlist;
+		private int nextStudent; // index into students of the next student to offer
+		
+		@Setup(Level.Trial)
+		public void openWaitlist() throws IOException
+		{
+			directory = Files.createTempDirectory("waitlist-bench");
+			students = BenchmarkStudents.randomStudents(SIZE, 42);
+			waitlist = new DurableWaitlist<Student>(directory, Comparator.naturalOrder(), new StudentCodec(), syncBatchSize, 0);
+			waitlist.addAll(students.subList(0, SIZE / 2));
+			waitlist.checkpoint();
+			nextStudent = SIZE / 2;
+		}
+		
+		@TearDown(Level.Trial)
+		public void closeWaitlist() throws IOException
+		{
+			waitlist.close();
+			deleteDirectory(directory);
+		}
+	}
+	
+	@State(Scope.Benchmark)
+	public static class Recovery
+	{
+		// How many of the SIZE offers are only in the log, the rest are in the snapshot
+		@Param({"0", "10000", "100000"})
+		public int logRecords;
+		
+		private Path directory;
+		
+		@Setup(Level.Trial)
+		public void writeWaitlist() throws IOException
+		{
+			directory = Files.createTempDirectory("waitlist-bench");
+			List<Student> students = BenchmarkStudents.randomStudents(SIZE, 42);
+			try (DurableWaitlist<Student> waitlist = new DurableWaitlist<Student>(directory, Comparator.naturalOrder(), new StudentCodec(), 0, 0))
+			{
+				waitlist.addAll(students.subList(0, SIZE - logRecords));
+				waitlist.checkpoint();
+				waitlist.addAll(students.subList(SIZE - logRecords, SIZE));
+			}
+		}
+		
+		@TearDown(Level.Trial)
+		public void deleteWaitlist() throws IOException
+		{
+			deleteDirectory(directory);
+		}
+	}
+	
+	// An offer and a poll keep the waitlist at a steady size, each one is a logged record
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public void offerPoll(Logging state, Blackhole bh)
+	{
+		state.waitlist.offer(state.students.get(state.nextStudent));
+		state.nextStudent = state.nextStudent + 1 < SIZE ? state.nextStudent + 1 : 0;
+		bh.consume(state.waitlist.poll());
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int recover(Recovery state) throws IOException
+	{
+		try (DurableWaitlist<Student> waitlist = new DurableWaitlist<Student>(state.directory, Comparator.naturalOrder(), new StudentCodec(), 0, 0))
+		{
+			return waitlist.size();
+		}
+	}
+	
+	private static void deleteDirectory(Path directory) throws IOException
+	{
+		try (Stream<Path> files = Files.list(directory))
+		{
+			for (Path file : (Iterable<Path>) files::iterator)
+			{
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+}
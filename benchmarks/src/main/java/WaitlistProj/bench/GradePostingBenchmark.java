@@ -0,0 +1,82 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A grade posting burst changes the GPA of random students, each of whom waits on several sections
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.Student;
+import WaitlistProj.WaitlistManager;
+
+// Compares a GPA change re-sifted through the student's priority listener against taking the student off every waitlist and putting them back
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GradePostingBenchmark
+{
+	private static final int SECTIONS = 1000;
+	private static final int SECTIONSPERSTUDENT = 5;
+	
+	@Param({"10000", "100000"})
+	public int size;
+	
+	private List<Student> students;
+	private WaitlistManager manager;
+	private Random rndGen;
+	
+	@Setup(Level.Trial)
+	public void fillSections()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+		manager = new WaitlistManager(Comparator.naturalOrder());
+		rndGen = new Random(7);
+		for (Student student : students)
+		{
+			for (int section = 0; section < SECTIONSPERSTUDENT; section++)
+			{
+				manager.add("CS" + rndGen.nextInt(SECTIONS), student);
+			}
+		}
+	}
+	
+	@Benchmark
+	public void listenerResift()
+	{
+		students.get(rndGen.nextInt(size)).setGpa(rndGen.nextInt(401) / 100.0f);
+	}
+	
+	@Benchmark
+	public void removeAndReadd()
+	{
+		Student student = students.get(rndGen.nextInt(size));
+		Set<String> sectionIds = manager.sectionsOf(student.getRedId());
+		manager.removeFromAllWaitlists(student.getRedId());
+		student.setGpa(rndGen.nextInt(401) / 100.0f);
+		for (String sectionId : sectionIds)
+		{
+			manager.add(sectionId, student);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A registration workload is modeled as a waitlist of size students where each operation is an offer with probability
+ * 		offerPercent and a poll otherwise; the waitlist is topped back up to size, outside of the measurement, before each invocation
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WaitlistProj.Heap;
+import WaitlistProj.Student;
+
+// Finds the crossover between binary and wider heaps for a given offer/poll mix, comparing the arity parameter at each size
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeapArityBenchmark
+{
+	private static final int OPERATIONS = 1024; // operations per invocation, the waitlist can shrink by at most this many students
+	
+	@Param({"10000", "100000", "1000000"})
+	public int size;
+	
+	@Param({"2", "4", "8"})
+	public int arity;
+	
+	@Param({"10", "50"})
+	public int offerPercent;
+	
+	private List<Student> students;
+	private boolean[] isOffer; // the pre-drawn offer/poll sequence, identical for every arity
+	private Heap<Student> heap;
+	private int nextStudent; // index into students of the next student to offer
+	
+	@Setup(Level.Trial)
+	public void createStudents()
+	{
+		students = BenchmarkStudents.randomStudents(size + OPERATIONS, 42);
+		Random rndGen = new Random(7);
+		isOffer = new boolean[OPERATIONS];
+		for (int index = 0; index < OPERATIONS; index++)
+		{
+			isOffer[index] = rndGen.nextInt(100) < offerPercent;
+		}
+	}
+	
+	@Setup(Level.Iteration)
+	public void fillHeap()
+	{
+		heap = new Heap<Student>(students.subList(0, size), Comparator.naturalOrder(), false, arity);
+		nextStudent = size;
+	}
+	
+	// An invocation takes hundreds of microseconds, long enough for invocation level setup not to skew the measurement
+	@Setup(Level.Invocation)
+	public void topUpHeap()
+	{
+		while (heap.size() < size)
+		{
+			offerNext();
+		}
+	}
+	
+	private void offerNext()
+	{
+		heap.offer(students.get(nextStudent));
+		nextStudent = nextStudent + 1 < students.size() ? nextStudent + 1 : 0;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public void offerPollMix(Blackhole bh)
+	{
+		for (int index = 0; index < OPERATIONS; index++)
+		{
+			if (isOffer[index])
+			{
+				offerNext();
+			}
+			else
+			{
+				bh.consume(heap.poll());
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- java.util.PriorityQueue is the baseline, it is a min heap so it is given the reversed comparator to poll in the same order as Heap
+ */
+package WaitlistProj.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WaitlistProj.Heap;
+import WaitlistProj.Student;
+
+// Measures whole-waitlist operations on Heap against java.util.PriorityQueue, each invocation works on size students
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeapBenchmark
+{
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int size;
+	
+	private List<Student> students; // the students offered by every benchmark
+	private List<Student> removalOrder; // the students removed by the remove benchmarks, in a random order
+	private Heap<Student> fullHeap; // a heap holding every student, rebuilt before each invocation that consumes it
+	private Heap<Student> fullIndexedHeap; // a position-indexed heap holding every student, rebuilt before each invocation that consumes it
+	private java.util.PriorityQueue<Student> fullJdkQueue; // the baseline holding every student
+	
+	@Setup(Level.Trial)
+	public void createStudents()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+		removalOrder = new ArrayList<Student>(students.subList(0, Math.min(size, 1000))); // removal from a scanning heap is O(n), so only 1000 students are removed
+		Collections.shuffle(removalOrder, new java.util.Random(7));
+	}
+	
+	@Setup(Level.Invocation)
+	public void fillQueues()
+	{
+		fullHeap = new Heap<Student>(students);
+		fullIndexedHeap = new Heap<Student>(students, Comparator.naturalOrder(), true);
+		fullJdkQueue = new java.util.PriorityQueue<Student>(students.size(), Collections.reverseOrder());
+		fullJdkQueue.addAll(students);
+	}
+	
+	@Benchmark
+	public Heap<Student> heapOffer()
+	{
+		Heap<Student> heap = new Heap<Student>();
+		for (Student student : students)
+		{
+			heap.offer(student);
+		}
+		return heap;
+	}
+	
+	@Benchmark
+	public java.util.PriorityQueue<Student> jdkOffer()
+	{
+		java.util.PriorityQueue<Student> queue = new java.util.PriorityQueue<Student>(Collections.reverseOrder());
+		for (Student student : students)
+		{
+			queue.offer(student);
+		}
+		return queue;
+	}
+	
+	@Benchmark
+	public void heapPoll(Blackhole bh)
+	{
+		for (Student student = fullHeap.poll(); student != null; student = fullHeap.poll())
+		{
+			bh.consume(student);
+		}
+	}
+	
+	@Benchmark
+	public void jdkPoll(Blackhole bh)
+	{
+		for (Student student = fullJdkQueue.poll(); student != null; student = fullJdkQueue.poll())
+		{
+			bh.consume(student);
+		}
+	}
+	
+	@Benchmark
+	public int heapRemove()
+	{
+		int removed = 0;
+		for (Student student : removalOrder)
+		{
+			removed += fullHeap.remove(student) ? 1 : 0;
+		}
+		return removed;
+	}
+	
+	@Benchmark
+	public int indexedHeapRemove()
+	{
+		int removed = 0;
+		for (Student student : removalOrder)
+		{
+			removed += fullIndexedHeap.remove(student) ? 1 : 0;
+		}
+		return removed;
+	}
+	
+	@Benchmark
+	public int jdkRemove()
+	{
+		int removed = 0;
+		for (Student student : removalOrder)
+		{
+			removed += fullJdkQueue.remove(student) ? 1 : 0;
+		}
+		return removed;
+	}
+	
+	// Bulk construction through the O(n) heapify path
+	@Benchmark
+	public Heap<Student> heapFromCollection()
+	{
+		return new Heap<Student>(students);
+	}
+	
+	@Benchmark
+	public java.util.PriorityQueue<Student> jdkFromCollection()
+	{
+		return new java.util.PriorityQueue<Student>(students);
+	}
+}
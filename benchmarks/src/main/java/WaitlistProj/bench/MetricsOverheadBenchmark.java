@@ -0,0 +1,66 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- An offer and a poll keep the PriorityQueue at a steady size, so every invocation does the same work
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.WaitlistMetrics;
+
+// Measures what instrumenting a PriorityQueue costs per offer and poll: none, counters only, and counters with latency histograms
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark
+{
+	@Param({"1000", "100000"})
+	public int size;
+	
+	@Param({"none", "counters", "latency"})
+	public String instrumentation;
+	
+	private List<Student> students;
+	private PriorityQueue<Student> pq;
+	private int nextStudent; // index into students of the next student to offer
+	
+	@Setup
+	public void createQueue()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+		pq = new PriorityQueue<Student>(students, Comparator.naturalOrder());
+		if (!instrumentation.equals("none"))
+		{
+			pq.instrument(new WaitlistMetrics(instrumentation.equals("latency")));
+		}
+		nextStudent = 0;
+	}
+	
+	@Benchmark
+	public Student offerPoll()
+	{
+		pq.offer(students.get(nextStudent));
+		nextStudent = nextStudent + 1 < size ? nextStudent + 1 : 0;
+		return pq.poll();
+	}
+}
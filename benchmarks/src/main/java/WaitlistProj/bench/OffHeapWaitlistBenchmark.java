@@ -0,0 +1,110 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The full collection is timed with System.gc(), which is a stop the world collection on the default collector, so its time is the pause
+ * 	- Heap bytes are the used heap after a collection with the waitlist alive minus the same without it, they are only as exact as that measurement
+ */
+package WaitlistProj.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.AbstractQueue;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.OffHeapWaitlist;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.StudentPriorityKey;
+
+// Compares a Heap backed PriorityQueue against OffHeapWaitlist holding the same students by gpa: the full GC pause, the memory each takes, and offer plus poll
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=2g"})
+@State(Scope.Benchmark)
+public class OffHeapWaitlistBenchmark
+{
+	private static final int OFFERPOOL = 1024; // students offered in turn by offerPoll, the waitlist keeps its size
+	
+	@Param({"1000000"})
+	public int size;
+	
+	@Param({"heap", "offheap"})
+	public String storage;
+	
+	private AbstractQueue<Student> waitlist;
+	private List<Student> offerPool;
+	private int nextStudent; // index into offerPool of the next student to offer
+	private long heapBytes; // java heap taken by the waitlist and its students
+	private long offHeapBytes; // direct memory taken by the waitlist
+	
+	// Reported next to each score, the same values for every iteration of a trial
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint
+	{
+		public long heapMiB;
+		public long offHeapMiB;
+	}
+	
+	@Setup(Level.Trial)
+	public void fillWaitlist()
+	{
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		offerPool = BenchmarkStudents.randomStudents(OFFERPOOL, 7);
+		System.gc();
+		long baseline = memory.getHeapMemoryUsage().getUsed();
+		
+		// The generated list is dropped once its students are in the waitlist, an off heap waitlist keeps only copies of them
+		if (storage.equals("heap"))
+		{
+			waitlist = new PriorityQueue<Student>(BenchmarkStudents.randomStudents(size, 42), Comparator.naturalOrder());
+		}
+		else
+		{
+			OffHeapWaitlist offHeap = new OffHeapWaitlist(size, StudentPriorityKey.gpa());
+			offHeap.addAll(BenchmarkStudents.randomStudents(size, 42));
+			waitlist = offHeap;
+			offHeapBytes = offHeap.offHeapBytes();
+		}
+		System.gc();
+		heapBytes = memory.getHeapMemoryUsage().getUsed() - baseline;
+		nextStudent = 0;
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int fullGc(Footprint footprint)
+	{
+		System.gc();
+		footprint.heapMiB = heapBytes >> 20;
+		footprint.offHeapMiB = offHeapBytes >> 20;
+		return waitlist.size();
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public Student offerPoll()
+	{
+		waitlist.offer(offerPool.get(nextStudent));
+		nextStudent = (nextStudent + 1) & (OFFERPOOL - 1);
+		return waitlist.poll();
+	}
+}
@@ -0,0 +1,84 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The single worker baseline limits the common ForkJoinPool to one thread, every other benchmark uses the default pool of the machine
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+
+// Measures building a large PriorityQueue from a collection with and without parallel workers, and combining two waitlists by merge against addAll
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelHeapBenchmark
+{
+	@Param({"100000", "1000000"})
+	public int size;
+	
+	private List<Student> students; // the students every PriorityQueue is built from
+	private PriorityQueue<Student> sectionA; // two waitlists of size / 2 students each, rebuilt before each invocation that combines them
+	private PriorityQueue<Student> sectionB;
+	
+	@Setup(Level.Trial)
+	public void createStudents()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+	}
+	
+	@Setup(Level.Invocation)
+	public void fillSections()
+	{
+		sectionA = new PriorityQueue<Student>(students.subList(0, size / 2), Comparator.naturalOrder());
+		sectionB = new PriorityQueue<Student>(students.subList(size / 2, size), Comparator.naturalOrder());
+	}
+	
+	@Benchmark
+	public PriorityQueue<Student> build()
+	{
+		return new PriorityQueue<Student>(students, Comparator.naturalOrder());
+	}
+	
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=1")
+	public PriorityQueue<Student> buildSingleWorker()
+	{
+		return new PriorityQueue<Student>(students, Comparator.naturalOrder());
+	}
+	
+	@Benchmark
+	public PriorityQueue<Student> merge()
+	{
+		sectionA.merge(sectionB);
+		return sectionA;
+	}
+	
+	@Benchmark
+	public PriorityQueue<Student> addAllAndClear()
+	{
+		sectionA.addAll(sectionB);
+		sectionB.clear();
+		return sectionA;
+	}
+}
@@ -0,0 +1,74 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The "next 20 students to be admitted" dashboard is modeled by taking the first 20 elements of the priority order iterator
+ */
+package WaitlistProj.bench;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+
+// Measures the priority order iterator of PriorityQueue, which never modifies the queue so the same queue is reused by every invocation
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriorityQueueIterationBenchmark
+{
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int size;
+	
+	@Param({"20"})
+	public int topCount;
+	
+	private PriorityQueue<Student> pq;
+	
+	@Setup
+	public void createQueue()
+	{
+		pq = new PriorityQueue<Student>(BenchmarkStudents.randomStudents(size, 42));
+	}
+	
+	@Benchmark
+	public void iterateAll(Blackhole bh)
+	{
+		for (Student student : pq)
+		{
+			bh.consume(student);
+		}
+	}
+	
+	@Benchmark
+	public void iterateTop(Blackhole bh)
+	{
+		Iterator<Student> priorityOrder = pq.iterator();
+		for (int taken = 0; taken < topCount && priorityOrder.hasNext(); taken++)
+		{
+			bh.consume(priorityOrder.next());
+		}
+	}
+	
+	@Benchmark
+	public Object peekTop()
+	{
+		return pq.peekTopK(topCount);
+	}
+}
@@ -0,0 +1,116 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Each command removes one student chosen ahead of time and polls the head, the undo puts both back, so the waitlist keeps its size
+ */
+package WaitlistProj.bench;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.CommandProcessor;
+import WaitlistProj.PluggableCommand;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.SnapshotCommand;
+import WaitlistProj.SnapshotPriorityQueue;
+import WaitlistProj.Student;
+
+// Compares doIt and undoIt of a change undone by a hand written inverse on PriorityQueue against one undone by restoring a snapshot of SnapshotPriorityQueue
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotUndoBenchmark
+{
+	@Param({"1000", "100000"})
+	public int size;
+	
+	private List<Student> students;
+	private PriorityQueue<Student> pq;
+	private SnapshotPriorityQueue<Student> snapshotQueue;
+	private CommandProcessor cmdProcessor;
+	private int nextStudent; // index into students of the next student to remove
+	
+	@Setup
+	public void createWaitlists()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+		pq = new PriorityQueue<Student>(students, Comparator.naturalOrder(), true); // position indexed so that remove is O(log(n))
+		snapshotQueue = new SnapshotPriorityQueue<Student>(students, Comparator.naturalOrder());
+		cmdProcessor = new CommandProcessor();
+		nextStudent = 0;
+	}
+	
+	@Benchmark
+	public int inverseUndo()
+	{
+		Student removed = nextStudent();
+		Student[] polled = new Student[1];
+		cmdProcessor.doIt(new PluggableCommand(() -> 
+		{
+			pq.remove(removed);
+			polled[0] = pq.poll();
+		}, () -> 
+		{
+			pq.offer(polled[0]);
+			pq.offer(removed);
+		}));
+		cmdProcessor.undoIt();
+		return pq.size();
+	}
+	
+	// The remove is a linear search of the persistent heap, the undo is O(1) whatever the change was
+	@Benchmark
+	public int snapshotUndo()
+	{
+		Student removed = nextStudent();
+		cmdProcessor.doIt(new SnapshotCommand<Student>(snapshotQueue, () -> 
+		{
+			snapshotQueue.remove(removed);
+			snapshotQueue.poll();
+		}));
+		cmdProcessor.undoIt();
+		return snapshotQueue.size();
+	}
+	
+	// A poll alone, undone by offering the student back
+	@Benchmark
+	public int inversePollUndo()
+	{
+		Student[] polled = new Student[1];
+		cmdProcessor.doIt(new PluggableCommand(() -> polled[0] = pq.poll(), () -> pq.offer(polled[0])));
+		cmdProcessor.undoIt();
+		return pq.size();
+	}
+	
+	// A poll alone, undone by restoring the snapshot from before it
+	@Benchmark
+	public int snapshotPollUndo()
+	{
+		cmdProcessor.doIt(new SnapshotCommand<Student>(snapshotQueue, () -> snapshotQueue.poll()));
+		cmdProcessor.undoIt();
+		return snapshotQueue.size();
+	}
+	
+	private Student nextStudent()
+	{
+		Student student = students.get(nextStudent);
+		nextStudent = nextStudent + 1 < size ? nextStudent + 1 : 0;
+		return student;
+	}
+}
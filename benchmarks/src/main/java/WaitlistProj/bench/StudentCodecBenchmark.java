@@ -0,0 +1,99 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Random students have unique names, redIds and emails, the worst case for the string table of StudentTableCodec
+ */
+package WaitlistProj.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.Student;
+import WaitlistProj.StudentCodec;
+import WaitlistProj.StudentTableCodec;
+
+// Compares encoding a whole waitlist as one columnar table against encoding it one student record at a time
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentCodecBenchmark
+{
+	@Param({"1000", "100000"})
+	public int size;
+	
+	private List<Student> students;
+	private StudentCodec recordCodec;
+	private ByteBuffer recordBuffer; // large enough for every student encoded one record at a time
+	private ByteBuffer encodedRecords;
+	private ByteBuffer encodedTable;
+	
+	@Setup(Level.Trial)
+	public void encodeStudents()
+	{
+		students = BenchmarkStudents.randomStudents(size, 42);
+		recordCodec = new StudentCodec();
+		int recordsSize = 0;
+		for (Student student : students)
+		{
+			recordsSize += recordCodec.maxEncodedSize(student);
+		}
+		recordBuffer = ByteBuffer.allocate(recordsSize);
+		encodedRecords = encodeRecords().flip();
+		encodedTable = StudentTableCodec.encode(students);
+		System.out.println("\nBytes per student: records " + (double) encodedRecords.remaining() / size + ", table " + (double) encodedTable.remaining() / size);
+	}
+	
+	@Benchmark
+	public ByteBuffer encodeTable()
+	{
+		return StudentTableCodec.encode(students);
+	}
+	
+	@Benchmark
+	public List<Student> decodeTable() throws IOException
+	{
+		return StudentTableCodec.decode(encodedTable.duplicate());
+	}
+	
+	@Benchmark
+	public ByteBuffer encodeRecords()
+	{
+		recordBuffer.clear();
+		for (Student student : students)
+		{
+			recordCodec.encode(student, recordBuffer);
+		}
+		return recordBuffer;
+	}
+	
+	@Benchmark
+	public List<Student> decodeRecords() throws IOException
+	{
+		ByteBuffer in = encodedRecords.duplicate();
+		List<Student> decoded = new ArrayList<Student>(size);
+		while (in.hasRemaining())
+		{
+			decoded.add(recordCodec.decode(in));
+		}
+		return decoded;
+	}
+}
@@ -0,0 +1,149 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A bad row is out of range in its GPA or its units taken with equal probability, the rows are drawn once per trial
+ */
+package WaitlistProj.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.ImportReport;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.StudentErrorSink;
+import WaitlistProj.StudentImporter;
+
+// Compares the bulk import of rows with a share of bad ones through the throwing constructor against the validated Student.create path
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StudentImportBenchmark
+{
+	@Param({"100000"})
+	public int size;
+	
+	@Param({"0", "1", "10", "50"})
+	public int badPercent;
+	
+	// The fields of every row
+	private String[] names;
+	private String[] redIds;
+	private String[] emails;
+	private float[] gpas;
+	private int[] units;
+	private Path feed; // The same rows as a CSV file
+	private final Comparator<Student> gpaOrder = Comparator.naturalOrder();
+	
+	@Setup(Level.Trial)
+	public void createRows() throws IOException
+	{
+		Random rndGen = new Random(42);
+		names = new String[size];
+		redIds = new String[size];
+		emails = new String[size];
+		gpas = new float[size];
+		units = new int[size];
+		for (int index = 0; index < size; index++)
+		{
+			names[index] = "Student" + index;
+			redIds[index] = Integer.toString(800000000 + index);
+			emails[index] = "student" + index + "@sdsu.edu";
+			gpas[index] = rndGen.nextInt(401) / 100.0f;
+			units[index] = rndGen.nextInt(151);
+			if (rndGen.nextInt(100) < badPercent)
+			{
+				if (rndGen.nextBoolean())
+				{
+					gpas[index] += Student.MAXIMUMGPA + 0.5f;
+				}
+				else
+				{
+					units[index] += Student.MAXIMUMUNITS + 1;
+				}
+			}
+		}
+		
+		feed = Files.createTempFile("registrar", ".csv");
+		try (BufferedWriter writer = Files.newBufferedWriter(feed, StandardCharsets.UTF_8))
+		{
+			for (int index = 0; index < size; index++)
+			{
+				writer.write(names[index] + "," + redIds[index] + "," + emails[index] + "," + gpas[index] + "," + units[index] + "\n");
+			}
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void deleteFeed() throws IOException
+	{
+		Files.delete(feed);
+	}
+	
+	@Benchmark
+	public PriorityQueue<Student> constructorWithExceptions()
+	{
+		List<Student> students = new ArrayList<Student>(size);
+		for (int index = 0; index < size; index++)
+		{
+			try
+			{
+				students.add(new Student(names[index], redIds[index], emails[index], gpas[index], units[index]));
+			}
+			catch (Exception e)
+			{
+				// The row is dropped
+			}
+		}
+		return new PriorityQueue<Student>(students, gpaOrder);
+	}
+	
+	@Benchmark
+	public PriorityQueue<Student> validatedCreate()
+	{
+		List<Student> students = new ArrayList<Student>(size);
+		int[] rejectCount = new int[1];
+		StudentErrorSink errors = (problem, redId) -> rejectCount[0]++;
+		for (int index = 0; index < size; index++)
+		{
+			Student student = Student.create(names[index], redIds[index], emails[index], gpas[index], units[index], errors);
+			if (student != null)
+			{
+				students.add(student);
+			}
+		}
+		return new PriorityQueue<Student>(students, gpaOrder);
+	}
+	
+	// The whole streaming path, parsing the feed included
+	@Benchmark
+	public PriorityQueue<Student> importFeed() throws IOException
+	{
+		return new StudentImporter(false, 1, StudentImporter.DEFAULTBUFFERSIZE).importQueue(feed, gpaOrder, new ImportReport());
+	}
+}
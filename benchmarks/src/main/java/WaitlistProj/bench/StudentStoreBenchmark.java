@@ -0,0 +1,102 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Heap bytes are the used heap after a collection with the students alive minus the same without them, they are only as exact as that measurement
+ */
+package WaitlistProj.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import WaitlistProj.Student;
+import WaitlistProj.StudentStore;
+
+// Compares students held as a List<Student> against the same students in a StudentStore: the heap each takes and a scan for every GPA of at least 3.5
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StudentStoreBenchmark
+{
+	private static final float MINIMUMGPA = 3.5f;
+	
+	@Param({"1000000"})
+	public int size;
+	
+	@Param({"objects", "columns"})
+	public String layout;
+	
+	private List<Student> students;
+	private StudentStore store;
+	private long heapBytes; // java heap taken by the students in their layout
+	
+	// Reported next to each score, the same value for every iteration of a trial
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Footprint
+	{
+		public long bytesPerStudent;
+	}
+	
+	@Setup(Level.Trial)
+	public void fillStudents()
+	{
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long baseline = memory.getHeapMemoryUsage().getUsed();
+		
+		// The generated list is dropped once the store holds its students
+		if (layout.equals("objects"))
+		{
+			students = new ArrayList<Student>(BenchmarkStudents.randomStudents(size, 42));
+		}
+		else
+		{
+			store = new StudentStore(size);
+			for (Student student : BenchmarkStudents.randomStudents(size, 42))
+			{
+				store.add(student);
+			}
+		}
+		System.gc();
+		heapBytes = memory.getHeapMemoryUsage().getUsed() - baseline;
+	}
+	
+	@Benchmark
+	public int scanGpa(Footprint footprint)
+	{
+		footprint.bytesPerStudent = heapBytes / size;
+		if (store != null)
+		{
+			return store.countGpaAtLeast(MINIMUMGPA);
+		}
+		int count = 0;
+		for (Student student : students)
+		{
+			if (student.getGpa() >= MINIMUMGPA)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -9,6 +9,16 @@
  * 		Student.java
  * 		UnitsOutOfRangeException.java
  * 		GpaOutOfRange.java
+ * 		StudentWaitlist.java
+ * 		DurableWaitlist.java
+ * 		StudentTableCodec.java
+ * 		StudentImporter.java
+ * 		WaitlistManager.java
+ * 		CommandJournal.java
+ * 		SnapshotPriorityQueue.java
+ * 		WaitlistMetrics.java
+ * 		OffHeapWaitlist.java
+ * 		StudentStore.java
  */
 
 public class Assign2PackageTester
@@ -18,5 +28,16 @@ public class Assign2PackageTester
 		junit.textui.TestRunner.run(TestStudent.class);
 		junit.textui.TestRunner.run(TestCommandPattern.class);
 		junit.textui.TestRunner.run( TestPriorityQueue.class);
+		junit.textui.TestRunner.run(TestStudentWaitlist.class);
+		junit.textui.TestRunner.run(TestConcurrentPriorityQueue.class);
+		junit.textui.TestRunner.run(TestDurableWaitlist.class);
+		junit.textui.TestRunner.run(TestStudentTableCodec.class);
+		junit.textui.TestRunner.run(TestStudentImporter.class);
+		junit.textui.TestRunner.run(TestWaitlistManager.class);
+		junit.textui.TestRunner.run(TestCommandJournal.class);
+		junit.textui.TestRunner.run(TestSnapshotPriorityQueue.class);
+		junit.textui.TestRunner.run(TestWaitlistMetrics.class);
+		junit.textui.TestRunner.run(TestOffHeapWaitlist.class);
+		junit.textui.TestRunner.run(TestStudentStore.class);
 	}
 }
@@ -0,0 +1,417 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - A CommandProcessor rebuilt from its journal must leave every section in exactly the heap order it had, with the same history to undo
+ *  - GPA changes are not journaled, testPriorityChangesAreNotJournaled records that limitation rather than a wish
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import WaitlistProj.CommandJournal;
+import WaitlistProj.CommandProcessor;
+import WaitlistProj.PluggableCommand;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.SectionCommandDecoder;
+import WaitlistProj.SectionOfferCommand;
+import WaitlistProj.SectionPollCommand;
+import WaitlistProj.Student;
+import junit.framework.TestCase;
+
+public class TestCommandJournal extends TestCase
+{
+	private Path directory; // Holds the journal under test
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen; 
+	private Map<String, PriorityQueue<Student>> sections; // The targets of the journaled commands, replaced by empty ones on every reopen
+	
+	private final int NUMBEROFSTUDENTS = 300;
+	private final String[] SECTIONIDS = { "CS108", "CS310", "CS320" };
+	
+	public TestCommandJournal(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("journal");
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	// Offers, polls, batches, undos and redos are all replayed, so the sections and the history come back as they were
+	public void testReplay() throws IOException
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+		{
+			if (index % 10 == 0)
+			{
+				processor.beginBatch();
+			}
+			String sectionId = SECTIONIDS[rndGen.nextInt(SECTIONIDS.length)];
+			processor.doIt(new SectionOfferCommand(sectionId, sections.get(sectionId), studentList.get(index)));
+			if (index % 7 == 0)
+			{
+				processor.doIt(new SectionPollCommand(sectionId, sections.get(sectionId), 1 + rndGen.nextInt(3)));
+			}
+			if (index % 10 == 9)
+			{
+				processor.endBatch();
+			}
+			if (index % 13 == 0 && !processor.isBatching())
+			{
+				processor.undoIt();
+			}
+			if (index % 26 == 0 && !processor.isBatching())
+			{
+				processor.redoIt();
+			}
+		}
+		processor.undoIt();
+		Map<String, List<String>> expected = redIdsBySection();
+		int expectedHistory = processor.historySize();
+		int expectedRedo = processor.redoSize();
+		journal.close();
+		
+		journal = openJournal();
+		CommandProcessor recovered = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("Replay appends nothing: ", 0, journal.appendedRecords());
+		assertTrue("Records were replayed: ", journal.replayedRecords() > NUMBEROFSTUDENTS / 10);
+		assertEquals("Sections have the same heap order: ", expected, redIdsBySection());
+		assertEquals("Same history: ", expectedHistory, recovered.historySize());
+		assertEquals("Undone commands can be redone: ", expectedRedo, recovered.redoSize());
+		
+		while (recovered.undoIt())
+		{
+			
+		}
+		for (String sectionId : SECTIONIDS)
+		{
+			assertTrue("Undoing the whole history empties every section: ", sections.get(sectionId).isEmpty());
+		}
+		journal.close();
+	}
+	
+	// A record that was only partly written is dropped, and a batch missing its end is dropped as a whole
+	public void testTornRecord() throws IOException
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		for (int index = 0; index < 10; index++)
+		{
+			processor.doIt(new SectionOfferCommand("CS108", sections.get("CS108"), studentList.get(index)));
+		}
+		Map<String, List<String>> expected = redIdsBySection();
+		processor.doAll(Arrays.asList(new SectionOfferCommand("CS310", sections.get("CS310"), studentList.get(10)), 
+				new SectionPollCommand("CS108", sections.get("CS108"), 2)));
+		journal.close();
+		
+		// The last byte before the zeroed tail belongs to the CRC of the end marker of the batch
+		try (FileChannel log = FileChannel.open(directory.resolve("commands.journal"), StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer contents = ByteBuffer.allocate((int) log.size());
+			log.read(contents, 0);
+			int lastByte = contents.limit() - 1;
+			while (contents.get(lastByte) == 0)
+			{
+				lastByte--;
+			}
+			log.write(ByteBuffer.wrap(new byte[] { (byte) ~contents.get(lastByte) }), lastByte);
+		}
+		
+		journal = openJournal();
+		CommandProcessor recovered = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("The torn batch was not replayed: ", expected, redIdsBySection());
+		assertEquals("Only the complete commands are in the history: ", 10, recovered.historySize());
+		recovered.doIt(new SectionPollCommand("CS108", sections.get("CS108"), 1));
+		journal.close();
+		
+		journal = openJournal();
+		recovered = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("Records appended after recovery replace the torn ones: ", 9, sections.get("CS108").size());
+		assertTrue("Nothing of the torn batch came back: ", sections.get("CS310").isEmpty());
+		journal.close();
+	}
+	
+	// Replay starts from the last checkpoint, whose history is empty, and the log can be written again from its start
+	public void testCheckpoint() throws IOException
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		for (int index = 0; index < NUMBEROFSTUDENTS / 2; index++)
+		{
+			String sectionId = SECTIONIDS[index % SECTIONIDS.length];
+			processor.doIt(new SectionOfferCommand(sectionId, sections.get(sectionId), studentList.get(index)));
+			if (index % 7 == 0)
+			{
+				processor.doIt(new SectionPollCommand(sectionId, sections.get(sectionId), 2));
+			}
+		}
+		int lengthBefore = journal.length();
+		Map<String, List<String>> checkpointed = redIdsBySection();
+		processor.checkpoint(stateOfSections());
+		assertEquals("Nothing before a checkpoint can be undone: ", 0, processor.historySize());
+		assertTrue("The log starts over: ", journal.length() < lengthBefore);
+		
+		for (int index = NUMBEROFSTUDENTS / 2; index < NUMBEROFSTUDENTS / 2 + 20; index++)
+		{
+			processor.doIt(new SectionOfferCommand("CS108", sections.get("CS108"), studentList.get(index)));
+		}
+		processor.doIt(new SectionPollCommand("CS310", sections.get("CS310"), 3));
+		processor.undoIt();
+		Map<String, List<String>> expected = redIdsBySection();
+		journal.close();
+		
+		journal = openJournal();
+		CommandProcessor recovered = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("Only the records after the checkpoint were replayed: ", 22, journal.replayedRecords());
+		assertEquals("Sections have the same heap order: ", expected, redIdsBySection());
+		assertEquals("Same history: ", 20, recovered.historySize());
+		while (recovered.undoIt())
+		{
+			
+		}
+		assertEquals("Undoing the whole history goes back to the students of the checkpoint: ", sorted(checkpointed), sorted(redIdsBySection())); // An undone poll may put them in other heap positions
+		
+		// A second checkpoint of a recovered journal starts yet another generation
+		Map<String, List<String>> recheckpointed = redIdsBySection();
+		recovered.checkpoint(stateOfSections());
+		journal.close();
+		journal = openJournal();
+		new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("Nothing after the second checkpoint: ", 0, journal.replayedRecords());
+		assertEquals("Sections as they were at the second checkpoint: ", recheckpointed, redIdsBySection());
+		journal.close();
+	}
+	
+	// A batch whose append fails part way through is undone and leaves no records behind, so the records after it are still replayed
+	public void testFailedBatchIsTruncated() throws IOException
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		processor.doIt(new SectionOfferCommand("CS108", sections.get("CS108"), studentList.get(0)));
+		int lengthBefore = journal.length();
+		SectionOfferCommand failing = new SectionOfferCommand("CS310", sections.get("CS310"), studentList.get(2))
+		{
+			@Override
+			public void writePayload(ByteBuffer out)
+			{
+				throw new UncheckedIOException(new IOException("Disk full"));
+			}
+		};
+		try
+		{
+			processor.doAll(Arrays.asList(new SectionOfferCommand("CS108", sections.get("CS108"), studentList.get(1)), failing));
+			fail("The failed append was not reported");
+		}
+		catch (UncheckedIOException e)
+		{
+			
+		}
+		assertEquals("The failed batch was truncated: ", lengthBefore, journal.length());
+		assertEquals("Only the first offer was journaled: ", 1, journal.appendedRecords());
+		assertTrue("The failed batch was undone: ", sections.get("CS108").size() == 1 && sections.get("CS310").isEmpty());
+		processor.doIt(new SectionOfferCommand("CS320", sections.get("CS320"), studentList.get(3)));
+		Map<String, List<String>> expected = redIdsBySection();
+		journal.close();
+		
+		journal = openJournal();
+		new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("The offer after the failed batch was replayed: ", expected, redIdsBySection());
+		journal.close();
+	}
+	
+	// A GPA change is not journaled, replay only agrees with the sections again once they have been checkpointed after the change
+	public void testPriorityChangesAreNotJournaled() throws Exception
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		for (int index = 0; index < 10; index++)
+		{
+			studentList.get(index).setGpa(index / 10.0f);
+			processor.doIt(new SectionOfferCommand("CS108", sections.get("CS108"), studentList.get(index)));
+		}
+		studentList.get(0).setGpa(3.5f);
+		sections.get("CS108").updatePriority(studentList.get(0));
+		processor.doIt(new SectionPollCommand("CS108", sections.get("CS108"), 1));
+		assertFalse("The raised student was polled: ", redIdsBySection().get("CS108").contains("0"));
+		journal.close();
+		
+		journal = openJournal();
+		processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertTrue("Replay polled by the GPA the student was offered with: ", redIdsBySection().get("CS108").contains("0"));
+		assertFalse("It polled the student with the highest GPA instead: ", redIdsBySection().get("CS108").contains("9"));
+		
+		// The same change followed by a checkpoint is replayed as it happened
+		for (Object student : sections.get("CS108").toArray())
+		{
+			if (((Student) student).getRedId().equals("0"))
+			{
+				((Student) student).setGpa(3.5f);
+				sections.get("CS108").updatePriority((Student) student);
+			}
+		}
+		processor.checkpoint(stateOfSections());
+		processor.doIt(new SectionPollCommand("CS108", sections.get("CS108"), 1));
+		Map<String, List<String>> expected = redIdsBySection();
+		assertFalse("The raised student was polled: ", expected.get("CS108").contains("0"));
+		journal.close();
+		
+		journal = openJournal();
+		new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("Replay after the checkpoint polled the same student: ", expected, redIdsBySection());
+		journal.close();
+	}
+	
+	// Evictions depend on the history limits, a journal is only replayed with the limits it was written with
+	public void testHistoryLimitsMismatch() throws IOException
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		processor.doIt(new SectionOfferCommand("CS108", sections.get("CS108"), studentList.get(0)));
+		journal.close();
+		
+		journal = openJournal();
+		try
+		{
+			new CommandProcessor(10, Long.MAX_VALUE, journal);
+			fail("Replayed a journal written with another history depth");
+		}
+		catch (IOException e)
+		{
+			
+		}
+		assertTrue("Nothing was replayed: ", sections.get("CS108").isEmpty());
+		journal.close();
+		
+		journal = openJournal();
+		new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		assertEquals("The journal is intact: ", 1, sections.get("CS108").size());
+		journal.close();
+	}
+	
+	// A command the journal cannot record is refused before it runs
+	public void testUnjournaledCommand() throws IOException
+	{
+		CommandJournal journal = openJournal();
+		CommandProcessor processor = new CommandProcessor(CommandProcessor.DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE, journal);
+		PriorityQueue<Student> cs108 = sections.get("CS108");
+		try
+		{
+			processor.doIt(new PluggableCommand(() -> cs108.offer(studentList.get(0)), () -> cs108.remove(studentList.get(0))));
+			fail("A journaling CommandProcessor accepted a plain PluggableCommand");
+		}
+		catch (IllegalArgumentException e)
+		{
+			
+		}
+		assertTrue("The refused command did not run: ", cs108.isEmpty());
+		assertEquals("Nothing was journaled: ", 0, journal.appendedRecords());
+		journal.close();
+	}
+	
+	// Opens the journal against a fresh set of empty sections, as a restarted process would
+	private CommandJournal openJournal() throws IOException
+	{
+		sections = new HashMap<String, PriorityQueue<Student>>();
+		for (String sectionId : SECTIONIDS)
+		{
+			sections.put(sectionId, new PriorityQueue<Student>());
+		}
+		return new CommandJournal(directory.resolve("commands.journal"), CommandJournal.DEFAULTGROUPCOMMITSIZE, new SectionCommandDecoder(sections::get));
+	}
+	
+	// One offer per non empty section of its students in heap order, which rebuilds the same heap on an empty queue
+	private List<PluggableCommand> stateOfSections()
+	{
+		List<PluggableCommand> state = new ArrayList<PluggableCommand>();
+		for (String sectionId : SECTIONIDS)
+		{
+			SectionOfferCommand offer = null;
+			for (Object student : sections.get(sectionId).toArray())
+			{
+				SectionOfferCommand next = new SectionOfferCommand(sectionId, sections.get(sectionId), (Student) student);
+				if (offer == null)
+				{
+					offer = next;
+				}
+				else
+				{
+					offer.coalesce(next);
+				}
+			}
+			if (offer != null)
+			{
+				state.add(offer);
+			}
+		}
+		return state;
+	}
+	
+	private static Map<String, List<String>> sorted(Map<String, List<String>> redIdsBySection)
+	{
+		for (List<String> redIds : redIdsBySection.values())
+		{
+			Collections.sort(redIds);
+		}
+		return redIdsBySection;
+	}
+	
+	private Map<String, List<String>> redIdsBySection()
+	{
+		Map<String, List<String>> redIds = new HashMap<String, List<String>>();
+		for (String sectionId : SECTIONIDS)
+		{
+			List<String> sectionRedIds = new ArrayList<String>();
+			for (Object student : sections.get(sectionId).toArray())
+			{
+				sectionRedIds.add(((Student) student).getRedId());
+			}
+			redIds.put(sectionId, sectionRedIds);
+		}
+		return redIds;
+	}
+	
+	@Override
+	protected void tearDown() throws IOException
+	{
+		try (Stream<Path> files = Files.list(directory))
+		{
+			for (Path file : (Iterable<Path>) files::iterator)
+			{
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+		studentList = null;
+	}
+}
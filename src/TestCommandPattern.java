@@ -1,8 +1,20 @@
 import junit.framework.TestCase;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import WaitlistProj.AsyncCommandProcessor;
 import WaitlistProj.CommandProcessor;
+import WaitlistProj.OfferCommand;
 import WaitlistProj.PluggableCommand;
+import WaitlistProj.PollCommand;
+import WaitlistProj.PriorityQueue;
 
 //Tests CommandProcessors ability to execute and undo PluggableCommands
 public class TestCommandPattern extends TestCase
@@ -62,6 +74,240 @@ public class TestCommandPattern extends TestCase
 		}
 	}
 	
+	// A batch executes when it ends and a single undoIt undoes all of it
+	public void testBatch()
+	{
+		cmdProcessor.doIt(new PluggableCommand(() -> arrayToUndo.add(0), () -> arrayToUndo.remove(0)));
+		cmdProcessor.beginBatch();
+		for (int i = 1; i <= 5; i++)
+		{
+			int element = i;
+			cmdProcessor.doIt(new PluggableCommand(() -> arrayToUndo.add(element), () -> arrayToUndo.remove((Integer) element)));
+		}
+		assertTrue("Batched commands wait for endBatch: ", arrayToUndo.size() == 1);
+		assertEquals("Plain commands are not coalesced: ", 5, cmdProcessor.endBatch());
+		assertTrue("Batch executed: ", arrayToUndo.size() == 6);
+		
+		cmdProcessor.undoIt();
+		assertTrue("One undo undoes the whole batch: ", arrayToUndo.size() == 1 && arrayToUndo.contains(0));
+		cmdProcessor.undoIt();
+		assertTrue("Command before the batch undone: ", arrayToUndo.isEmpty());
+	}
+	
+	// Adjacent offers and polls on the same queue each coalesce into one command
+	public void testCoalescing()
+	{
+		PriorityQueue<Integer> pq = new PriorityQueue<Integer>(Comparator.naturalOrder(), true);
+		PriorityQueue<Integer> otherPq = new PriorityQueue<Integer>();
+		List<PluggableCommand> commands = new ArrayList<PluggableCommand>();
+		for (int i = 0; i < 100; i++)
+		{
+			commands.add(new OfferCommand<Integer>(pq, i));
+		}
+		commands.add(new OfferCommand<Integer>(otherPq, 7));
+		PollCommand<Integer> poll = new PollCommand<Integer>(pq);
+		commands.add(poll);
+		PollCommand<Integer> secondPoll = new PollCommand<Integer>(pq, 2);
+		commands.add(secondPoll);
+		
+		assertEquals("Offers to pq, the offer to otherPq and the polls: ", 3, cmdProcessor.doAll(commands));
+		assertEquals("Coalesced poll took the highest: ", Arrays.asList(99), poll.getPolled());
+		assertEquals("Absorbed poll has the next two: ", Arrays.asList(98, 97), secondPoll.getPolled());
+		assertTrue("Remaining elements: ", pq.size() == 97 && pq.peek() == 96 && otherPq.size() == 1);
+		
+		cmdProcessor.undoIt();
+		assertTrue("Undo removed every offer: ", pq.isEmpty() && otherPq.isEmpty());
+		assertTrue("Undo empties the absorbed poll: ", secondPoll.getPolled().isEmpty());
+	}
+	
+	// Coalesced polls that run out of elements are served in the order they were issued
+	public void testCoalescedPollsShareWhatWasPolled()
+	{
+		PriorityQueue<Integer> pq = new PriorityQueue<Integer>(Arrays.asList(1, 2, 3, 4, 5, 6));
+		List<PollCommand<Integer>> polls = new ArrayList<PollCommand<Integer>>();
+		for (int count : new int[] {2, 1, 2, 3})
+		{
+			polls.add(new PollCommand<Integer>(pq, count));
+		}
+		assertEquals("The polls coalesce into one: ", 1, cmdProcessor.doAll(polls));
+		assertEquals("First poll: ", Arrays.asList(6, 5), polls.get(0).getPolled());
+		assertEquals("Second poll: ", Arrays.asList(4), polls.get(1).getPolled());
+		assertEquals("Third poll: ", Arrays.asList(3, 2), polls.get(2).getPolled());
+		assertEquals("Last poll gets what was left: ", Arrays.asList(1), polls.get(3).getPolled());
+		
+		cmdProcessor.undoIt();
+		assertTrue("Undo offered every element back: ", pq.size() == 6);
+		cmdProcessor.redoIt();
+		assertEquals("Redo shares the elements again: ", Arrays.asList(3, 2), polls.get(2).getPolled());
+	}
+	
+	// A batch whose command throws leaves nothing executed and nothing to undo
+	public void testBatchRollback()
+	{
+		cmdProcessor.beginBatch();
+		cmdProcessor.doIt(new PluggableCommand(() -> arrayToUndo.add(1), () -> arrayToUndo.remove((Integer) 1)));
+		cmdProcessor.doIt(new PluggableCommand(() -> { throw new IllegalStateException(); }, () -> {}));
+		try
+		{
+			cmdProcessor.endBatch();
+			fail("Should pass on the exception of the failed command");
+		}
+		catch (IllegalStateException success)
+		{
+			
+		}
+		assertTrue("Executed commands rolled back: ", arrayToUndo.isEmpty());
+		assertFalse("Batch closed: ", cmdProcessor.isBatching());
+	}
+	
+	// Undo on an empty history reports false instead of throwing, and redo replays what was undone
+	public void testUndoRedo()
+	{
+		assertFalse("Nothing to undo: ", cmdProcessor.undoIt());
+		assertFalse("Nothing to redo: ", cmdProcessor.redoIt());
+		for (int i = 0; i < 3; i++)
+		{
+			int element = i;
+			cmdProcessor.doIt(new PluggableCommand(() -> arrayToUndo.add(element), () -> arrayToUndo.remove((Integer) element)));
+		}
+		assertTrue("Undo: ", cmdProcessor.undoIt() && cmdProcessor.undoIt());
+		assertEquals("Undone commands can be redone: ", 2, cmdProcessor.redoSize());
+		assertTrue("Redo: ", cmdProcessor.redoIt());
+		assertEquals("Redo executed the last undone command: ", Arrays.asList(0, 1), arrayToUndo);
+		
+		cmdProcessor.doIt(new PluggableCommand(() -> arrayToUndo.add(9), () -> arrayToUndo.remove((Integer) 9)));
+		assertFalse("A new command discards what could be redone: ", cmdProcessor.redoIt());
+		assertEquals("History size: ", 3, cmdProcessor.historySize());
+	}
+	
+	// The oldest commands are evicted once the history is full, by depth or by bytes
+	public void testBoundedHistory()
+	{
+		CommandProcessor boundedProcessor = new CommandProcessor(3, Long.MAX_VALUE);
+		for (int i = 0; i < 40; i++)
+		{
+			int element = i;
+			boundedProcessor.doIt(new PluggableCommand(() -> arrayToUndo.add(element), () -> arrayToUndo.remove((Integer) element)));
+		}
+		assertEquals("History holds maxHistoryDepth commands: ", 3, boundedProcessor.historySize());
+		assertEquals("Evicted commands: ", 37, boundedProcessor.evictedCount());
+		assertTrue("Undo the three newest: ", boundedProcessor.undoIt() && boundedProcessor.undoIt() && boundedProcessor.undoIt());
+		assertFalse("Evicted commands cannot be undone: ", boundedProcessor.undoIt());
+		assertTrue("Only the three newest were undone: ", arrayToUndo.size() == 37 && arrayToUndo.get(36) == 36);
+		
+		CommandProcessor budgetProcessor = new CommandProcessor(1000, 5 * PluggableCommand.DEFAULTESTIMATEDBYTES);
+		for (int i = 0; i < 40; i++)
+		{
+			budgetProcessor.doIt(new PluggableCommand(() -> {}, () -> {}));
+		}
+		assertEquals("History stays within its byte budget: ", 5, budgetProcessor.historySize());
+		assertEquals("History bytes: ", 5 * PluggableCommand.DEFAULTESTIMATEDBYTES, budgetProcessor.historyBytes());
+	}
+	
+	// Commands on one target run in submission order, undo runs in reverse, and a failed command does not stall the target
+	public void testAsyncPerTargetOrdering() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			AsyncCommandProcessor asyncProcessor = new AsyncCommandProcessor(executor, 1000);
+			List<Integer> targetA = new ArrayList<Integer>(); // Not thread safe, the pipeline of a target runs one command at a time; keyed by name since a list hashes by its contents
+			List<Integer> targetB = new ArrayList<Integer>();
+			for (int i = 0; i < 500; i++)
+			{
+				int element = i;
+				asyncProcessor.doIt("A", new PluggableCommand(() -> targetA.add(element), () -> targetA.remove(targetA.size() - 1)));
+				asyncProcessor.doIt("B", new PluggableCommand(() -> targetB.add(element), () -> targetB.remove(targetB.size() - 1)));
+			}
+			CompletableFuture<Void> failed = asyncProcessor.doIt("A", new PluggableCommand(() -> { throw new IllegalStateException(); }, () -> {}));
+			CompletableFuture<Boolean> undone = asyncProcessor.undoIt("A");
+			asyncProcessor.whenIdle().get(10, TimeUnit.SECONDS);
+			
+			assertTrue("Failed command completes exceptionally: ", failed.isCompletedExceptionally());
+			assertTrue("Undo after the failure still runs: ", undone.get());
+			assertEquals("Undo removed the last successful command: ", 499, targetA.size());
+			for (int i = 0; i < 499; i++)
+			{
+				assertEquals("Target A in submission order: ", i, (int) targetA.get(i));
+			}
+			for (int i = 0; i < 500; i++)
+			{
+				assertEquals("Target B in submission order: ", i, (int) targetB.get(i));
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	// Pipelines are dropped once their last step completes, histories once their target is released
+	public void testAsyncReleaseTarget() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			AsyncCommandProcessor asyncProcessor = new AsyncCommandProcessor(executor, 1000);
+			List<Integer> target = new ArrayList<Integer>();
+			for (int i = 0; i < 100; i++)
+			{
+				int element = i;
+				asyncProcessor.doIt("CS108-" + (i % 10), new PluggableCommand(() -> { synchronized (target) { target.add(element); } }, () -> {}));
+			}
+			assertFalse("Undo on a target never used: ", asyncProcessor.undoIt("CS999").get(10, TimeUnit.SECONDS));
+			asyncProcessor.whenIdle().get(10, TimeUnit.SECONDS);
+			assertEquals("Every used target keeps its history: ", 10, asyncProcessor.historyTargets());
+			
+			for (int i = 0; i < 10; i++)
+			{
+				asyncProcessor.release("CS108-" + i);
+			}
+			asyncProcessor.whenIdle().get(10, TimeUnit.SECONDS);
+			assertEquals("Released targets hold no history: ", 0, asyncProcessor.historyTargets());
+			assertFalse("Nothing to undo after release: ", asyncProcessor.undoIt("CS108-0").get(10, TimeUnit.SECONDS));
+			assertEquals("Every command ran: ", 100, target.size());
+			
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (asyncProcessor.activeTargets() > 0 && System.nanoTime() < deadline)
+			{
+				Thread.yield(); // A pipeline is removed just after its last step completes
+			}
+			assertEquals("Idle targets hold no pipeline: ", 0, asyncProcessor.activeTargets());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	// A target blocked on a slow command does not hold up another target
+	public void testAsyncIndependentTargets() throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			AsyncCommandProcessor asyncProcessor = new AsyncCommandProcessor(executor, 1000);
+			CountDownLatch otherTargetRan = new CountDownLatch(1);
+			CompletableFuture<Void> waiting = asyncProcessor.doIt("CS108", new PluggableCommand(() -> 
+			{
+				try
+				{
+					assertTrue("Other target ran meanwhile: ", otherTargetRan.await(10, TimeUnit.SECONDS));
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}, () -> {}));
+			asyncProcessor.doIt("CS310", new PluggableCommand(() -> otherTargetRan.countDown(), () -> {}));
+			waiting.get(10, TimeUnit.SECONDS);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
 	protected void tearDown()
 	{
 		cmdProcessor = null;
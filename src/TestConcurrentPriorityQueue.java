@@ -0,0 +1,230 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - The stress test only checks correctness under contention, ConcurrentPriorityQueueBenchmark measures throughput
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import WaitlistProj.ConcurrentPriorityQueue;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import junit.framework.TestCase;
+
+public class TestConcurrentPriorityQueue extends TestCase
+{
+	// Constants used by the stress test
+	private final int[] THREADCOUNTS = {1, 2, 4, 8, 16, 32};
+	private final int OPERATIONSPERTHREAD = 2000;
+	
+	public TestConcurrentPriorityQueue(String name)
+	{
+		super(name);
+	}
+	
+	public void testPriorityOrder()
+	{
+		Collection<Integer> numbers = new ArrayList<Integer>();
+		for (int number = 0; number < 1000; number++)
+		{
+			numbers.add((number * 7919) % 1000); // a permutation of 0 - 999
+		}
+		ConcurrentPriorityQueue<Integer> cpq = new ConcurrentPriorityQueue<Integer>(numbers);
+		assertTrue("Collection Constructor size: ", cpq.size() == numbers.size());
+		
+		int expected = 999;
+		for (Integer number : cpq)
+		{
+			assertTrue("Iterator returns elements in priority order: ", number == expected--);
+		}
+		expected = 999;
+		while (!cpq.isEmpty())
+		{
+			assertTrue("Peek returns highest priority element: ", cpq.peek() == expected);
+			assertTrue("Poll returns highest priority element: ", cpq.poll() == expected--);
+		}
+		assertNull("Poll on an empty queue: ", cpq.poll());
+		assertNull("Peek on an empty queue: ", cpq.peek());
+	}
+	
+	// Equal priority elements are distinct entries and are polled in the order they were offered
+	public void testEqualPriorityIsFifo()
+	{
+		ConcurrentPriorityQueue<String> cpq = new ConcurrentPriorityQueue<String>(Comparator.comparing(String::length));
+		String first = new String("abc");
+		String second = new String("abc");
+		cpq.offer(first);
+		cpq.offer(second);
+		cpq.offer("z");
+		assertTrue("Size counts equal elements separately: ", cpq.size() == 3);
+		assertTrue("Remove matches by reference: ", cpq.remove(second) && !cpq.contains(second) && cpq.contains(first));
+		cpq.offer(second);
+		assertTrue("First offered is polled first: ", cpq.poll() == first);
+		assertTrue("Second offered is polled second: ", cpq.poll() == second);
+	}
+	
+	// A Student is taken out of the skip list and offered again when its GPA changes
+	public void testSetGpaReorders() throws Exception
+	{
+		ConcurrentPriorityQueue<Student> cpq = new ConcurrentPriorityQueue<Student>();
+		cpq.listenToPriorityChanges(true);
+		List<Student> students = new ArrayList<Student>();
+		for (int index = 0; index < 100; index++)
+		{
+			Student student = new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", (index % 40) / 10.0f, index);
+			students.add(student);
+			cpq.offer(student);
+		}
+		students.get(0).setGpa(4.0f);
+		assertTrue("Student raised to the top is the head: ", cpq.peek() == students.get(0));
+		assertTrue("Size is unchanged: ", cpq.size() == students.size());
+		
+		Student polled = cpq.poll();
+		polled.setGpa(0.0f);
+		assertFalse("Polled student is not offered again: ", cpq.contains(polled));
+		float prevGpa = Float.MAX_VALUE;
+		int polledCount = 0;
+		while (!cpq.isEmpty())
+		{
+			float gpa = cpq.poll().getGpa();
+			assertTrue("Poll returns highest priority Student after changes: ", gpa <= prevGpa);
+			prevGpa = gpa;
+			polledCount++;
+		}
+		assertTrue("Every other student was polled once: ", polledCount == students.size() - 1);
+	}
+	
+	// Only the entries of the changed student are taken from among the students of equal priority, every copy of it is offered again
+	public void testSetGpaAmongEqualPriority() throws Exception
+	{
+		ConcurrentPriorityQueue<Student> cpq = new ConcurrentPriorityQueue<Student>();
+		cpq.listenToPriorityChanges(true);
+		List<Student> students = new ArrayList<Student>();
+		for (int index = 0; index < 20; index++)
+		{
+			Student student = new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", 2.0f, index);
+			students.add(student);
+			cpq.offer(student);
+		}
+		Student changed = students.get(10);
+		cpq.offer(changed);
+		changed.setGpa(3.0f);
+		assertTrue("Both copies of the changed student are ahead: ", cpq.poll() == changed && cpq.poll() == changed);
+		assertTrue("Size counts every entry: ", cpq.size() == students.size() - 1);
+		for (Student student : students)
+		{
+			if (student != changed)
+			{
+				assertTrue("Students of the old priority keep their order: ", cpq.poll() == student);
+			}
+		}
+		assertTrue("Queue is empty: ", cpq.isEmpty());
+	}
+	
+	// Every offered element must be polled exactly once, for the concurrent queue and for the synchronized PriorityQueue baseline
+	public void testStressAgainstSynchronizedBaseline() throws InterruptedException
+	{
+		for (int threadCount : THREADCOUNTS)
+		{
+			stress(new ConcurrentPriorityQueue<Integer>(), threadCount);
+			stress(new SynchronizedQueue<Integer>(new PriorityQueue<Integer>()), threadCount);
+		}
+	}
+	
+	// Each thread offers its own distinct elements and polls as many times as it offers
+	private void stress(Queue<Integer> queue, int threadCount) throws InterruptedException
+	{
+		Set<Integer> polled = ConcurrentHashMap.newKeySet();
+		AtomicInteger duplicatePolls = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		
+		for (int threadIdx = 0; threadIdx < threadCount; threadIdx++)
+		{
+			int firstElement = threadIdx * OPERATIONSPERTHREAD;
+			threads[threadIdx] = new Thread(() -> 
+			{
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+				for (int op = 0; op < OPERATIONSPERTHREAD; op++)
+				{
+					queue.offer(firstElement + op);
+					Integer element = queue.poll();
+					if (element != null && !polled.add(element))
+					{
+						duplicatePolls.incrementAndGet();
+					}
+				}
+			});
+			threads[threadIdx].start();
+		}
+		
+		start.countDown();
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		
+		// Whatever was not polled by the threads must still be in the queue
+		for (Integer element = queue.poll(); element != null; element = queue.poll())
+		{
+			if (!polled.add(element))
+			{
+				duplicatePolls.incrementAndGet();
+			}
+		}
+		assertTrue("No element was polled twice: ", duplicatePolls.get() == 0);
+		assertTrue("Every offered element was polled: ", polled.size() == threadCount * OPERATIONSPERTHREAD);
+	}
+	
+	// The baseline: a PriorityQueue guarded by one lock, as the registration threads do today
+	private static class SynchronizedQueue<E> extends java.util.AbstractQueue<E>
+	{
+		private final Queue<E> queue;
+		
+		SynchronizedQueue(Queue<E> queue)
+		{
+			this.queue = queue;
+		}
+		
+		public synchronized boolean offer(E e)
+		{
+			return queue.offer(e);
+		}
+		
+		public synchronized E poll()
+		{
+			return queue.poll();
+		}
+		
+		public synchronized E peek()
+		{
+			return queue.peek();
+		}
+		
+		public synchronized int size()
+		{
+			return queue.size();
+		}
+		
+		public java.util.Iterator<E> iterator()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - A reopened DurableWaitlist must hold its students in exactly the heap order it had when it was closed
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import WaitlistProj.DurableWaitlist;
+import WaitlistProj.Student;
+import WaitlistProj.StudentCodec;
+import junit.framework.TestCase;
+
+public class TestDurableWaitlist extends TestCase
+{
+	private Path directory; // Holds the snapshot and log of the waitlist under test
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen; 
+	private final Comparator<Student> gpaOrder = Comparator.naturalOrder();
+	
+	private final int NUMBEROFSTUDENTS = 500;
+	
+	public TestDurableWaitlist(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory("waitlist");
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	// Every operation is only in the log, reopening must replay all of them
+	public void testReplayWithoutCheckpoint() throws IOException
+	{
+		DurableWaitlist<Student> waitlist = open(0);
+		applyRandomOperations(waitlist);
+		List<String> expected = redIdsOf(waitlist);
+		waitlist.close();
+		
+		DurableWaitlist<Student> reopened = open(0);
+		assertTrue("Every operation was replayed: ", reopened.replayedRecords() > NUMBEROFSTUDENTS);
+		assertEquals("Reopened waitlist has the same heap order: ", expected, redIdsOf(reopened));
+		assertPolledInPriorityOrder(reopened);
+		reopened.close();
+	}
+	
+	// Operations after a checkpoint are replayed on top of the snapshot, operations before it are not replayed again
+	public void testCheckpointThenReplay() throws IOException
+	{
+		DurableWaitlist<Student> waitlist = open(0);
+		applyRandomOperations(waitlist);
+		waitlist.checkpoint();
+		for (int index = 0; index < 10; index++)
+		{
+			waitlist.poll();
+		}
+		waitlist.offer(studentList.get(0));
+		List<String> expected = redIdsOf(waitlist);
+		waitlist.close();
+		
+		DurableWaitlist<Student> reopened = open(0);
+		assertEquals("Only the operations after the checkpoint were replayed: ", 11, reopened.replayedRecords());
+		assertEquals("Reopened waitlist has the same heap order: ", expected, redIdsOf(reopened));
+		reopened.close();
+	}
+	
+	// Automatic checkpoints must leave the waitlist just as recoverable as explicit ones
+	public void testSnapshotInterval() throws IOException
+	{
+		DurableWaitlist<Student> waitlist = open(97);
+		applyRandomOperations(waitlist);
+		List<String> expected = redIdsOf(waitlist);
+		waitlist.close();
+		
+		DurableWaitlist<Student> reopened = open(97);
+		assertTrue("Only the operations after the last checkpoint were replayed: ", reopened.replayedRecords() < 97);
+		assertEquals("Reopened waitlist has the same heap order: ", expected, redIdsOf(reopened));
+		reopened.close();
+	}
+	
+	// A record that was only partly written is dropped along with everything after it
+	public void testTornRecord() throws IOException
+	{
+		DurableWaitlist<Student> waitlist = open(0);
+		for (int index = 0; index < 10; index++)
+		{
+			waitlist.offer(studentList.get(index));
+		}
+		List<String> expected = redIdsOf(waitlist);
+		waitlist.offer(studentList.get(10));
+		waitlist.close();
+		
+		// The last byte before the zeroed tail belongs to the CRC of the last record
+		try (FileChannel log = FileChannel.open(directory.resolve(DurableWaitlist.LOGFILE), StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer contents = ByteBuffer.allocate((int) log.size());
+			log.read(contents, 0);
+			int lastByte = contents.limit() - 1;
+			while (contents.get(lastByte) == 0)
+			{
+				lastByte--;
+			}
+			log.write(ByteBuffer.wrap(new byte[] { (byte) ~contents.get(lastByte) }), lastByte);
+		}
+		
+		DurableWaitlist<Student> reopened = open(0);
+		assertEquals("The torn record was not replayed: ", 10, reopened.replayedRecords());
+		assertEquals("Reopened waitlist holds everything before the torn record: ", expected, redIdsOf(reopened));
+		reopened.offer(studentList.get(10));
+		reopened.close();
+		
+		reopened = open(0);
+		assertEquals("Records appended after recovery replace the torn record: ", 11, reopened.size());
+		reopened.close();
+	}
+	
+	// A change to a student's GPA is logged like updatePriority, so the reopened waitlist has the new priority in the same place
+	public void testSetGpaIsLogged() throws IOException
+	{
+		DurableWaitlist<Student> waitlist = open(0);
+		waitlist.listenToPriorityChanges(true);
+		for (Student student : studentList)
+		{
+			student.setGpa(Math.min(student.getGpa(), 3.99f)); // Only the raised student may have a 4.0
+			waitlist.offer(student);
+		}
+		studentList.get(0).setGpa(4.0f);
+		assertTrue("Student raised to the top is the head: ", waitlist.peek() == studentList.get(0));
+		waitlist.poll();
+		studentList.get(0).setGpa(0.0f);
+		assertFalse("Polled student is not offered again: ", waitlist.contains(studentList.get(0)));
+		for (int index = 1; index < 10; index++)
+		{
+			studentList.get(index).setGpa(index % 2 == 0 ? 4.0f : 0.0f);
+		}
+		List<String> expected = redIdsOf(waitlist);
+		waitlist.close();
+		
+		DurableWaitlist<Student> reopened = open(0);
+		assertEquals("Reopened waitlist has the same heap order: ", expected, redIdsOf(reopened));
+		assertPolledInPriorityOrder(reopened);
+		reopened.close();
+	}
+	
+	// Offers every student then polls, removes and reprioritizes a random selection of them
+	private void applyRandomOperations(DurableWaitlist<Student> waitlist)
+	{
+		for (Student student : studentList)
+		{
+			assertTrue("Successful offer: ", waitlist.offer(student));
+		}
+		for (int index = 0; index < NUMBEROFSTUDENTS / 5; index++)
+		{
+			waitlist.poll();
+			Student student = studentList.get(rndGen.nextInt(NUMBEROFSTUDENTS));
+			if (waitlist.contains(student))
+			{
+				assertTrue("Waitlist removed the student: ", waitlist.remove(student));
+				assertFalse("Waitlist no longer contains the student: ", waitlist.contains(student));
+			}
+		}
+	}
+	
+	private DurableWaitlist<Student> open(int snapshotInterval) throws IOException
+	{
+		return new DurableWaitlist<Student>(directory, gpaOrder, new StudentCodec(), DurableWaitlist.DEFAULTSYNCBATCHSIZE, snapshotInterval);
+	}
+	
+	private static List<String> redIdsOf(DurableWaitlist<Student> waitlist)
+	{
+		List<String> redIds = new ArrayList<String>();
+		for (Student student : waitlist)
+		{
+			redIds.add(student.getRedId());
+		}
+		return redIds;
+	}
+	
+	private void assertPolledInPriorityOrder(DurableWaitlist<Student> waitlist)
+	{
+		Student prevStudent = waitlist.poll();
+		while (!waitlist.isEmpty())
+		{
+			Student currStudent = waitlist.poll();
+			assertTrue("Poll returns highest priority Student: ", gpaOrder.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+		}
+	}
+	
+	@Override
+	protected void tearDown() throws IOException
+	{
+		try (Stream<Path> files = Files.list(directory))
+		{
+			for (Path file : (Iterable<Path>) files::iterator)
+			{
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+		studentList = null;
+	}
+}
@@ -0,0 +1,171 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - OffHeapWaitlist must poll students in the same priority order as StudentWaitlist with the same priority key,
+ *  	and every student it returns must have exactly the fields of the student that was offered
+ */
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import WaitlistProj.OffHeapWaitlist;
+import WaitlistProj.Student;
+import WaitlistProj.StudentPriorityKey;
+import junit.framework.TestCase;
+
+public class TestOffHeapWaitlist extends TestCase
+{
+	private List<Student> studentList; // Random students shared by each test
+	private Map<String, Student> studentsByRedId;
+	private Random rndGen; 
+	
+	// Constants used in the priority algorithm for this test class
+	private final float UNITSWEIGHT = 0.7f;
+	private final float GPAWEIGHT = 0.3f;
+	private final int NUMBEROFSTUDENTS = 5000;
+	
+	public TestOffHeapWaitlist(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		studentsByRedId = new HashMap<String, Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				Student student = new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151));
+				studentList.add(student);
+				studentsByRedId.put(student.getRedId(), student);
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	public void testPriorityOrder()
+	{
+		StudentPriorityKey weighted = StudentPriorityKey.weighted(UNITSWEIGHT, GPAWEIGHT);
+		OffHeapWaitlist waitlist = new OffHeapWaitlist(16, weighted); // Small enough that the entries and the arena both have to grow
+		assertNull("Poll on an empty waitlist: ", waitlist.poll());
+		waitlist.addAll(studentList);
+		assertEquals("Size: ", NUMBEROFSTUDENTS, waitlist.size());
+		
+		float prevKey = Float.MAX_VALUE;
+		while (!waitlist.isEmpty())
+		{
+			float key = waitlist.peekPriority();
+			assertEquals("Peek returns the head: ", waitlist.peek().getRedId(), waitlist.peek().getRedId());
+			Student student = waitlist.poll();
+			assertTrue("Poll returns highest priority Student: ", key <= prevKey);
+			assertEquals("Key of the polled Student: ", weighted.priorityOf(student), key);
+			assertSameFields(student);
+			prevKey = key;
+		}
+	}
+	
+	// Polling most students leaves mostly garbage in the arena, compacting it must not lose or corrupt any record
+	public void testCompaction()
+	{
+		OffHeapWaitlist waitlist = new OffHeapWaitlist();
+		waitlist.addAll(studentList);
+		int fullBytes = waitlist.liveRecordBytes();
+		for (int index = 0; index < NUMBEROFSTUDENTS - 100; index++)
+		{
+			waitlist.poll();
+		}
+		for (Student student : studentList.subList(0, 50))
+		{
+			waitlist.offer(student);
+		}
+		assertTrue("Live records shrank: ", waitlist.liveRecordBytes() < fullBytes / 10);
+		assertTrue("Arena was compacted: ", waitlist.offHeapBytes() < fullBytes);
+		assertEquals("Size: ", 150, waitlist.size());
+		for (Student student : waitlist)
+		{
+			assertSameFields(student);
+		}
+	}
+	
+	public void testRemoveByRedId()
+	{
+		OffHeapWaitlist waitlist = new OffHeapWaitlist();
+		waitlist.addAll(studentList.subList(0, 100));
+		assertTrue("Contains by red id: ", waitlist.contains(studentList.get(42)));
+		assertTrue("Remove by red id: ", waitlist.removeByRedId("42"));
+		assertFalse("Removed: ", waitlist.containsRedId("42"));
+		assertFalse("Remove of a missing red id: ", waitlist.removeByRedId("42"));
+		assertFalse("Red ids only match whole: ", waitlist.containsRedId("420"));
+		assertTrue("Remove a Student matches its red id: ", waitlist.remove(studentList.get(7)));
+		assertEquals("Size: ", 98, waitlist.size());
+		
+		Student prevStudent = waitlist.poll();
+		while (!waitlist.isEmpty())
+		{
+			Student currStudent = waitlist.poll();
+			assertTrue("Poll returns highest priority Student: ", prevStudent.getGpa() >= currStudent.getGpa());
+			prevStudent = currStudent;
+		}
+	}
+	
+	public void testIteratorAndClear()
+	{
+		OffHeapWaitlist waitlist = new OffHeapWaitlist();
+		waitlist.addAll(studentList.subList(0, 100));
+		int iterated = 0;
+		for (Student student : waitlist)
+		{
+			assertSameFields(student);
+			iterated++;
+		}
+		assertEquals("Iterator returns every student: ", 100, iterated);
+		
+		Iterator<Student> waitlistIterator = waitlist.iterator();
+		waitlist.poll();
+		try
+		{
+			waitlistIterator.hasNext();
+			fail("Iterator did not detect the poll");
+		}
+		catch (ConcurrentModificationException e)
+		{
+			
+		}
+		
+		waitlist.clear();
+		assertTrue("Cleared: ", waitlist.isEmpty());
+		waitlist.offer(studentList.get(0));
+		assertSameFields(waitlist.peek());
+	}
+	
+	// The student decoded from the waitlist is a copy of the one offered, with the same red id
+	private void assertSameFields(Student student)
+	{
+		Student offered = studentsByRedId.get(student.getRedId());
+		assertNotSame("A copy is returned: ", offered, student);
+		assertEquals("Name: ", offered.getStudentName(), student.getStudentName());
+		assertEquals("Email: ", offered.getEmail(), student.getEmail());
+		assertEquals("GPA: ", offered.getGpa(), student.getGpa());
+		assertEquals("Units: ", offered.getUnitsTaken(), student.getUnitsTaken());
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentList = null;
+		studentsByRedId = null;
+	}
+}
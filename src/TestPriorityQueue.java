@@ -7,9 +7,14 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Random; // Use for random generation of Gpa's and Units for Student Objects
+import java.util.function.ToDoubleFunction;
 
 import WaitlistProj.CommandProcessor;
 import WaitlistProj.PluggableCommand;
@@ -45,8 +50,8 @@ public class TestPriorityQueue<E extends Comparable<E>> extends TestCase
 		pqsToTest.put(collectStudentPq, (PriorityQueue<E>) new PriorityQueue<Student>(createRandomStudentCollection()));
 		// Lambda function used as to supply the algorithm to deytermine priority
 		// Priority: unitWeight * (numUnits / maxunits) + gpaWeight * (gpa / maxgpa)
-		pqsToTest.put(compStudentPq, (PriorityQueue<E>) new PriorityQueue<Student>((x,y) -> ((Float)((UNITSWEIGHT * ((float)x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)))).compareTo((Float)((UNITSWEIGHT * ((float)y.getUnitsTaken()) / MAXUNITS) + (GPAWEIGHT * (y.getGpa() / MAXGPA))))));		
-		pqsToTest.put(collectCompStudentPq,  (PriorityQueue<E>) new PriorityQueue<Student>(createRandomStudentCollection(), (x,y) -> ((Float)((UNITSWEIGHT * ((float)x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)))).compareTo((Float)((UNITSWEIGHT * ((float)y.getUnitsTaken()) / MAXUNITS) + (GPAWEIGHT * (y.getGpa() / MAXGPA))))));
+		pqsToTest.put(compStudentPq, (PriorityQueue<E>) new PriorityQueue<Student>((x,y) -> ((Float)((UNITSWEIGHT * ((float)x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)))).compareTo((Float)((UNITSWEIGHT * ((float)y.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (y.getGpa() / MAXGPA))))));		
+		pqsToTest.put(collectCompStudentPq,  (PriorityQueue<E>) new PriorityQueue<Student>(createRandomStudentCollection(), (x,y) -> ((Float)((UNITSWEIGHT * ((float)x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)))).compareTo((Float)((UNITSWEIGHT * ((float)y.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (y.getGpa() / MAXGPA))))));
 	}
 
 	public TestPriorityQueue(String name)
@@ -205,6 +210,350 @@ public class TestPriorityQueue<E extends Comparable<E>> extends TestCase
 		assertTrue("PriorityQueue should now be empty: ", pqsToTest.get(compStudentPq).isEmpty());
 	}
 	
+	// Offering one student at a time must keep the same priority order as building the PriorityQueue from a collection
+	public void testOfferThenPollOrder_StudentObjects()
+	{
+		PriorityQueue<Student> offeredPq = new PriorityQueue<Student>();
+		for (Student student : createRandomStudentCollection())
+		{
+			offeredPq.offer(student);
+		}
+		assertPolledInPriorityOrder(offeredPq);
+	}
+	
+	public void testPositionIndexedRemove_StudentObjects()
+	{
+		Collection<Student> studentCol = createRandomStudentCollection();
+		PriorityQueue<Student> indexedPq = new PriorityQueue<Student>(studentCol, Comparator.naturalOrder(), true);
+		int expectedSize = studentCol.size();
+		
+		// Remove every other student, each removal must leave the remaining students in priority order
+		int index = 0;
+		for (Student student : studentCol)
+		{
+			if (index++ % 2 == 0)
+			{
+				assertTrue("Position indexed PriorityQueue contains the student before removal: ", indexedPq.contains(student));
+				assertTrue("Position indexed PriorityQueue removed the student: ", indexedPq.remove(student));
+				assertFalse("Position indexed PriorityQueue no longer contains the student: ", indexedPq.contains(student));
+				expectedSize--;
+			}
+		}
+		assertTrue("Removing a student that was already removed fails: ", !indexedPq.remove(studentCol.iterator().next()));
+		assertTrue("Size after removals: ", indexedPq.size() == expectedSize);
+		assertPolledInPriorityOrder(indexedPq);
+	}
+	
+	public void testPositionIndexedRejectsDuplicates_StudentObjects()
+	{
+		PriorityQueue<Student> indexedPq = new PriorityQueue<Student>(Comparator.naturalOrder(), true);
+		Student student = createRandomStudentCollection().iterator().next();
+		indexedPq.offer(student);
+		try
+		{
+			indexedPq.offer(student);
+			fail("Should raise IllegalArgumentException");
+		}
+		catch (IllegalArgumentException success)
+		{
+			
+		}
+		assertTrue("The rejected offer did not change the PriorityQueue: ", indexedPq.size() == 1 && indexedPq.remove(student) && indexedPq.isEmpty());
+	}
+	
+	public void testUpdatePriority_StudentObjects()
+	{
+		Collection<Student> studentCol = createRandomStudentCollection();
+		PriorityQueue<Student> indexedPq = new PriorityQueue<Student>(studentCol, Comparator.naturalOrder(), true);
+		PriorityQueue<Student> scanningPq = new PriorityQueue<Student>(studentCol);
+		
+		// Move students to both ends of the queue, the highest priority should now be the student given a 4.0
+		Student lowered = null;
+		Student raised = null;
+		for (Student student : studentCol)
+		{
+			if (lowered == null)
+			{
+				lowered = student;
+				student.setGpa(0.0f);
+			}
+			else
+			{
+				raised = student;
+				student.setGpa(MAXGPA);
+				break;
+			}
+		}
+		assertTrue("updatePriority on a position indexed PriorityQueue: ", indexedPq.updatePriority(lowered) && indexedPq.updatePriority(raised));
+		assertTrue("updatePriority on a PriorityQueue that is not position indexed: ", scanningPq.updatePriority(lowered) && scanningPq.updatePriority(raised));
+		assertTrue("The raised student is the highest priority: ", indexedPq.peek().getGpa() == MAXGPA);
+		assertPolledInPriorityOrder(indexedPq);
+		assertPolledInPriorityOrder(scanningPq);
+	}
+	
+	// A keyed PriorityQueue must agree with the equivalent comparator, including after a cached key is recomputed
+	public void testKeyedPriorityQueue_StudentObjects()
+	{
+		Collection<Student> studentCol = createRandomStudentCollection();
+		PriorityQueue<Student> keyedPq = new PriorityQueue<Student>(studentCol, x -> (UNITSWEIGHT * (x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)));
+		PriorityQueue<Student> offeredPq = new PriorityQueue<Student>(x -> (UNITSWEIGHT * (x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)), true);
+		for (Student student : studentCol)
+		{
+			offeredPq.offer(student);
+		}
+		
+		Student lowered = studentCol.iterator().next();
+		lowered.setGpa(0.0f);
+		lowered.setUnitsTaken(0);
+		assertTrue("Re-keying a student in a keyed PriorityQueue: ", keyedPq.updatePriority(lowered) && offeredPq.updatePriority(lowered));
+		assertPolledInPriorityOrder(keyedPq);
+		assertPolledInPriorityOrder(offeredPq);
+	}
+	
+	// Taking only the first few students from the iterator must return the same students, in the same order, as polling
+	public void testPartialPriorityOrderIterator_StudentObjects()
+	{
+		Collection<Student> studentCol = createRandomStudentCollection();
+		PriorityQueue<Student> iteratedPq = new PriorityQueue<Student>(studentCol);
+		PriorityQueue<Student> polledPq = new PriorityQueue<Student>(studentCol);
+		
+		Iterator<Student> priorityIterator = iteratedPq.iterator();
+		for (int taken = 0; taken < 3; taken++)
+		{
+			assertTrue("Iterator returns the same priority as poll: ", priorityIterator.next().getGpa() == polledPq.poll().getGpa());
+		}
+		assertTrue("Iterating does not change the PriorityQueue: ", iteratedPq.size() == studentCol.size());
+		
+		iteratedPq.poll();
+		try
+		{
+			priorityIterator.next();
+			fail("Should raise ConcurrentModificationException");
+		}
+		catch (ConcurrentModificationException success)
+		{
+			
+		}
+	}
+	
+	// pollTopK takes small batches off the head and rebuilds the heap for large batches, both must match polling one student at a time
+	public void testTopK_StudentObjects()
+	{
+		Collection<Student> studentCol = createRandomStudentCollection();
+		for (int k = 0; k <= studentCol.size() + 1; k++)
+		{
+			PriorityQueue<Student> batchPq = new PriorityQueue<Student>(studentCol, Comparator.naturalOrder(), true);
+			PriorityQueue<Student> polledPq = new PriorityQueue<Student>(studentCol);
+			
+			List<Student> peeked = batchPq.peekTopK(k);
+			List<Student> polled = batchPq.pollTopK(k);
+			assertTrue("pollTopK returns at most k students: ", polled.size() == Math.min(k, studentCol.size()) && peeked.size() == polled.size());
+			// Students with equal GPAs may come out in either order, therefore only their priorities are compared
+			for (int index = 0; index < polled.size(); index++)
+			{
+				Student student = polled.get(index);
+				assertTrue("peekTopK and pollTopK return the same priorities: ", peeked.get(index).getGpa() == student.getGpa());
+				assertTrue("pollTopK returns students in priority order: ", student.getGpa() == polledPq.poll().getGpa());
+				assertFalse("pollTopK removed the student: ", batchPq.contains(student));
+			}
+			assertTrue("Size after pollTopK: ", batchPq.size() == studentCol.size() - polled.size());
+			assertPolledInPriorityOrder(batchPq);
+		}
+	}
+	
+	public void testDrainTo_StudentObjects()
+	{
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(createRandomStudentCollection());
+		int expectedRemaining = pq.size() - 4;
+		List<Student> admitted = new ArrayList<Student>();
+		assertTrue("drainTo moves at most maxElements: ", pq.drainTo(admitted, 4) == 4);
+		assertTrue("Size after drainTo: ", pq.size() == expectedRemaining && admitted.size() == 4);
+		assertTrue("drainTo moves every remaining student: ", pq.drainTo(admitted) == expectedRemaining && pq.isEmpty());
+	}
+	
+	// Small batches are trickled up one at a time while large batches rebuild the heap, both must leave the PriorityQueue in priority order
+	public void testAddAll_StudentObjects()
+	{
+		Collection<Student> studentCol = createRandomStudentCollection();
+		PriorityQueue<Student> smallBatchPq = new PriorityQueue<Student>(createRandomStudentCollection(), Comparator.naturalOrder(), true);
+		smallBatchPq.addAll(createRandomStudentCollection());
+		assertTrue("addAll of one student: ", smallBatchPq.addAll(Collections.singletonList(studentCol.iterator().next())));
+		assertTrue("Size after addAll: ", smallBatchPq.size() == 2 * studentCol.size() + 1);
+		assertPolledInPriorityOrder(smallBatchPq);
+		
+		PriorityQueue<Student> presizedPq = new PriorityQueue<Student>(2 * studentCol.size(), Comparator.naturalOrder());
+		presizedPq.offer(createRandomStudentCollection().iterator().next());
+		assertTrue("addAll of a large batch: ", presizedPq.addAll(studentCol));
+		assertFalse("addAll of an empty collection: ", presizedPq.addAll(new ArrayList<Student>()));
+		assertTrue("Size after addAll: ", presizedPq.size() == studentCol.size() + 1);
+		assertPolledInPriorityOrder(presizedPq);
+	}
+	
+	// Every arity must give the same priority order, through the collection constructor, offer, remove, updatePriority and the iterator
+	public void testArity_StudentObjects()
+	{
+		int[] arities = {2, 3, 4, 8};
+		for (int arity : arities)
+		{
+			Collection<Student> studentCol = createRandomStudentCollection();
+			PriorityQueue<Student> builtPq = new PriorityQueue<Student>(studentCol, Comparator.naturalOrder(), true, arity);
+			PriorityQueue<Student> offeredPq = new PriorityQueue<Student>(x -> x.getGpa(), false, arity);
+			offeredPq.addAll(createRandomStudentCollection());
+			assertTrue("Arity of the PriorityQueue: ", builtPq.arity() == arity && offeredPq.arity() == arity);
+			
+			Student changed = studentCol.iterator().next();
+			changed.setGpa(MAXGPA);
+			assertTrue("updatePriority with arity " + arity, builtPq.updatePriority(changed));
+			assertTrue("The raised student is the highest priority with arity " + arity, builtPq.peek().getGpa() == MAXGPA);
+			assertTrue("remove with arity " + arity, builtPq.remove(changed));
+			
+			Student prevStudent = null;
+			for (Student currStudent : offeredPq)
+			{
+				assertTrue("Iterator priority order with arity " + arity, prevStudent == null || prevStudent.getGpa() >= currStudent.getGpa());
+				prevStudent = currStudent;
+			}
+			assertPolledInPriorityOrder(builtPq);
+			assertPolledInPriorityOrder(offeredPq);
+		}
+		
+		try
+		{
+			new PriorityQueue<Student>(Comparator.naturalOrder(), false, 1);
+			fail("Should raise IllegalArgumentException");
+		}
+		catch (IllegalArgumentException success)
+		{
+			
+		}
+	}
+	
+	// Large enough that the collection constructor builds the heap in parallel, which must give the same priority order as the sequential build of addAll
+	public void testParallelConstruction_StudentObjects() throws Exception
+	{
+		List<Student> studentList = new ArrayList<Student>();
+		for (int index = 0; index < 100000; index++)
+		{
+			studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", randomGpaGenerator(), randomUnitsGenerator()));
+		}
+		int[] arities = {2, 4};
+		for (int arity : arities)
+		{
+			PriorityQueue<Student> comparedPq = new PriorityQueue<Student>(studentList, Comparator.naturalOrder(), false, arity);
+			PriorityQueue<Student> keyedPq = new PriorityQueue<Student>(x -> (UNITSWEIGHT * (x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA)), false, arity);
+			keyedPq.addAll(studentList);
+			assertTrue("Size with arity " + arity, comparedPq.size() == studentList.size() && keyedPq.size() == studentList.size());
+			assertPolledInPriorityOrder(comparedPq);
+			assertPolledInPriorityOrder(keyedPq);
+		}
+	}
+		
+	public void testMerge_StudentObjects()
+	{
+		PriorityQueue<Student> mergedPq = new PriorityQueue<Student>(createRandomStudentCollection());
+		PriorityQueue<Student> otherPq = new PriorityQueue<Student>(createRandomStudentCollection());
+		int expectedSize = mergedPq.size() + otherPq.size();
+		mergedPq.merge(otherPq);
+		assertTrue("Size after merge: ", mergedPq.size() == expectedSize);
+		assertTrue("Merged PriorityQueue is emptied: ", otherPq.isEmpty());
+		
+		// An empty PriorityQueue with the same order takes the other heap as is
+		PriorityQueue<Student> emptyPq = new PriorityQueue<Student>();
+		emptyPq.merge(mergedPq);
+		assertTrue("Size after merge into an empty PriorityQueue: ", emptyPq.size() == expectedSize);
+		assertPolledInPriorityOrder(emptyPq);
+		
+		// Keys are reused from a heap with the same extractor and recomputed from one with another
+		ToDoubleFunction<Student> weighted = x -> (UNITSWEIGHT * (x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA));
+		PriorityQueue<Student> keyedPq = new PriorityQueue<Student>(createRandomStudentCollection(), weighted);
+		keyedPq.merge(new PriorityQueue<Student>(createRandomStudentCollection(), weighted));
+		keyedPq.merge(new PriorityQueue<Student>(createRandomStudentCollection(), x -> x.getGpa()));
+		assertTrue("Size after keyed merges: ", keyedPq.size() == 3 * createRandomStudentCollection().size());
+		assertPolledInPriorityOrder(keyedPq);
+		
+		Collection<Student> studentCol = createRandomStudentCollection();
+		PriorityQueue<Student> indexedPq = new PriorityQueue<Student>(studentCol, Comparator.naturalOrder(), true);
+		PriorityQueue<Student> overlappingPq = new PriorityQueue<Student>(createRandomStudentCollection());
+		overlappingPq.offer(studentCol.iterator().next());
+		try
+		{
+			indexedPq.merge(overlappingPq);
+			fail("Should raise IllegalArgumentException");
+		}
+		catch (IllegalArgumentException success)
+		{
+			
+		}
+		assertTrue("A rejected merge changes neither PriorityQueue: ", indexedPq.size() == studentCol.size() && overlappingPq.size() == studentCol.size() + 1);
+		overlappingPq.remove(studentCol.iterator().next());
+		indexedPq.merge(overlappingPq);
+		assertTrue("Merged element is indexed: ", indexedPq.remove(studentCol.iterator().next()));
+		assertPolledInPriorityOrder(indexedPq);
+		
+		try
+		{
+			indexedPq.merge(indexedPq);
+			fail("Should raise IllegalArgumentException");
+		}
+		catch (IllegalArgumentException success)
+		{
+			
+		}
+	}
+	
+	// A PriorityQueue of Students told to listen re-sifts a student when its GPA or units taken change, whichever way it was built
+	public void testSetGpaReorders_StudentObjects()
+	{
+		List<PriorityQueue<Student>> pqs = new ArrayList<PriorityQueue<Student>>();
+		pqs.add(new PriorityQueue<Student>());
+		pqs.add(new PriorityQueue<Student>(createRandomStudentCollection()));
+		pqs.add(new PriorityQueue<Student>(Comparator.naturalOrder(), true));
+		pqs.add(new PriorityQueue<Student>(x -> (UNITSWEIGHT * (x.getUnitsTaken() / MAXUNITS)) + (GPAWEIGHT * (x.getGpa() / MAXGPA))));
+		for (PriorityQueue<Student> pq : pqs)
+		{
+			pq.listenToPriorityChanges(true);
+			pq.addAll(createRandomStudentCollection());
+			Student lowest = null;
+			for (Object element : pq.toArray()) // Every student, including those the PriorityQueue was built with
+			{
+				Student student = (Student) element;
+				student.setGpa(1.0f);
+				student.setUnitsTaken(1);
+				lowest = student;
+			}
+			lowest.setGpa(4.0f);
+			lowest.setUnitsTaken(150);
+			assertTrue("Student raised to the top is the head: ", pq.peek() == lowest);
+			
+			Student polled = pq.poll();
+			polled.setGpa(0.0f); // No longer in the queue, must not be re-sifted into it
+			assertFalse("Polled student is not offered again: ", pq.contains(polled));
+			assertPolledInPriorityOrder(pq);
+		}
+		
+		// Listening is opt in, by default the head stays where it is until updatePriority
+		PriorityQueue<Student> quietPq = new PriorityQueue<Student>(createRandomStudentCollection());
+		Student head = quietPq.peek();
+		head.setGpa(0.0f);
+		head.setUnitsTaken(0);
+		assertTrue("A PriorityQueue that is not listening is not re-sifted: ", quietPq.peek() == head);
+		quietPq.updatePriority(head);
+		assertPolledInPriorityOrder(quietPq);
+	}
+	
+	// Polls every element of pqToDrain and asserts they come out in priority order
+	private void assertPolledInPriorityOrder(PriorityQueue<Student> pqToDrain)
+	{
+		Comparator<Student> compStudent = pqToDrain.comparator();
+		Student prevStudent = pqToDrain.poll();
+		while (!pqToDrain.isEmpty())
+		{
+			Student currStudent = pqToDrain.poll();
+			assertTrue("Does Poll return highest priority Student", compStudent.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+		}
+	}
+	
 	// Uses the methods randomUnitsGenerator and randomGpaGenerator to create random student objects
 	public Collection<Student> createRandomStudentCollection()
 	{
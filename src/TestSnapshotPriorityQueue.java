@@ -0,0 +1,165 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - A restored snapshot must hold exactly the elements it held when it was taken, the queue is compared element by element after every undo
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import WaitlistProj.CommandProcessor;
+import WaitlistProj.PersistentHeap;
+import WaitlistProj.SnapshotCommand;
+import WaitlistProj.SnapshotPriorityQueue;
+import WaitlistProj.Student;
+import junit.framework.TestCase;
+
+public class TestSnapshotPriorityQueue extends TestCase
+{
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen; 
+	private final Comparator<Student> gpaOrder = Comparator.naturalOrder();
+	
+	private final int NUMBEROFSTUDENTS = 1000;
+	
+	public TestSnapshotPriorityQueue(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	public void testPriorityOrder()
+	{
+		SnapshotPriorityQueue<Student> queue = new SnapshotPriorityQueue<Student>(studentList.subList(0, NUMBEROFSTUDENTS / 2), gpaOrder);
+		for (Student student : studentList.subList(NUMBEROFSTUDENTS / 2, NUMBEROFSTUDENTS))
+		{
+			assertTrue("Successful offer: ", queue.offer(student));
+		}
+		assertEquals("Size counts every element: ", NUMBEROFSTUDENTS, queue.size());
+		for (int index = 0; index < NUMBEROFSTUDENTS; index += 3)
+		{
+			assertTrue("Remove finds the student: ", queue.remove(studentList.get(index)));
+			assertFalse("Removed student is gone: ", queue.contains(studentList.get(index)));
+		}
+		assertFalse("Remove of a missing student: ", queue.remove(studentList.get(0)));
+		assertPolledInPriorityOrder(queue, NUMBEROFSTUDENTS - (NUMBEROFSTUDENTS + 2) / 3);
+		assertNull("Poll on an empty queue: ", queue.poll());
+	}
+	
+	// A snapshot is not affected by later changes to the queue, and restoring it brings back exactly what it held
+	public void testSnapshotRestore()
+	{
+		SnapshotPriorityQueue<Student> queue = new SnapshotPriorityQueue<Student>(studentList, gpaOrder);
+		PersistentHeap<Student> snapshot = queue.snapshot();
+		List<Student> expected = contentsOf(snapshot);
+		for (int index = 0; index < NUMBEROFSTUDENTS / 2; index++)
+		{
+			queue.poll();
+			queue.remove(studentList.get(rndGen.nextInt(NUMBEROFSTUDENTS)));
+		}
+		queue.offer(studentList.get(0));
+		assertEquals("Snapshot still holds every student: ", NUMBEROFSTUDENTS, snapshot.size());
+		assertEquals("Snapshot is unchanged: ", expected, contentsOf(snapshot));
+		
+		queue.restore(snapshot);
+		assertSame("Restore is a pointer swap: ", snapshot, queue.snapshot());
+		assertPolledInPriorityOrder(queue, NUMBEROFSTUDENTS);
+		assertEquals("Polling the restored queue leaves the snapshot alone: ", NUMBEROFSTUDENTS, snapshot.size());
+	}
+	
+	// Undo of any change through SnapshotCommand, including a remove, puts back the exact prior state, and redo the exact later one
+	public void testSnapshotCommandUndo()
+	{
+		SnapshotPriorityQueue<Student> queue = new SnapshotPriorityQueue<Student>(studentList.subList(0, NUMBEROFSTUDENTS / 2), gpaOrder);
+		CommandProcessor processor = new CommandProcessor();
+		List<PersistentHeap<Student>> versions = new ArrayList<PersistentHeap<Student>>();
+		versions.add(queue.snapshot());
+		for (int index = NUMBEROFSTUDENTS / 2; index < NUMBEROFSTUDENTS; index++)
+		{
+			Student offered = studentList.get(index);
+			Student removed = studentList.get(rndGen.nextInt(index));
+			processor.doIt(new SnapshotCommand<Student>(queue, () -> 
+			{
+				queue.offer(offered);
+				queue.remove(removed);
+				queue.poll();
+			}));
+			versions.add(queue.snapshot());
+		}
+		
+		for (int version = versions.size() - 2; version >= 0; version--)
+		{
+			assertTrue("Undo: ", processor.undoIt());
+			assertSame("Undo restores the exact prior version: ", versions.get(version), queue.snapshot());
+		}
+		assertFalse("Nothing left to undo: ", processor.undoIt());
+		assertTrue("Redo: ", processor.redoIt());
+		assertSame("Redo restores the exact later version: ", versions.get(1), queue.snapshot());
+		
+		try
+		{
+			processor.doIt(new SnapshotCommand<Student>(queue, () -> 
+			{
+				queue.clear();
+				throw new IllegalStateException();
+			}));
+			fail("The failing change was not passed on");
+		}
+		catch (IllegalStateException e)
+		{
+			
+		}
+		assertSame("A failed change leaves nothing behind: ", versions.get(1), queue.snapshot());
+	}
+	
+	private static List<Student> contentsOf(PersistentHeap<Student> heap)
+	{
+		List<Student> contents = new ArrayList<Student>();
+		for (Student student : heap)
+		{
+			contents.add(student);
+		}
+		return contents;
+	}
+	
+	private void assertPolledInPriorityOrder(SnapshotPriorityQueue<Student> queue, int expectedSize)
+	{
+		assertEquals("Queue size: ", expectedSize, queue.size());
+		Student prevStudent = queue.poll();
+		int polled = 1;
+		while (!queue.isEmpty())
+		{
+			Student currStudent = queue.poll();
+			assertTrue("Poll returns highest priority Student: ", gpaOrder.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+			polled++;
+		}
+		assertEquals("Every student was polled: ", expectedSize, polled);
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentList = null;
+	}
+}
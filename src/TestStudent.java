@@ -1,7 +1,12 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import WaitlistProj.GpaOutOfRangeException;
 import WaitlistProj.Student;
+import WaitlistProj.StudentErrorSink;
+import WaitlistProj.StudentPriorityListener;
+import WaitlistProj.StudentValidation;
 import WaitlistProj.UnitsOutOfRangeException;
 import junit.framework.TestCase;
 
@@ -71,6 +76,47 @@ public class TestStudent extends TestCase
 		}
 	}
 	
+	public void testValidatedFactory()
+	{
+		List<StudentValidation> problems = new ArrayList<StudentValidation>();
+		StudentErrorSink sink = (problem, rejectedRedId) -> problems.add(problem);
+		
+		Student testStudent = Student.create(studentName, redId, email, gpa, unitsTaken, sink);
+		assertTrue("Name", testStudent.getStudentName().equals(studentName));
+		assertTrue("GPA", testStudent.getGpa() == gpa);
+		assertTrue("Units", testStudent.getUnitsTaken() == unitsTaken);
+		assertTrue("Valid student reports nothing", problems.isEmpty());
+		
+		assertNull("Illegal GPA", Student.create(studentName, redId, email, ILLEGALGPA, unitsTaken, sink));
+		assertNull("Illegal units", Student.create(studentName, redId, email, gpa, ILLEGALUNITS, sink));
+		assertNull("GPA is reported before units, like the constructor", Student.create(studentName, redId, email, ILLEGALGPA, ILLEGALUNITS, sink));
+		assertNull("A null sink is allowed", Student.create(studentName, redId, email, ILLEGALGPA, unitsTaken, null));
+		assertEquals("Problems reported", Arrays.asList(StudentValidation.GPAOUTOFRANGE, StudentValidation.UNITSOUTOFRANGE, StudentValidation.GPAOUTOFRANGE), problems);
+		
+		assertEquals("Boundaries are valid", StudentValidation.VALID, Student.validate(Student.MAXIMUMGPA, (int) Student.MAXIMUMUNITS));
+		assertEquals("Negative GPA", StudentValidation.GPAOUTOFRANGE, Student.validate(-0.1f, unitsTaken));
+		assertEquals("Negative units", StudentValidation.UNITSOUTOFRANGE, Student.validate(gpa, -1));
+	}
+	
+	public void testPriorityListener() throws GpaOutOfRangeException, UnitsOutOfRangeException
+	{
+		Student testStudent = new Student(studentName, redId, email, gpa, unitsTaken);
+		List<Student> notified = new ArrayList<Student>();
+		StudentPriorityListener listener = notified::add;
+		testStudent.addPriorityListener(listener);
+		testStudent.addPriorityListener(listener); // Added once only
+		
+		testStudent.setGpa(3.0f);
+		testStudent.setUnitsTaken(unitsTaken + 1);
+		testStudent.setGpa(3.0f); // Unchanged, no notification
+		testStudent.setEmail("new@sdsu.edu"); // Not a priority field
+		assertEquals("Notified once per priority change", Arrays.asList(testStudent, testStudent), notified);
+		
+		testStudent.removePriorityListener(listener);
+		testStudent.setGpa(2.0f);
+		assertEquals("Removed listener is not notified", 2, notified.size());
+	}
+	
 	protected void tearDown()
 	{
 		studentArray = null;
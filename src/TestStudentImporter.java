@@ -0,0 +1,150 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - Parsing a feed with several threads must give exactly the students and rejects that parsing it with one thread gives
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import WaitlistProj.ImportReport;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.StudentImporter;
+import junit.framework.TestCase;
+
+public class TestStudentImporter extends TestCase
+{
+	private Path feed; // The feed file under test
+	private Random rndGen; 
+	
+	public TestStudentImporter(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp() throws IOException
+	{
+		feed = Files.createTempFile("registrar", ".csv");
+		rndGen = new Random();
+	}
+	
+	// Every kind of bad row is rejected with its line number while the good rows around it are imported
+	public void testValidation() throws IOException
+	{
+		Files.write(feed, String.join("\n", 
+				"name,redId,email,gpa,units",
+				"Will Ritchie,815829203,will.ritchie@yahoo.com,4.0,12",
+				"\"Ritchie, William \"\"Will\"\"\",815829204,will@sdsu.edu, 3.5 ,150\r",
+				"",
+				"Bad Gpa,1,bad@sdsu.edu,4.5,12",
+				"Not A Gpa,2,nan@sdsu.edu,abc,12",
+				"Too Many Units,3,units@sdsu.edu,3.0,151",
+				"Negative Units,4,negative@sdsu.edu,3.0,-1",
+				"Too,Few,Fields",
+				"\"Unclosed,5,unclosed@sdsu.edu,3.0,12",
+				"José,815829205,jose@sdsu.edu,.5,0").getBytes(StandardCharsets.UTF_8));
+		
+		ImportReport report = new ImportReport();
+		List<Student> students = new StudentImporter().importStudents(feed, report);
+		assertEquals("Accepted rows: ", 3, report.getAcceptedCount());
+		assertEquals("Rejected rows: ", 6, report.getRejectCount());
+		assertEquals("Students returned: ", 3, students.size());
+		
+		assertEquals("Quoted name: ", "Ritchie, William \"Will\"", students.get(1).getStudentName());
+		assertTrue("GPA with spaces: ", students.get(1).getGpa() == 3.5f);
+		assertEquals("Units before a carriage return: ", 150, students.get(1).getUnitsTaken());
+		assertEquals("UTF-8 name: ", "José", students.get(2).getStudentName());
+		assertTrue("GPA without a leading digit: ", students.get(2).getGpa() == 0.5f);
+		
+		long[] rejectedLines = { 5, 6, 7, 8, 9, 10 };
+		for (int index = 0; index < rejectedLines.length; index++)
+		{
+			assertEquals("Line number of reject " + index + ": ", rejectedLines[index], report.getRejects().get(index).getLineNumber());
+		}
+	}
+	
+	// Rows longer than the buffer are rejected and rows around them still parse across many buffer refills
+	public void testSmallBuffer() throws IOException
+	{
+		Files.write(feed, String.join("\n", 
+				"A,1,a@sdsu.edu,1.0,1",
+				"A name far too long to fit in the buffer,2,long@sdsu.edu,2.0,2",
+				"B,3,b@sdsu.edu,3.0,3",
+				"C,4,c@sdsu.edu,4.0,4").getBytes(StandardCharsets.UTF_8));
+		
+		ImportReport report = new ImportReport();
+		List<Student> students = new StudentImporter(false, 1, 32).importStudents(feed, report);
+		assertEquals("Accepted rows: ", 3, students.size());
+		assertEquals("Last row: ", "4", students.get(2).getRedId());
+		assertEquals("Overlong row rejected: ", 2, report.getRejects().get(0).getLineNumber());
+	}
+	
+	// A feed split into chunks gives the same students and rejects in the same order as one thread
+	public void testParallelMatchesSequential() throws IOException
+	{
+		writeRandomFeed(200000);
+		ImportReport sequentialReport = new ImportReport(Integer.MAX_VALUE);
+		List<Student> sequential = new StudentImporter(true, 1, 4096).importStudents(feed, sequentialReport);
+		ImportReport parallelReport = new ImportReport(Integer.MAX_VALUE);
+		List<Student> parallel = new StudentImporter(true, 4, 4096).importStudents(feed, parallelReport);
+		
+		assertTrue("Some rows were rejected: ", sequentialReport.hasRejects());
+		assertEquals("Accepted rows: ", sequentialReport.getAcceptedCount(), parallelReport.getAcceptedCount());
+		assertEquals("Rejected rows: ", sequentialReport.getRejectCount(), parallelReport.getRejectCount());
+		assertEquals("Students returned: ", sequential.size(), parallel.size());
+		for (int index = 0; index < sequential.size(); index++)
+		{
+			assertEquals("Student in file order: ", sequential.get(index).getRedId(), parallel.get(index).getRedId());
+		}
+		for (int index = 0; index < sequentialReport.getRejects().size(); index++)
+		{
+			assertEquals("Reject in file order: ", sequentialReport.getRejects().get(index).toString(), parallelReport.getRejects().get(index).toString());
+		}
+	}
+	
+	public void testImportQueue() throws IOException
+	{
+		writeRandomFeed(1000);
+		ImportReport report = new ImportReport(10);
+		Comparator<Student> gpaOrder = Comparator.naturalOrder();
+		PriorityQueue<Student> pq = new StudentImporter().importQueue(feed, gpaOrder, report);
+		
+		assertEquals("Every accepted student is queued: ", report.getAcceptedCount(), pq.size());
+		assertEquals("Only the first rejects are recorded: ", Math.min(10, report.getRejectCount()), report.getRejects().size());
+		Student prevStudent = pq.poll();
+		while (!pq.isEmpty())
+		{
+			Student currStudent = pq.poll();
+			assertTrue("Poll returns highest priority Student: ", gpaOrder.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+		}
+	}
+	
+	// Writes a header and rowCount rows, about one in a hundred of them out of range
+	private void writeRandomFeed(int rowCount) throws IOException
+	{
+		try (BufferedWriter writer = Files.newBufferedWriter(feed, StandardCharsets.UTF_8))
+		{
+			writer.write("name,redId,email,gpa,units\n");
+			for (int index = 0; index < rowCount; index++)
+			{
+				writer.write("\"Student, " + index + "\"," + index + ",student" + index + "@sdsu.edu," + rndGen.nextInt(405) / 100.0f + "," + rndGen.nextInt(152) + "\n");
+			}
+		}
+	}
+	
+	@Override
+	protected void tearDown() throws IOException
+	{
+		Files.delete(feed);
+	}
+}
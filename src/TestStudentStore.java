@@ -0,0 +1,196 @@
+/***
+ * Test Contributors:
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ *  - A student read back from StudentStore must have exactly the fields of the student that was added, whatever form its red id and email take
+ *  - StudentHandleQueue must poll handles in the same priority order as StudentWaitlist with the same weights
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import WaitlistProj.Student;
+import WaitlistProj.StudentHandleQueue;
+import WaitlistProj.StudentPriorityKey;
+import WaitlistProj.StudentStore;
+import junit.framework.TestCase;
+
+public class TestStudentStore extends TestCase
+{
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen;
+	
+	// Constants used in the priority algorithm for this test class
+	private final float UNITSWEIGHT = 0.7f;
+	private final float GPAWEIGHT = 0.3f;
+	private final int NUMBEROFSTUDENTS = 5000;
+	
+	public TestStudentStore(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	public void testRoundTrip()
+	{
+		StudentStore store = new StudentStore(16); // Small enough that the columns have to grow
+		int[] handles = new int[NUMBEROFSTUDENTS];
+		for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+		{
+			handles[index] = store.add(studentList.get(index));
+		}
+		assertEquals("Size: ", NUMBEROFSTUDENTS, store.size());
+		assertEquals("Every email shares one domain: ", 1, store.domainCount());
+		for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+		{
+			assertSameFields(studentList.get(index), store.get(handles[index]));
+			assertEquals("GPA column: ", studentList.get(index).getGpa(), store.gpa(handles[index]));
+		}
+		assertEquals("Find by red id: ", handles[42], store.findRedId("42"));
+		assertEquals("Find a missing red id: ", StudentStore.NOHANDLE, store.findRedId("042"));
+	}
+	
+	// Red ids that would not convert back to the same String and emails without a domain are kept whole
+	public void testIrregularFields() throws Exception
+	{
+		StudentStore store = new StudentStore();
+		Student[] irregular = {
+				new Student("Leading zero", "0042", "first.last@mail.sdsu.edu", 3.0f, 12),
+				new Student("Too long", "12345678901", "no domain", 2.0f, 30),
+				new Student("Letters", "RED42", "a@b@sdsu.edu", 1.0f, 0),
+				new Student(null, null, null, 0.0f, 150),
+				new Student("Zero", "0", "", 4.0f, 1) };
+		int[] handles = new int[irregular.length];
+		for (int index = 0; index < irregular.length; index++)
+		{
+			handles[index] = store.add(irregular[index]);
+		}
+		for (int index = 0; index < irregular.length; index++)
+		{
+			assertSameFields(irregular[index], store.get(handles[index]));
+		}
+		assertEquals("Find a text red id: ", handles[2], store.findRedId("RED42"));
+		assertEquals("Find a leading zero red id: ", handles[0], store.findRedId("0042"));
+		assertEquals("Find red id 0: ", handles[4], store.findRedId("0"));
+	}
+	
+	public void testReleaseAndScan()
+	{
+		StudentStore store = new StudentStore();
+		int[] handles = new int[NUMBEROFSTUDENTS];
+		for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+		{
+			handles[index] = store.add(studentList.get(index));
+		}
+		int expected = 0;
+		for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+		{
+			if (index % 2 == 0)
+			{
+				store.release(handles[index]);
+			}
+			else if (studentList.get(index).getGpa() >= 3.5f)
+			{
+				expected++;
+			}
+		}
+		assertEquals("Size after release: ", NUMBEROFSTUDENTS / 2, store.size());
+		assertFalse("Released: ", store.isLive(handles[0]));
+		try
+		{
+			store.get(handles[0]);
+			fail("Read a released handle");
+		}
+		catch (IllegalArgumentException e)
+		{
+	
+		}
+	
+		assertEquals("Count skips released handles: ", expected, store.countGpaAtLeast(3.5f));
+		int[] matches = store.gpaAtLeast(3.5f);
+		assertEquals("Matches: ", expected, matches.length);
+		for (int handle : matches)
+		{
+			assertTrue("Match has the GPA: ", store.gpa(handle) >= 3.5f);
+		}
+	
+		int reused = store.add(studentList.get(0));
+		assertEquals("Last released handle is reused: ", handles[NUMBEROFSTUDENTS - 2], reused);
+		assertSameFields(studentList.get(0), store.get(reused));
+	}
+	
+	public void testHandleQueue()
+	{
+		StudentStore store = new StudentStore();
+		StudentHandleQueue queue = new StudentHandleQueue(store, UNITSWEIGHT, GPAWEIGHT);
+		assertEquals("Poll on an empty queue: ", StudentStore.NOHANDLE, queue.poll());
+		for (Student student : studentList)
+		{
+			queue.offer(store.add(student));
+		}
+		assertEquals("Size: ", NUMBEROFSTUDENTS, queue.size());
+		int removed = store.findRedId("42");
+		assertTrue("Remove: ", queue.remove(removed));
+		assertFalse("Removed: ", queue.contains(removed));
+		assertFalse("Remove a missing handle: ", queue.remove(removed));
+	
+		StudentPriorityKey weighted = StudentPriorityKey.weighted(UNITSWEIGHT, GPAWEIGHT);
+		float prevKey = Float.MAX_VALUE;
+		int polled = 0;
+		while (!queue.isEmpty())
+		{
+			int head = queue.peek();
+			assertEquals("Peek returns the head: ", head, queue.poll());
+			float key = weighted.priorityOf(store.get(head));
+			assertTrue("Poll returns highest priority handle: ", key <= prevKey);
+			prevKey = key;
+			polled++;
+		}
+		assertEquals("Polled: ", NUMBEROFSTUDENTS - 1, polled);
+		assertEquals("Students stay in the store: ", NUMBEROFSTUDENTS, store.size());
+	
+		store.release(removed);
+		try
+		{
+			queue.offer(removed);
+			fail("Offered a released handle");
+		}
+		catch (IllegalArgumentException e)
+		{
+	
+		}
+	}
+	
+	private void assertSameFields(Student added, Student student)
+	{
+		assertEquals("Name: ", added.getStudentName(), student.getStudentName());
+		assertEquals("Red id: ", added.getRedId(), student.getRedId());
+		assertEquals("Email: ", added.getEmail(), student.getEmail());
+		assertEquals("GPA: ", added.getGpa(), student.getGpa());
+		assertEquals("Units: ", added.getUnitsTaken(), student.getUnitsTaken());
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentList = null;
+	}
+}
@@ -0,0 +1,247 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - Decoding a table must give back students with every field equal to the students that were encoded, in the same order
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.StudentCodec;
+import WaitlistProj.StudentTableCodec;
+import junit.framework.TestCase;
+
+public class TestStudentTableCodec extends TestCase
+{
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen; 
+	
+	private final int NUMBEROFSTUDENTS = 500;
+	
+	public TestStudentTableCodec(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	// Few distinct strings, nulls and non ASCII characters all survive a round trip
+	public void testSharedAndNullStrings() throws Exception
+	{
+		List<Student> students = new ArrayList<Student>();
+		students.add(new Student("José Núñez", "815829203", null, 4.0f, 150));
+		students.add(new Student("\uD83C\uDF93", "\u4E2D\u6587", null, 3.0f, 1));
+		students.add(new Student(null, null, null, 0.0f, 0));
+		students.add(new Student("José Núñez", "815829203", "jose@sdsu.edu", 2.5f, 12));
+		
+		ByteBuffer encoded = StudentTableCodec.encode(students);
+		assertEquals("Header, five distinct strings, one byte indexes, one float and one byte per student, and the checksum: ", 
+				StudentTableCodec.HEADERSIZE + 5 + "José Núñez".getBytes("UTF-8").length + 9 + 13 + 4 + 6 + 4 * (3 + 4 + 1) + 4, encoded.remaining());
+		assertStudentsEqual(students, StudentTableCodec.decode(encoded));
+		assertFalse("Decode consumed the whole table: ", encoded.hasRemaining());
+		
+		students.clear();
+		students.add(new Student("Unpaired \uD800", null, null, 1.0f, 1));
+		assertEquals("An unpaired surrogate is encoded the way String.getBytes encodes it: ", "Unpaired ?", 
+				StudentTableCodec.decode(StudentTableCodec.encode(students)).get(0).getStudentName());
+	}
+	
+	// Enough distinct strings to need indexes wider than a byte
+	public void testWideIndexes() throws IOException
+	{
+		ByteBuffer encoded = StudentTableCodec.encode(studentList);
+		assertStudentsEqual(studentList, StudentTableCodec.decode(encoded));
+		
+		ByteBuffer direct = ByteBuffer.allocateDirect(encoded.flip().remaining());
+		direct.put(encoded).flip();
+		assertStudentsEqual(studentList, StudentTableCodec.decode(direct));
+	}
+	
+	// A queue is encoded in heap order, so decoding it gives back the same layout
+	public void testPriorityQueueRoundTrip() throws IOException
+	{
+		Comparator<Student> gpaOrder = Comparator.naturalOrder();
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(studentList, gpaOrder);
+		PriorityQueue<Student> decoded = StudentTableCodec.decode(StudentTableCodec.encode(pq), gpaOrder);
+		
+		List<Student> expected = new ArrayList<Student>();
+		for (Object student : pq.toArray())
+		{
+			expected.add((Student) student);
+		}
+		List<Student> actual = new ArrayList<Student>();
+		for (Object student : decoded.toArray())
+		{
+			actual.add((Student) student);
+		}
+		assertStudentsEqual(expected, actual);
+		while (!pq.isEmpty())
+		{
+			assertEquals("Decoded queue polls in the same order: ", pq.poll().getRedId(), decoded.poll().getRedId());
+		}
+	}
+	
+	// Tables written back to back to a channel are read back one at a time
+	public void testChannelRoundTrip() throws IOException
+	{
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		WritableByteChannel out = Channels.newChannel(stream);
+		StudentTableCodec.writeTo(studentList.subList(0, 10), out);
+		StudentTableCodec.writeTo(studentList, out);
+		
+		ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(stream.toByteArray()));
+		assertStudentsEqual(studentList.subList(0, 10), StudentTableCodec.readFrom(in));
+		assertStudentsEqual(studentList, StudentTableCodec.readFrom(in));
+		try
+		{
+			StudentTableCodec.readFrom(in);
+			fail("Should raise IOException at the end of the channel");
+		}
+		catch (IOException success)
+		{
+			
+		}
+	}
+	
+	// Changing any byte of a table must be detected rather than decoded into different students
+	public void testCorruptTable()
+	{
+		ByteBuffer encoded = StudentTableCodec.encode(studentList);
+		for (int trial = 0; trial < 100; trial++)
+		{
+			ByteBuffer corrupt = ByteBuffer.allocate(encoded.remaining());
+			corrupt.put(encoded.duplicate()).flip();
+			int position = rndGen.nextInt(corrupt.limit());
+			corrupt.put(position, (byte) ~corrupt.get(position));
+			try
+			{
+				StudentTableCodec.decode(corrupt);
+				fail("Should raise IOException for a corrupt byte at " + position);
+			}
+			catch (IOException success)
+			{
+				
+			}
+		}
+	}
+	
+	// Units taken above 255 would wrap in the byte column, so an out of range student is refused before anything is written
+	public void testOutOfRangeStudentIsRefused() throws IOException
+	{
+		Student student = studentList.get(NUMBEROFSTUDENTS / 2);
+		student.setUnitsTaken(300);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try
+		{
+			StudentTableCodec.writeTo(studentList, Channels.newChannel(bytes));
+			fail("Should raise IllegalArgumentException for 300 units taken");
+		}
+		catch (IllegalArgumentException success)
+		{
+			assertTrue("The message names the student: ", success.getMessage().contains(student.getRedId()));
+		}
+		assertEquals("Nothing was written: ", 0, bytes.size());
+	}
+	
+	// The single student codec used by DurableWaitlist must round trip the same way
+	public void testStudentCodec() throws IOException
+	{
+		StudentCodec codec = new StudentCodec();
+		ByteBuffer buffer = ByteBuffer.allocate(NUMBEROFSTUDENTS * 64);
+		for (Student student : studentList)
+		{
+			codec.encode(student, buffer);
+		}
+		buffer.flip();
+		List<Student> decoded = new ArrayList<Student>();
+		while (buffer.hasRemaining())
+		{
+			decoded.add(codec.decode(buffer));
+		}
+		assertStudentsEqual(studentList, decoded);
+	}
+	
+	// A student whose GPA was set out of range is refused when encoded, and a record holding one is refused when decoded
+	public void testStudentCodecValidates() throws IOException
+	{
+		StudentCodec codec = new StudentCodec();
+		Student student = studentList.get(0);
+		student.setGpa(4.5f);
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		try
+		{
+			codec.encode(student, buffer);
+			fail("Should raise IllegalArgumentException for a GPA of 4.5");
+		}
+		catch (IllegalArgumentException success)
+		{
+			assertTrue("The message names the student: ", success.getMessage().contains(student.getRedId()));
+		}
+		assertEquals("Nothing was written: ", 0, buffer.position());
+		
+		student.setGpa(4.0f);
+		codec.encode(student, buffer);
+		buffer.flip();
+		int gpaPosition = buffer.limit() - Integer.BYTES - Float.BYTES;
+		buffer.putFloat(gpaPosition, 4.5f);
+		try
+		{
+			codec.decode(buffer);
+			fail("Should raise IOException for an encoded GPA of 4.5");
+		}
+		catch (IOException success)
+		{
+			
+		}
+	}
+	
+	private static void assertStudentsEqual(List<Student> expected, List<Student> actual)
+	{
+		assertEquals("Same number of students: ", expected.size(), actual.size());
+		for (int index = 0; index < expected.size(); index++)
+		{
+			Student expectedStudent = expected.get(index);
+			Student actualStudent = actual.get(index);
+			assertEquals("Name: ", expectedStudent.getStudentName(), actualStudent.getStudentName());
+			assertEquals("Red ID: ", expectedStudent.getRedId(), actualStudent.getRedId());
+			assertEquals("Email: ", expectedStudent.getEmail(), actualStudent.getEmail());
+			assertTrue("GPA: ", expectedStudent.getGpa() == actualStudent.getGpa());
+			assertEquals("Units: ", expectedStudent.getUnitsTaken(), actualStudent.getUnitsTaken());
+		}
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentList = null;
+		assertNull(studentList);
+	}
+}
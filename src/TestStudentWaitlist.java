@@ -0,0 +1,140 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - StudentWaitlist must poll students in the same priority order as a PriorityQueue<Student> using the equivalent comparator
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.StudentPriorityKey;
+import WaitlistProj.StudentWaitlist;
+import junit.framework.TestCase;
+
+public class TestStudentWaitlist extends TestCase
+{
+	private Collection<Student> studentCol; // Random students shared by each test
+	private Random rndGen; 
+	
+	// Constants used in the priority algorithm for this test class
+	private final float UNITSWEIGHT = 0.7f;
+	private final float GPAWEIGHT = 0.3f;
+	private final int NUMBEROFSTUDENTS = 500;
+	
+	public TestStudentWaitlist(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentCol = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentCol.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	public void testDefaultConstructor()
+	{
+		StudentWaitlist waitlist = new StudentWaitlist();
+		assertTrue("Default Constructor is empty: ", waitlist.isEmpty());
+		assertNull("Peek on an empty waitlist: ", waitlist.peek());
+		assertNull("Poll on an empty waitlist: ", waitlist.poll());
+	}
+	
+	// Offering one student at a time and building from a collection must both poll in priority order
+	public void testOfferPollMatchesPriorityQueue()
+	{
+		StudentPriorityKey weightedKey = StudentPriorityKey.weighted(UNITSWEIGHT, GPAWEIGHT);
+		StudentWaitlist offeredWaitlist = new StudentWaitlist(weightedKey);
+		for (Student student : studentCol)
+		{
+			assertTrue("Successful offer: ", offeredWaitlist.offer(student));
+		}
+		StudentWaitlist collectionWaitlist = new StudentWaitlist(studentCol, weightedKey);
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(studentCol, (x, y) -> Float.compare(weightedKey.priorityOf(x), weightedKey.priorityOf(y)));
+		
+		assertTrue("Sizes match: ", offeredWaitlist.size() == NUMBEROFSTUDENTS && collectionWaitlist.size() == NUMBEROFSTUDENTS);
+		while (!pq.isEmpty())
+		{
+			float expectedKey = weightedKey.priorityOf(pq.poll());
+			assertTrue("Offered waitlist polls in priority order: ", weightedKey.priorityOf(offeredWaitlist.poll()) == expectedKey);
+			assertTrue("Collection waitlist polls in priority order: ", collectionWaitlist.peekPriority() == expectedKey);
+			assertTrue("Collection waitlist polls in priority order: ", weightedKey.priorityOf(collectionWaitlist.poll()) == expectedKey);
+		}
+		assertTrue("Waitlists are empty: ", offeredWaitlist.isEmpty() && collectionWaitlist.isEmpty());
+	}
+	
+	public void testRemoveContains()
+	{
+		StudentWaitlist waitlist = new StudentWaitlist(studentCol);
+		int index = 0;
+		for (Student student : studentCol)
+		{
+			if (index++ % 3 == 0)
+			{
+				assertTrue("Waitlist removed the student: ", waitlist.remove(student));
+				assertFalse("Waitlist no longer contains the student: ", waitlist.contains(student));
+			}
+		}
+		
+		Comparator<Student> gpaOrder = Comparator.naturalOrder();
+		Student prevStudent = waitlist.poll();
+		while (!waitlist.isEmpty())
+		{
+			Student currStudent = waitlist.poll();
+			assertTrue("Poll returns highest priority Student after removals: ", gpaOrder.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+		}
+	}
+	
+	// Changing the GPA of a student in a listening waitlist recomputes its key and moves it
+	public void testSetGpaReorders()
+	{
+		StudentWaitlist waitlist = new StudentWaitlist(studentCol, StudentPriorityKey.weighted(UNITSWEIGHT, GPAWEIGHT));
+		waitlist.listenToPriorityChanges(true);
+		Student raised = null;
+		for (Student student : studentCol)
+		{
+			student.setUnitsTaken(0);
+			raised = student;
+		}
+		raised.setUnitsTaken(150);
+		raised.setGpa(4.0f);
+		assertTrue("Student raised to the top is the head: ", waitlist.peek() == raised);
+		
+		Comparator<Student> gpaOrder = Comparator.naturalOrder(); // Every student has 0 units except the head
+		waitlist.poll();
+		raised.setGpa(0.0f);
+		assertFalse("Polled student is not offered again: ", waitlist.contains(raised));
+		Student prevStudent = waitlist.poll();
+		while (!waitlist.isEmpty())
+		{
+			Student currStudent = waitlist.poll();
+			assertTrue("Poll returns highest priority Student after changes: ", gpaOrder.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+		}
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentCol = null;
+		assertNull(studentCol);
+	}
+}
@@ -0,0 +1,224 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - Every student on a section's waitlist must be indexed to that section by red id, and every index entry must be on its waitlist
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import WaitlistProj.Student;
+import WaitlistProj.WaitlistManager;
+import junit.framework.TestCase;
+
+public class TestWaitlistManager extends TestCase
+{
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen; 
+	private final Comparator<Student> gpaOrder = Comparator.naturalOrder();
+	
+	private final int NUMBEROFSTUDENTS = 500;
+	private final int NUMBEROFSECTIONS = 100;
+	private final int SECTIONSPERSTUDENT = 5;
+	
+	public TestWaitlistManager(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	public void testAddAndRemove()
+	{
+		WaitlistManager manager = new WaitlistManager(gpaOrder);
+		Student student = studentList.get(0);
+		assertTrue("Added to the first section: ", manager.add("CS108-01", student));
+		assertTrue("Added to the second section: ", manager.add("CS310-02", student));
+		assertFalse("Same red id twice on one waitlist: ", manager.add("CS108-01", studentList.get(0)));
+		assertEquals("Waiting on both sections: ", 2, manager.sectionsOf(student.getRedId()).size());
+		
+		assertTrue("Removed from one section: ", manager.remove("CS108-01", student.getRedId()));
+		assertFalse("Removed only once: ", manager.remove("CS108-01", student.getRedId()));
+		assertEquals("Empty section: ", 0, manager.size("CS108-01"));
+		assertTrue("Still waiting on the other section: ", manager.sectionsOf(student.getRedId()).contains("CS310-02"));
+		assertFalse("Unknown section: ", manager.remove("CS999", student.getRedId()));
+	}
+	
+	// Enrolling removes the student from exactly the waitlists they were on
+	public void testRemoveFromAllWaitlists()
+	{
+		WaitlistManager manager = new WaitlistManager(gpaOrder);
+		fillRandomSections(manager);
+		
+		for (int index = 0; index < NUMBEROFSTUDENTS; index += 2)
+		{
+			String redId = studentList.get(index).getRedId();
+			int waitingOn = manager.sectionsOf(redId).size();
+			assertEquals("Removed from every waitlist: ", waitingOn, manager.removeFromAllWaitlists(redId));
+			assertTrue("No longer indexed: ", manager.sectionsOf(redId).isEmpty());
+			assertEquals("Nothing left to remove: ", 0, manager.removeFromAllWaitlists(redId));
+		}
+		assertIndexMatchesWaitlists(manager);
+	}
+	
+	// Each section admits its highest priority students, the admitted students stay on their other waitlists
+	public void testAdmitAll()
+	{
+		WaitlistManager manager = new WaitlistManager(gpaOrder, new ForkJoinPool(4));
+		fillRandomSections(manager);
+		
+		Map<String, Integer> seatsBySection = new HashMap<String, Integer>();
+		Map<String, List<Student>> expectedBySection = new HashMap<String, List<Student>>();
+		for (int section = 0; section < NUMBEROFSECTIONS; section++)
+		{
+			int seats = rndGen.nextInt(10);
+			seatsBySection.put(sectionId(section), seats);
+			expectedBySection.put(sectionId(section), manager.peekTopK(sectionId(section), seats));
+		}
+		Map<String, List<Student>> admittedBySection = manager.admitAll(seatsBySection);
+		
+		assertEquals("Every section admitted: ", NUMBEROFSECTIONS, admittedBySection.size());
+		for (Map.Entry<String, List<Student>> admitted : admittedBySection.entrySet())
+		{
+			List<Student> expected = expectedBySection.get(admitted.getKey());
+			assertEquals("Seats filled: ", expected.size(), admitted.getValue().size());
+			for (int index = 0; index < expected.size(); index++)
+			{
+				assertTrue("Admitted in priority order: ", expected.get(index).getGpa() == admitted.getValue().get(index).getGpa());
+				assertFalse("No longer waiting on the section: ", manager.sectionsOf(admitted.getValue().get(index).getRedId()).contains(admitted.getKey()));
+			}
+		}
+		assertIndexMatchesWaitlists(manager);
+	}
+	
+	// Changing a student's GPA re-sifts them on every waitlist they are on, and only while they are on it
+	public void testPriorityChangeResifts()
+	{
+		WaitlistManager manager = new WaitlistManager(gpaOrder);
+		fillRandomSections(manager);
+		
+		for (int change = 0; change < NUMBEROFSTUDENTS; change++)
+		{
+			studentList.get(rndGen.nextInt(NUMBEROFSTUDENTS)).setGpa(rndGen.nextInt(401) / 100.0f);
+		}
+		Student raised = studentList.get(0);
+		raised.setGpa(Student.MAXIMUMGPA + 1.0f); // Above every valid GPA so that it alone heads its waitlists
+		for (String sectionId : manager.sectionsOf(raised.getRedId()))
+		{
+			assertTrue("Raised student heads each waitlist: ", manager.peek(sectionId) == raised);
+		}
+		for (int section = 0; section < NUMBEROFSECTIONS; section++)
+		{
+			List<Student> waitlist = manager.peekTopK(sectionId(section), Integer.MAX_VALUE);
+			for (int index = 1; index < waitlist.size(); index++)
+			{
+				assertTrue("Waitlist in priority order after changes: ", gpaOrder.compare(waitlist.get(index - 1), waitlist.get(index)) >= 0);
+			}
+		}
+		
+		manager.removeFromAllWaitlists(raised.getRedId());
+		raised.setGpa(0.0f); // No longer on any waitlist, nothing to re-sift
+		assertIndexMatchesWaitlists(manager);
+	}
+	
+	// Threads adding, removing and admitting at once must leave the index and the waitlists agreeing
+	public void testConcurrentOperations() throws InterruptedException
+	{
+		WaitlistManager manager = new WaitlistManager(gpaOrder);
+		Thread[] threads = new Thread[4];
+		for (int thread = 0; thread < threads.length; thread++)
+		{
+			long seed = rndGen.nextLong();
+			threads[thread] = new Thread(() -> 
+			{
+				Random threadRnd = new Random(seed);
+				for (int operation = 0; operation < 5000; operation++)
+				{
+					Student student = studentList.get(threadRnd.nextInt(NUMBEROFSTUDENTS));
+					switch (threadRnd.nextInt(4))
+					{
+						case 0:
+						case 1:
+							manager.add(sectionId(threadRnd.nextInt(NUMBEROFSECTIONS)), student);
+							break;
+						case 2:
+							manager.removeFromAllWaitlists(student.getRedId());
+							break;
+						default:
+							manager.admit(sectionId(threadRnd.nextInt(NUMBEROFSECTIONS)), 1);
+					}
+				}
+			});
+			threads[thread].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		assertIndexMatchesWaitlists(manager);
+	}
+	
+	private void fillRandomSections(WaitlistManager manager)
+	{
+		for (Student student : studentList)
+		{
+			for (int section = 0; section < SECTIONSPERSTUDENT; section++)
+			{
+				manager.add(sectionId(rndGen.nextInt(NUMBEROFSECTIONS)), student);
+			}
+		}
+	}
+	
+	private void assertIndexMatchesWaitlists(WaitlistManager manager)
+	{
+		int indexedCount = 0;
+		for (Student student : studentList)
+		{
+			indexedCount += manager.sectionsOf(student.getRedId()).size();
+		}
+		int waitingCount = 0;
+		for (int section = 0; section < NUMBEROFSECTIONS; section++)
+		{
+			for (Student student : manager.peekTopK(sectionId(section), Integer.MAX_VALUE))
+			{
+				assertTrue("Waiting student is indexed to the section: ", manager.sectionsOf(student.getRedId()).contains(sectionId(section)));
+				waitingCount++;
+			}
+		}
+		assertEquals("Index and waitlists hold the same number of entries: ", indexedCount, waitingCount);
+	}
+	
+	private static String sectionId(int section)
+	{
+		return "CS" + section;
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentList = null;
+		assertNull(studentList);
+	}
+}
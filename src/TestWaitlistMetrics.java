@@ -0,0 +1,243 @@
+/***
+ * Test Contributors:  
+ * @author William Ritchie
+ * ASSUMPTIONS: 
+ *  - Counts are checked exactly, latencies only for being recorded at all, their values depend on the machine
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import WaitlistProj.CommandProcessor;
+import WaitlistProj.Heap;
+import WaitlistProj.LatencyHistogram;
+import WaitlistProj.OfferCommand;
+import WaitlistProj.PriorityQueue;
+import WaitlistProj.Student;
+import WaitlistProj.WaitlistMetrics;
+import junit.framework.TestCase;
+
+public class TestWaitlistMetrics extends TestCase
+{
+	private List<Student> studentList; // Random students shared by each test
+	private Random rndGen; 
+	private final Comparator<Student> gpaOrder = Comparator.naturalOrder();
+	
+	private final int NUMBEROFSTUDENTS = 200;
+	
+	public TestWaitlistMetrics(String name)
+	{
+		super(name);
+	}
+	
+	@Override
+	protected void setUp()
+	{
+		rndGen = new Random();
+		studentList = new ArrayList<Student>();
+		try
+		{
+			for (int index = 0; index < NUMBEROFSTUDENTS; index++)
+			{
+				studentList.add(new Student("Student" + index, Integer.toString(index), index + "@sdsu.edu", rndGen.nextInt(401) / 100.0f, rndGen.nextInt(151)));
+			}
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+	
+	public void testPriorityQueueCounts()
+	{
+		WaitlistMetrics metrics = new WaitlistMetrics(true);
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(gpaOrder);
+		pq.instrument(metrics);
+		assertSame("The comparator is not replaced by its counting wrapper: ", gpaOrder, pq.comparator());
+		for (Student student : studentList)
+		{
+			pq.offer(student);
+		}
+		for (int index = 0; index < 10; index++)
+		{
+			pq.poll();
+		}
+		pq.remove(studentList.get(0));
+		pq.remove(studentList.get(0)); // A miss is counted as well
+		pq.pollTopK(5);
+		Iterator<Student> priorityOrder = pq.iterator();
+		for (int index = 0; index < 3; index++)
+		{
+			priorityOrder.next();
+		}
+		
+		WaitlistMetrics.Snapshot snapshot = metrics.snapshot();
+		assertEquals("Offers: ", NUMBEROFSTUDENTS, snapshot.getOffers());
+		assertEquals("Polls, including those of pollTopK: ", 15, snapshot.getPolls());
+		assertEquals("Removes: ", 2, snapshot.getRemoves());
+		assertEquals("Iterators: ", 1, snapshot.getIterators());
+		assertEquals("Iterated elements: ", 3, snapshot.getIteratedElements());
+		assertTrue("Comparisons were counted: ", snapshot.getComparisons() >= NUMBEROFSTUDENTS - 1);
+		assertTrue("Sift levels were counted: ", snapshot.getSiftLevels() > 0);
+		assertEquals("Offer latencies: ", NUMBEROFSTUDENTS, snapshot.getOfferLatency().getCount());
+		assertEquals("Single poll latencies: ", 10, snapshot.getPollLatency().getCount());
+		assertTrue("p99 is at most the max: ", snapshot.getOfferLatency().getPercentileNanos(99) <= snapshot.getOfferLatency().getMaxNanos());
+		
+		// Nothing more is counted once the queue is no longer instrumented, and the comparisons of the iterator were never counted
+		pq.instrument(null);
+		long comparisons = metrics.getComparisons();
+		assertEquals("Iterator comparisons are not counted: ", snapshot.getComparisons(), comparisons);
+		pq.offer(studentList.get(0));
+		pq.poll();
+		assertEquals("Uninstrumented offers are not counted: ", NUMBEROFSTUDENTS, metrics.getOffers());
+		assertEquals("Uninstrumented comparisons are not counted: ", comparisons, metrics.getComparisons());
+		assertPolledInPriorityOrder(pq);
+		
+		metrics.reset();
+		assertEquals("Reset clears the counters: ", 0, metrics.snapshot().getOffers());
+		assertEquals("Reset clears the histograms: ", 0, metrics.snapshot().getOfferLatency().getCount());
+	}
+	
+	// The comparisons worked out from the path of each sift are exactly the calls the comparator saw, for a binary and a 4-ary heap
+	public void testComparisonsMatchComparatorCalls()
+	{
+		for (int arity : new int[] { 2, 4 })
+		{
+			long[] calls = new long[1];
+			Comparator<Student> countedOrder = (x, y) -> 
+			{
+				calls[0]++;
+				return gpaOrder.compare(x, y);
+			};
+			WaitlistMetrics metrics = new WaitlistMetrics();
+			Heap<Student> heap = new Heap<Student>(countedOrder, false, arity);
+			heap.instrument(metrics);
+			for (Student student : studentList)
+			{
+				heap.offer(student);
+			}
+			for (int index = 0; index < NUMBEROFSTUDENTS / 4; index++)
+			{
+				heap.poll();
+			}
+			heap.remove(studentList.get(NUMBEROFSTUDENTS - 1));
+			heap.addAll(studentList.subList(0, NUMBEROFSTUDENTS / 2));
+			while (heap.poll() != null)
+			{
+				
+			}
+			assertEquals("Comparisons of a " + arity + "-ary heap: ", calls[0], metrics.getComparisons());
+		}
+	}
+	
+	// addAll and merge count every element they add as an offer, without timing them
+	public void testBulkOffersAreCounted()
+	{
+		WaitlistMetrics metrics = new WaitlistMetrics(true);
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(gpaOrder);
+		pq.instrument(metrics);
+		pq.addAll(studentList.subList(0, NUMBEROFSTUDENTS / 2));
+		PriorityQueue<Student> otherPq = new PriorityQueue<Student>(studentList.subList(NUMBEROFSTUDENTS / 2, NUMBEROFSTUDENTS), gpaOrder);
+		pq.merge(otherPq);
+		
+		WaitlistMetrics.Snapshot snapshot = metrics.snapshot();
+		assertEquals("Offers of addAll and merge: ", NUMBEROFSTUDENTS, snapshot.getOffers());
+		assertEquals("Batches are not timed: ", 0, snapshot.getOfferLatency().getCount());
+		assertTrue("Comparisons were counted: ", snapshot.getComparisons() > 0);
+		assertPolledInPriorityOrder(pq);
+	}
+	
+	public void testCommandProcessorCounts()
+	{
+		WaitlistMetrics metrics = new WaitlistMetrics();
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(gpaOrder);
+		CommandProcessor cmdProcessor = new CommandProcessor();
+		cmdProcessor.instrument(metrics);
+		for (Student student : studentList.subList(0, 10))
+		{
+			cmdProcessor.doIt(new OfferCommand<Student>(pq, student));
+		}
+		cmdProcessor.beginBatch();
+		cmdProcessor.doIt(new OfferCommand<Student>(pq, studentList.get(10)));
+		cmdProcessor.doIt(new OfferCommand<Student>(pq, studentList.get(11)));
+		cmdProcessor.endBatch();
+		cmdProcessor.undoIt();
+		cmdProcessor.undoIt();
+		cmdProcessor.redoIt();
+		
+		assertEquals("A batch counts as one command: ", 11, metrics.getCommandsExecuted());
+		assertEquals("Undone: ", 2, metrics.getCommandsUndone());
+		assertEquals("Redone: ", 1, metrics.getCommandsRedone());
+		assertEquals("Latency is not recorded unless asked for: ", 0, metrics.snapshot().getCommandLatency().getCount());
+	}
+	
+	public void testJmx() throws Exception
+	{
+		WaitlistMetrics metrics = new WaitlistMetrics();
+		PriorityQueue<Student> pq = new PriorityQueue<Student>(gpaOrder);
+		pq.instrument(metrics);
+		pq.addAll(studentList);
+		pq.poll();
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = metrics.register("TestWaitlistMetrics");
+		try
+		{
+			assertEquals("Polls over JMX: ", 1L, server.getAttribute(name, "Polls"));
+			assertTrue("Comparisons over JMX: ", (Long) server.getAttribute(name, "Comparisons") > 0);
+			server.invoke(name, "reset", null, null);
+			assertEquals("Reset over JMX: ", 0L, metrics.getComparisons());
+		}
+		finally
+		{
+			metrics.unregister();
+		}
+		assertFalse("Unregistered: ", server.isRegistered(name));
+	}
+	
+	// Every percentile of a histogram of one latency is that latency, and percentiles never decrease
+	public void testLatencyHistogram()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		assertEquals("Single latency: ", 1000, histogram.snapshot().getPercentileNanos(50));
+		for (int index = 0; index < 1000; index++)
+		{
+			histogram.record(rndGen.nextInt(1000000));
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals("Count: ", 1001, snapshot.getCount());
+		long previous = 0;
+		for (double percentile = 0; percentile <= 100; percentile += 0.5)
+		{
+			long current = snapshot.getPercentileNanos(percentile);
+			assertTrue("Percentiles never decrease: ", current >= previous);
+			previous = current;
+		}
+		assertEquals("p100 is the max: ", snapshot.getMaxNanos(), snapshot.getPercentileNanos(100));
+	}
+	
+	private void assertPolledInPriorityOrder(PriorityQueue<Student> pq)
+	{
+		Student prevStudent = pq.poll();
+		while (!pq.isEmpty())
+		{
+			Student currStudent = pq.poll();
+			assertTrue("Poll returns highest priority Student: ", gpaOrder.compare(prevStudent, currStudent) >= 0);
+			prevStudent = currStudent;
+		}
+	}
+	
+	@Override
+	protected void tearDown()
+	{
+		studentList = null;
+	}
+}
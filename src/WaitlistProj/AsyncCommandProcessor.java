@@ -0,0 +1,180 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A target names whatever a command changes, a section id or the PriorityQueue itself, and is a map key, so its hashCode must not change
+ * 		while it has work queued; a List that the commands modify is not a valid target, name it instead
+ * 	- Commands on the same target run one at a time in the order they were submitted, so the target itself does not need to be thread safe,
+ * 		but a command must not touch a target other than its own
+ * 	- Java 17 has no virtual threads; the executor is supplied by the caller, and on Java 21 Executors.newVirtualThreadPerTaskExecutor() can be passed in
+ */
+package WaitlistProj;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * A CommandProcessor whose doIt returns as soon as the command is queued. Each target has its own ordered pipeline, chained futures
+ * that run its commands one after another on the executor, while commands on different targets run in parallel.
+ * 
+ * Each target also has its own bounded history, so undoIt and redoIt apply to one target in reverse order of its commands
+ * and are queued behind the commands already submitted for it. The pipeline of a target is dropped as soon as its last step completes, but its history
+ * is kept for undo until release is called, so release every target that is done with, e.g. a section that has closed
+ */
+public class AsyncCommandProcessor
+{
+	private final Executor executor; // Runs every command
+	private final int maxHistoryDepth; // The most commands that can be undone on each target
+	private final ConcurrentHashMap<Object, CompletableFuture<?>> pipelines; // The last queued step of each target that still has work queued
+	private final ConcurrentHashMap<Object, CommandHistory> histories; // Only touched from within the pipeline of its target, removed by release
+	
+	// Runs commands on the common fork join pool
+	public AsyncCommandProcessor()
+	{
+		this(ForkJoinPool.commonPool(), CommandProcessor.DEFAULTMAXHISTORYDEPTH);
+	}
+	
+	/**
+	 * 
+	 * @param executor - runs the commands, at most one command per target at a time
+	 * @param maxHistoryDepth - the most commands that can be undone on each target
+	 */
+	public AsyncCommandProcessor(Executor executor, int maxHistoryDepth)
+	{
+		if (maxHistoryDepth < 1)
+		{
+			throw new IllegalArgumentException("A history must hold at least one command: " + maxHistoryDepth);
+		}
+		this.executor = executor;
+		this.maxHistoryDepth = maxHistoryDepth;
+		pipelines = new ConcurrentHashMap<Object, CompletableFuture<?>>();
+		histories = new ConcurrentHashMap<Object, CommandHistory>();
+	}
+	
+	/**
+	 * Queues command behind every command already submitted for target
+	 * @return completes once the command has executed, or exceptionally with whatever it threw, a failed command is not added to the history
+	 */
+	public CompletableFuture<Void> doIt(Object target, PluggableCommand command)
+	{
+		return enqueue(target, () -> 
+		{
+			command.execute();
+			history(target).push(command); // only after execute returns, a command that threw has nothing to undo
+			return null;
+		});
+	}
+	
+	/**
+	 * Queues an undo of the most recent command on target that has not been undone
+	 * @return completes with false if there was nothing left to undo on target
+	 */
+	public CompletableFuture<Boolean> undoIt(Object target)
+	{
+		return enqueue(target, () -> 
+		{
+			CommandHistory history = histories.get(target); // Looking up a target that has no history must not create one
+			PluggableCommand command = history == null ? null : history.peekUndo();
+			if (command == null)
+			{
+				return false;
+			}
+			command.undo();
+			history.undone();
+			return true;
+		});
+	}
+	
+	/**
+	 * Queues a redo of the most recently undone command on target
+	 * @return completes with false if there was nothing to redo on target
+	 */
+	public CompletableFuture<Boolean> redoIt(Object target)
+	{
+		return enqueue(target, () -> 
+		{
+			CommandHistory history = histories.get(target); // Looking up a target that has no history must not create one
+			PluggableCommand command = history == null ? null : history.peekRedo();
+			if (command == null)
+			{
+				return false;
+			}
+			command.execute();
+			history.redone();
+			return true;
+		});
+	}
+	
+	/**
+	 * Queues the removal of the history of target behind every command already submitted for it, nothing done on target before then can be undone.
+	 * A later doIt on target starts a new history
+	 * @return completes once the history is gone
+	 */
+	public CompletableFuture<Void> release(Object target)
+	{
+		return enqueue(target, () -> 
+		{
+			histories.remove(target);
+			return null;
+		});
+	}
+	
+	// Completes once every command, undo and redo submitted before this call has finished, on every target
+	public CompletableFuture<Void> whenIdle()
+	{
+		return CompletableFuture.allOf(pipelines.values().toArray(new CompletableFuture<?>[0])).handle((ignoredValue, ignoredError) -> null);
+	}
+	
+	// The number of targets with work still queued, a snapshot that may briefly still count a target whose last step just finished
+	public int activeTargets()
+	{
+		return pipelines.size();
+	}
+	
+	// The number of targets holding a history, every target that has executed a command and not been released
+	public int historyTargets()
+	{
+		return histories.size();
+	}
+	
+	private CommandHistory history(Object target)
+	{
+		return histories.computeIfAbsent(target, key -> new CommandHistory(maxHistoryDepth, Long.MAX_VALUE));
+	}
+	
+	// Chains work after the last queued step of target, whether that step succeeded or not, so one failure does not stall the target
+	private <T> CompletableFuture<T> enqueue(Object target, Supplier<T> work)
+	{
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		CompletableFuture<?>[] step = new CompletableFuture<?>[1];
+		pipelines.compute(target, (key, last) -> 
+		{
+			CompletableFuture<?> previous = last == null ? CompletableFuture.completedFuture(null) : last;
+			step[0] = previous.handleAsync((ignoredValue, ignoredError) -> 
+			{
+				try
+				{
+					result.complete(work.get());
+				}
+				catch (Throwable t)
+				{
+					result.completeExceptionally(t);
+				}
+				return null;
+			}, executor);
+			return step[0];
+		});
+		
+		step[0].whenComplete((ignoredValue, error) -> 
+		{
+			if (error != null)
+			{
+				result.completeExceptionally(error); // The executor refused the work, it never ran
+			}
+			pipelines.remove(target, step[0]); // Only if nothing was queued behind it, so idle targets hold no memory besides their history
+		});
+		return result;
+	}
+}
@@ -0,0 +1,17 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Decoding the same type id and payload twice gives two commands that do the same thing to the same target
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Strategy used by CommandJournal to turn a journaled type id and payload back into a command on replay
+@FunctionalInterface
+public interface CommandDecoder
+{
+	// Reads the payload of a command written by JournaledCommand.writePayload, throws IOException if it is not a valid command
+	public PluggableCommand decode(byte typeId, ByteBuffer payload) throws IOException;
+}
@@ -0,0 +1,184 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The byte size of a command is whatever its estimatedBytes returns when it is pushed, it is not measured
+ * 	- The newest command is always kept, even when it alone is over the byte budget
+ */
+package WaitlistProj;
+
+/**
+ * The undo and redo history of a CommandProcessor, a ring buffer holding at most maxDepth commands and about maxBytes of them.
+ * Once either limit is reached the oldest command is evicted and can no longer be undone.
+ * 
+ * Entries [0, cursor) are executed commands, the newest at cursor - 1 is the next to undo, and entries [cursor, count) are undone commands,
+ * the one at cursor is the next to redo. Pushing a new command discards every undone command
+ */
+final class CommandHistory
+{
+	private static final int INITIALCAPACITY = 16; // The ring grows towards maxDepth as needed rather than being allocated at full depth
+	
+	private PluggableCommand[] ring;
+	private long[] sizes; // sizes[i] is the estimated bytes of ring[i] when it was pushed
+	private int oldest; // Ring index of entry 0
+	private int count; // Entries held
+	private int cursor; // Entries that are executed rather than undone
+	private long bytes; // Estimated bytes of every entry held
+	private long evictedCount; // Commands evicted over the lifetime of this history
+	private final int maxDepth;
+	private final long maxBytes;
+	
+	CommandHistory(int maxDepth, long maxBytes)
+	{
+		if (maxDepth < 1)
+		{
+			throw new IllegalArgumentException("A history must hold at least one command: " + maxDepth);
+		}
+		if (maxBytes < 1)
+		{
+			throw new IllegalArgumentException("A history must have a positive byte budget: " + maxBytes);
+		}
+		this.maxDepth = maxDepth;
+		this.maxBytes = maxBytes;
+		ring = new PluggableCommand[Math.min(maxDepth, INITIALCAPACITY)];
+		sizes = new long[ring.length];
+		oldest = 0;
+		count = 0;
+		cursor = 0;
+		bytes = 0;
+		evictedCount = 0;
+	}
+	
+	// Adds a command that has just executed, discarding the undone commands and evicting the oldest as the limits require
+	void push(PluggableCommand command)
+	{
+		while (count > cursor)
+		{
+			count--;
+			clear(slot(count));
+		}
+		if (count == ring.length)
+		{
+			if (ring.length < maxDepth)
+			{
+				grow();
+			}
+			else
+			{
+				evictOldest();
+			}
+		}
+		int slot = slot(count);
+		ring[slot] = command;
+		sizes[slot] = command.estimatedBytes();
+		bytes += sizes[slot];
+		count++;
+		cursor++;
+		while (bytes > maxBytes && count > 1)
+		{
+			evictOldest();
+		}
+	}
+	
+	// The next command to undo, or null if there is none
+	PluggableCommand peekUndo()
+	{
+		return cursor == 0 ? null : ring[slot(cursor - 1)];
+	}
+	
+	// Marks the command returned by peekUndo as undone
+	void undone()
+	{
+		cursor--;
+	}
+	
+	// The next command to redo, or null if there is none
+	PluggableCommand peekRedo()
+	{
+		return cursor == count ? null : ring[slot(cursor)];
+	}
+	
+	// Marks the command returned by peekRedo as executed again
+	void redone()
+	{
+		cursor++;
+	}
+	
+	int undoSize()
+	{
+		return cursor;
+	}
+	
+	int redoSize()
+	{
+		return count - cursor;
+	}
+	
+	long bytes()
+	{
+		return bytes;
+	}
+	
+	long evictedCount()
+	{
+		return evictedCount;
+	}
+	
+	int maxDepth()
+	{
+		return maxDepth;
+	}
+	
+	long maxBytes()
+	{
+		return maxBytes;
+	}
+	
+	// Drops every command, executed and undone, used when a checkpoint leaves nothing before it to undo. Not counted as evictions
+	void discardAll()
+	{
+		for (int index = 0; index < count; index++)
+		{
+			clear(slot(index));
+		}
+		oldest = 0;
+		count = 0;
+		cursor = 0;
+	}
+	
+	private void evictOldest()
+	{
+		clear(oldest);
+		oldest = (oldest + 1) % ring.length;
+		count--;
+		cursor--;
+		evictedCount++;
+	}
+	
+	private void clear(int slot)
+	{
+		bytes -= sizes[slot];
+		ring[slot] = null; // Lets whatever the command captured be garbage collected
+		sizes[slot] = 0;
+	}
+	
+	// Doubles the ring up to maxDepth, moving the entries so that entry 0 is at ring index 0
+	private void grow()
+	{
+		int capacity = (int) Math.min((long) ring.length * 2, maxDepth);
+		PluggableCommand[] grownRing = new PluggableCommand[capacity];
+		long[] grownSizes = new long[capacity];
+		for (int index = 0; index < count; index++)
+		{
+			grownRing[index] = ring[slot(index)];
+			grownSizes[index] = sizes[slot(index)];
+		}
+		ring = grownRing;
+		sizes = grownSizes;
+		oldest = 0;
+	}
+	
+	private int slot(int index)
+	{
+		return (oldest + index) % ring.length;
+	}
+}
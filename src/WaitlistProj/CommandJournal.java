@@ -0,0 +1,419 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Only one CommandProcessor journals to a file at a time
+ * 	- The targets are empty when the journal is replayed, or in the state they were in when the journal was first written to if it has no checkpoint yet
+ * 	- The log is limited to 2GiB like any WaitlistLog, a CommandProcessor must checkpoint before it fills up or every command after that fails
+ * 	- A journal is always replayed with the history limits it was written with, replaying evictions with other limits would rebuild another history
+ * 	- Only commands are journaled, not a change to the GPA or units taken of a waiting Student. Replay offers every student as they were when offered,
+ * 		so after such a change the journal must be checkpointed, or a replayed SectionPollCommand may poll other students than it did
+ */
+package WaitlistProj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A journal of the commands a CommandProcessor executes, undoes and redoes, kept in a WaitlistLog.
+ * 
+ * It is not write-ahead: every JournaledCommand is appended as one record of its type id and payload once it has executed, and the CommandProcessor
+ * undoes a command that could not be appended. An undo or redo is appended as a marker record,
+ * and a CompositeCommand as its commands between a begin and an end marker so that replay rebuilds it as one batch with a single undo.
+ * Records are synced in groups of groupCommitSize: one fsync makes a whole group durable, at the cost of losing up to a group on a crash
+ * 
+ * Like DurableWaitlist, a checkpoint writes a snapshot file next to the journal and starts a new generation of the log, so replay runs the commands
+ * of the snapshot and then only the records since the checkpoint. Every generation starts with a header record holding the history limits of the
+ * CommandProcessor that wrote it
+ */
+public class CommandJournal implements Closeable
+{
+	public static final int DEFAULTGROUPCOMMITSIZE = 64;
+	
+	public static final String SNAPSHOTSUFFIX = ".snapshot"; // Appended to the name of the journal file to name its snapshot file
+	
+	private static final int SNAPSHOTMAGIC = 0x574A534E; // "WJSN"
+	private static final int SNAPSHOTVERSION = 1;
+	private static final int FIRSTGENERATION = 1; // The generation of the log until the first checkpoint
+	
+	// Record types of the markers, a command is recorded under its own type id which is never negative
+	static final byte UNDO = -1;
+	static final byte REDO = -2;
+	static final byte BEGINBATCH = -3;
+	static final byte ENDBATCH = -4;
+	static final byte HEADER = -5; // int maxHistoryDepth, long maxHistoryBytes; the first record of every generation
+	
+	private final WaitlistLog log;
+	private final Path snapshotFile;
+	private final CommandDecoder decoder;
+	private ByteBuffer scratch; // Reused to encode every command
+	private int replayedRecords; // Records replayed when the journal was attached to a CommandProcessor
+	private long appendedRecords; // Records appended since this journal was opened
+	
+	public CommandJournal(Path journalFile, CommandDecoder decoder) throws IOException
+	{
+		this(journalFile, DEFAULTGROUPCOMMITSIZE, decoder);
+	}
+	
+	/**
+	 * 
+	 * @param journalFile - the file holding the journal, created if it does not exist
+	 * @param groupCommitSize - the number of records appended between each fsync, 1 makes every command durable as soon as doIt returns
+	 * 		and 0 only syncs when commit is called
+	 * @param decoder - turns journaled commands back into commands on their targets when the journal is replayed
+	 */
+	public CommandJournal(Path journalFile, int groupCommitSize, CommandDecoder decoder) throws IOException
+	{
+		if (decoder == null)
+		{
+			throw new NullPointerException("A CommandJournal needs a decoder to replay its commands");
+		}
+		log = new WaitlistLog(journalFile, groupCommitSize);
+		snapshotFile = journalFile.resolveSibling(journalFile.getFileName() + SNAPSHOTSUFFIX);
+		this.decoder = decoder;
+		scratch = ByteBuffer.allocate(256);
+		replayedRecords = 0;
+		appendedRecords = 0;
+	}
+	
+	// Forces every record appended so far to disk, ending the current group early
+	public void commit()
+	{
+		log.sync();
+	}
+	
+	// The number of records replayed from the log when this journal was attached to a CommandProcessor, the header and the snapshot are not counted
+	public int replayedRecords()
+	{
+		return replayedRecords;
+	}
+	
+	// Command and marker records only, headers are not counted
+	public long appendedRecords()
+	{
+		return appendedRecords;
+	}
+	
+	// The number of bytes of records in the current generation of the journal, checkpoint once this nears 2GiB
+	public int length()
+	{
+		return log.length();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		log.close();
+	}
+	
+	/**
+	 * Executes the commands of the snapshot, then re-executes every journaled record of its generation through processor, which must not be journaling yet,
+	 * and positions the journal to append after them. A batch is only executed once its end marker is read, so a batch that was torn by a crash is dropped
+	 * as a whole and truncated from the journal
+	 * @throws IOException - if the journal was written by a CommandProcessor with other history limits than processor
+	 */
+	int replay(CommandProcessor processor) throws IOException
+	{
+		int generation = replaySnapshot();
+		Deque<List<PluggableCommand>> openBatches = new ArrayDeque<List<PluggableCommand>>(); // Innermost first
+		int[] offsets = new int[2]; // Where the next record starts, and where the outermost open batch started
+		replayedRecords = log.replay(generation, (type, payload) -> 
+		{
+			if (offsets[0] == 0)
+			{
+				checkHeader(type, payload, processor);
+				offsets[0] += WaitlistLog.recordLength(payload.capacity());
+				return;
+			}
+			if (type == BEGINBATCH && openBatches.isEmpty())
+			{
+				offsets[1] = offsets[0];
+			}
+			offsets[0] += WaitlistLog.recordLength(payload.remaining());
+			PluggableCommand command;
+			switch (type)
+			{
+				case UNDO:
+					processor.undoIt();
+					return;
+				case REDO:
+					processor.redoIt();
+					return;
+				case BEGINBATCH:
+					openBatches.push(new ArrayList<PluggableCommand>());
+					return;
+				case ENDBATCH:
+					if (openBatches.isEmpty())
+					{
+						throw new IOException("Journal batch ended without beginning");
+					}
+					command = new CompositeCommand(openBatches.pop());
+					break;
+				default:
+					if (type < 0)
+					{
+						throw new IOException("Not a valid journal record type: " + type);
+					}
+					command = decoder.decode(type, payload);
+			}
+			if (openBatches.isEmpty())
+			{
+				processor.doIt(command);
+			}
+			else
+			{
+				openBatches.peek().add(command);
+			}
+		});
+		if (replayedRecords == 0)
+		{
+			appendHeader(processor.maxHistoryDepth(), processor.maxHistoryBytes()); // A new journal, or one whose header was torn
+		}
+		else
+		{
+			replayedRecords--; // The header
+		}
+		if (!openBatches.isEmpty())
+		{
+			log.truncate(offsets[1]);
+		}
+		return replayedRecords;
+	}
+	
+	private static void checkHeader(byte type, ByteBuffer payload, CommandProcessor processor) throws IOException
+	{
+		if (type != HEADER || payload.remaining() != Integer.BYTES + Long.BYTES)
+		{
+			throw new IOException("Command journal does not start with a header");
+		}
+		int maxHistoryDepth = payload.getInt();
+		long maxHistoryBytes = payload.getLong();
+		if (maxHistoryDepth != processor.maxHistoryDepth() || maxHistoryBytes != processor.maxHistoryBytes())
+		{
+			throw new IOException("Command journal was written with a history of " + maxHistoryDepth + " commands and " + maxHistoryBytes
+					+ " bytes, it cannot be replayed into one of " + processor.maxHistoryDepth() + " commands and " + processor.maxHistoryBytes() + " bytes");
+		}
+	}
+	
+	// Headers are appended straight to the log and synced, they are not commands so appendedRecords does not count them
+	private void appendHeader(int maxHistoryDepth, long maxHistoryBytes) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+		header.putInt(maxHistoryDepth);
+		header.putLong(maxHistoryBytes);
+		header.flip();
+		log.append(HEADER, header);
+		log.sync();
+	}
+	
+	/**
+	 * Writes state to a new snapshot and starts a new generation of the log, see CommandProcessor.checkpoint. The snapshot is written to a temporary
+	 * file and moved over the old one, so a crash part way through leaves the previous snapshot and its log untouched
+	 */
+	void checkpoint(List<? extends PluggableCommand> state, int maxHistoryDepth, long maxHistoryBytes) throws IOException
+	{
+		List<JournaledCommand> commands = new ArrayList<JournaledCommand>();
+		for (PluggableCommand command : state)
+		{
+			checkJournaled(command);
+			flatten(command, commands);
+		}
+		int newGeneration = log.generation() + 1;
+		writeSnapshot(newGeneration, commands);
+		log.reset(newGeneration);
+		appendHeader(maxHistoryDepth, maxHistoryBytes);
+	}
+	
+	// A snapshot has no undo history, so a CompositeCommand in it is just its commands in order
+	private static void flatten(PluggableCommand command, List<JournaledCommand> commands)
+	{
+		if (command instanceof CompositeCommand)
+		{
+			CompositeCommand composite = (CompositeCommand) command;
+			for (int index = 0; index < composite.size(); index++)
+			{
+				flatten(composite.get(index), commands);
+			}
+		}
+		else
+		{
+			commands.add((JournaledCommand) command);
+		}
+	}
+	
+	/**
+	 * Snapshot layout: int magic, int version, int generation, int command count, then every command as its byte type id, int payload length and payload,
+	 * and finally an int CRC32 of everything before it
+	 */
+	private void writeSnapshot(int generation, List<JournaledCommand> commands) throws IOException
+	{
+		long snapshotSize = 5 * Integer.BYTES;
+		for (JournaledCommand command : commands)
+		{
+			snapshotSize += 1 + Integer.BYTES + command.maxPayloadSize();
+		}
+		if (snapshotSize > Integer.MAX_VALUE)
+		{
+			throw new IOException("Command journal state is too large for a single snapshot");
+		}
+		
+		ByteBuffer snapshot = ByteBuffer.allocate((int) snapshotSize);
+		snapshot.putInt(SNAPSHOTMAGIC);
+		snapshot.putInt(SNAPSHOTVERSION);
+		snapshot.putInt(generation);
+		snapshot.putInt(commands.size());
+		for (JournaledCommand command : commands)
+		{
+			snapshot.put(command.typeId());
+			int lengthPosition = snapshot.position();
+			snapshot.position(lengthPosition + Integer.BYTES);
+			command.writePayload(snapshot);
+			snapshot.putInt(lengthPosition, snapshot.position() - lengthPosition - Integer.BYTES);
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(snapshot.array(), 0, snapshot.position());
+		snapshot.putInt((int) checksum.getValue());
+		snapshot.flip();
+		
+		Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (snapshot.hasRemaining())
+			{
+				channel.write(snapshot);
+			}
+			channel.force(true);
+		}
+		Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Executes every command of the snapshot on its target, outside of any history
+	 * @return the generation of the snapshot, FIRSTGENERATION when there is none
+	 */
+	private int replaySnapshot() throws IOException
+	{
+		if (!Files.exists(snapshotFile))
+		{
+			return FIRSTGENERATION;
+		}
+		ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+		if (snapshot.remaining() < 5 * Integer.BYTES || snapshot.getInt() != SNAPSHOTMAGIC)
+		{
+			throw new IOException(snapshotFile + " is not a command journal snapshot");
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(snapshot.array(), 0, snapshot.limit() - Integer.BYTES);
+		if ((int) checksum.getValue() != snapshot.getInt(snapshot.limit() - Integer.BYTES))
+		{
+			throw new IOException(snapshotFile + " is corrupt");
+		}
+		int version = snapshot.getInt();
+		if (version != SNAPSHOTVERSION)
+		{
+			throw new IOException("Unsupported command journal snapshot version: " + version);
+		}
+		int generation = snapshot.getInt();
+		int count = snapshot.getInt();
+		for (int i = 0; i < count; i++)
+		{
+			byte type = snapshot.get();
+			int length = snapshot.getInt();
+			ByteBuffer payload = snapshot.slice(snapshot.position(), length);
+			snapshot.position(snapshot.position() + length);
+			decoder.decode(type, payload).execute();
+		}
+		return generation;
+	}
+	
+	// Throws IllegalArgumentException unless every command that append would write is a JournaledCommand, checked before command executes
+	void checkJournaled(PluggableCommand command)
+	{
+		if (command instanceof CompositeCommand)
+		{
+			CompositeCommand composite = (CompositeCommand) command;
+			for (int index = 0; index < composite.size(); index++)
+			{
+				checkJournaled(composite.get(index));
+			}
+		}
+		else if (!(command instanceof JournaledCommand))
+		{
+			throw new IllegalArgumentException("A journaling CommandProcessor can only execute JournaledCommands: " + command.getClass().getName());
+		}
+		else if (((JournaledCommand) command).typeId() < 0)
+		{
+			throw new IllegalArgumentException("Negative type ids are reserved for the journal: " + ((JournaledCommand) command).typeId());
+		}
+	}
+	
+	/**
+	 * Appends a command that has executed. A CompositeCommand that fails part way through is truncated back to where its begin marker starts,
+	 * otherwise every record after it would be inside a batch that never ends, and dropped by replay
+	 */
+	void append(PluggableCommand command)
+	{
+		if (command instanceof CompositeCommand)
+		{
+			CompositeCommand composite = (CompositeCommand) command;
+			int batchStart = log.length();
+			long recordsBefore = appendedRecords;
+			try
+			{
+				appendMarker(BEGINBATCH);
+				for (int index = 0; index < composite.size(); index++)
+				{
+					append(composite.get(index));
+				}
+				appendMarker(ENDBATCH);
+			}
+			catch (RuntimeException e)
+			{
+				log.truncate(batchStart);
+				appendedRecords = recordsBefore;
+				throw e;
+			}
+			return;
+		}
+		JournaledCommand journaled = (JournaledCommand) command;
+		int maxPayloadSize = journaled.maxPayloadSize();
+		if (scratch.capacity() < maxPayloadSize)
+		{
+			scratch = ByteBuffer.allocate(Math.max(maxPayloadSize, 2 * scratch.capacity()));
+		}
+		scratch.clear();
+		journaled.writePayload(scratch);
+		scratch.flip();
+		append(journaled.typeId(), scratch);
+	}
+	
+	void appendMarker(byte type)
+	{
+		scratch.clear().flip();
+		append(type, scratch);
+	}
+	
+	private void append(byte type, ByteBuffer payload)
+	{
+		try
+		{
+			log.append(type, payload);
+			appendedRecords++;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+}
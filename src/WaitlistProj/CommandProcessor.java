@@ -1,24 +1,281 @@
 package WaitlistProj;
 
-import java.util.Stack;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
+// Not thread safe. The history is bounded: once it holds maxHistoryDepth commands, or about maxHistoryBytes of them, the oldest is evicted.
+// A CommandProcessor given a CommandJournal can be rebuilt after a crash by replaying it
 public class CommandProcessor 
 {
-	Stack<PluggableCommand> commandStack; //underlying datastructure to hold commands
+	public static final int DEFAULTMAXHISTORYDEPTH = 10000;
+	
+	private final CommandHistory history; // undo and redo history of executed commands
+	private List<PluggableCommand> batch; // commands queued since beginBatch, null when not batching
+	private int batchDepth; // beginBatch calls not yet matched by endBatch
+	private CommandJournal journal; // Every executed, undone and redone command is appended to it, null when not journaling
+	private WaitlistMetrics metrics; // Counts executed, undone and redone commands, null when not instrumented
 	
 	public CommandProcessor()
 	{
-		commandStack = new Stack<PluggableCommand>();
+		this(DEFAULTMAXHISTORYDEPTH, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * 
+	 * @param maxHistoryDepth - the most commands that can be undone
+	 * @param maxHistoryBytes - the most bytes of commands, as estimated by PluggableCommand.estimatedBytes, the history holds
+	 */
+	public CommandProcessor(int maxHistoryDepth, long maxHistoryBytes)
+	{
+		history = new CommandHistory(maxHistoryDepth, maxHistoryBytes);
+		batch = null;
+		batchDepth = 0;
+		journal = null;
+		metrics = null;
+	}
+	
+	/**
+	 * Replays journal to rebuild the targets and the history as they were when the journal was last synced, then journals every command from here on.
+	 * Only JournaledCommands, and CompositeCommands of them, can be executed by a journaling CommandProcessor
+	 * @param journal - must not be attached to any other CommandProcessor, its replay runs against the targets as they are now
+	 * @throws IOException - if journal cannot be read, or was written by a CommandProcessor with another maxHistoryDepth or maxHistoryBytes
+	 */
+	public CommandProcessor(int maxHistoryDepth, long maxHistoryBytes, CommandJournal journal) throws IOException
+	{
+		this(maxHistoryDepth, maxHistoryBytes);
+		journal.replay(this);
+		this.journal = journal;
 	}
 	
+	// Executes doIt right away, or queues it if a batch is open
 	public void doIt(PluggableCommand doIt)
 	{
-		commandStack.push(doIt);
+		if (journal != null)
+		{
+			journal.checkJournaled(doIt);
+		}
+		if (batch != null)
+		{
+			// Adjacent commands that can do each others work are merged, e.g. offers to the same queue become one addAll
+			if (batch.isEmpty() || !batch.get(batch.size() - 1).coalesce(doIt))
+			{
+				batch.add(doIt);
+			}
+			return;
+		}
+		long start = metrics == null ? 0 : metrics.startTimer();
 		doIt.execute();
+		journal(doIt);
+		history.push(doIt); // only after execute returns, a command that threw has nothing to undo
+		if (metrics != null)
+		{
+			metrics.commandExecuted(start);
+		}
+	}
+	
+	/**
+	 * Undoes the most recent command that has not been undone
+	 * @return false if there is nothing left to undo, either because nothing was done or because it was evicted from the history
+	 */
+	public boolean undoIt()
+	{
+		checkNotBatching();
+		PluggableCommand command = history.peekUndo();
+		if (command == null)
+		{
+			return false;
+		}
+		command.undo();
+		journalMarker(CommandJournal.UNDO, command);
+		history.undone();
+		if (metrics != null)
+		{
+			metrics.commandUndone();
+		}
+		return true;
+	}
+	
+	/**
+	 * Executes again the most recently undone command, any doIt since that undo discards what could be redone
+	 * @return false if there is nothing to redo
+	 */
+	public boolean redoIt()
+	{
+		checkNotBatching();
+		PluggableCommand command = history.peekRedo();
+		if (command == null)
+		{
+			return false;
+		}
+		command.execute();
+		journalMarker(CommandJournal.REDO, command);
+		history.redone();
+		if (metrics != null)
+		{
+			metrics.commandRedone();
+		}
+		return true;
+	}
+	
+	/**
+	 * Starts a new generation of the journal from state instead of every command journaled so far, which keeps the journal within the 2GiB its log can hold.
+	 * The commands of state are not executed, they are what replay runs to rebuild every target from empty as it is now, e.g. one SectionOfferCommand
+	 * per section holding its students in heap order. Nothing done before a checkpoint can be undone, the history is discarded
+	 */
+	public void checkpoint(List<? extends PluggableCommand> state) throws IOException
+	{
+		if (journal == null)
+		{
+			throw new IllegalStateException("Only a journaling CommandProcessor can checkpoint");
+		}
+		if (batch != null)
+		{
+			throw new IllegalStateException("Cannot checkpoint while a batch is open");
+		}
+		journal.checkpoint(state, history.maxDepth(), history.maxBytes());
+		history.discardAll();
+	}
+	
+	// Queues every doIt until the matching endBatch, batches may nest and only the outermost one executes
+	public void beginBatch()
+	{
+		if (batchDepth++ == 0)
+		{
+			batch = new ArrayList<PluggableCommand>();
+		}
+	}
+	
+	/**
+	 * Executes the commands queued since the outermost beginBatch as one CompositeCommand, which a single undoIt undoes
+	 * @return the number of commands executed after coalescing, 0 if this closed a nested batch or nothing was queued
+	 */
+	public int endBatch()
+	{
+		if (batchDepth == 0)
+		{
+			throw new IllegalStateException("endBatch without beginBatch");
+		}
+		if (--batchDepth > 0)
+		{
+			return 0;
+		}
+		List<PluggableCommand> queued = batch;
+		batch = null;
+		if (queued.isEmpty())
+		{
+			return 0;
+		}
+		doIt(queued.size() == 1 ? queued.get(0) : new CompositeCommand(queued));
+		return queued.size();
+	}
+	
+	// Executes commands as one batch
+	public int doAll(List<? extends PluggableCommand> commands)
+	{
+		beginBatch();
+		for (PluggableCommand command : commands)
+		{
+			doIt(command);
+		}
+		return endBatch();
+	}
+	
+	public boolean isBatching()
+	{
+		return batch != null;
+	}
+	
+	// Counts executed, undone and redone commands into metrics, a batch counts as the one command it executes as, null stops counting
+	public void instrument(WaitlistMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+	
+	// Metrics on the history
+	
+	// The number of commands undoIt can undo
+	public int historySize()
+	{
+		return history.undoSize();
+	}
+	
+	// The number of commands redoIt can redo
+	public int redoSize()
+	{
+		return history.redoSize();
+	}
+	
+	// The estimated bytes of every command held for undo or redo
+	public long historyBytes()
+	{
+		return history.bytes();
+	}
+	
+	// The number of commands evicted from the history to stay within its limits
+	public long evictedCount()
+	{
+		return history.evictedCount();
+	}
+	
+	public int maxHistoryDepth()
+	{
+		return history.maxDepth();
+	}
+	
+	public long maxHistoryBytes()
+	{
+		return history.maxBytes();
+	}
+	
+	// The journal is written after the command has run, if that write fails the command is reverted so memory never gets ahead of the journal
+	private void journal(PluggableCommand command)
+	{
+		if (journal == null)
+		{
+			return;
+		}
+		try
+		{
+			journal.append(command);
+		}
+		catch (RuntimeException e) // Either the log failed or the command could not encode itself, neither leaves a record behind
+		{
+			command.undo();
+			throw e;
+		}
+	}
+	
+	private void journalMarker(byte type, PluggableCommand command)
+	{
+		if (journal == null)
+		{
+			return;
+		}
+		try
+		{
+			journal.appendMarker(type);
+		}
+		catch (UncheckedIOException e)
+		{
+			if (type == CommandJournal.UNDO)
+			{
+				command.execute();
+			}
+			else
+			{
+				command.undo();
+			}
+			throw e;
+		}
 	}
 	
-	public void undoIt()
+	private void checkNotBatching()
 	{
-		commandStack.pop().undo();
+		if (batch != null)
+		{
+			throw new IllegalStateException("Cannot undo or redo while a batch is open");
+		}
 	}
 }
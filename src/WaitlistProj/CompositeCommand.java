@@ -0,0 +1,72 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The commands are not shared with another CompositeCommand or CommandProcessor
+ */
+package WaitlistProj;
+
+import java.util.List;
+
+// Executes several commands as one unit with a single undo, the undo runs the undo of every command in reverse order
+public class CompositeCommand extends PluggableCommand
+{
+	private final PluggableCommand[] commands;
+	
+	public CompositeCommand(List<? extends PluggableCommand> commands)
+	{
+		this.commands = commands.toArray(new PluggableCommand[commands.size()]);
+	}
+	
+	// All or nothing: if a command throws, the commands before it are undone before the exception is passed on
+	@Override
+	public void execute()
+	{
+		int executed = 0;
+		try
+		{
+			for (; executed < commands.length; executed++)
+			{
+				commands[executed].execute();
+			}
+		}
+		catch (RuntimeException e)
+		{
+			while (executed > 0)
+			{
+				commands[--executed].undo();
+			}
+			throw e;
+		}
+	}
+	
+	@Override
+	public void undo()
+	{
+		for (int index = commands.length - 1; index >= 0; index--)
+		{
+			commands[index].undo();
+		}
+	}
+	
+	@Override
+	public long estimatedBytes()
+	{
+		long estimatedBytes = 16 + 8L * commands.length; // The command and its array
+		for (PluggableCommand command : commands)
+		{
+			estimatedBytes += command.estimatedBytes();
+		}
+		return estimatedBytes;
+	}
+	
+	public int size()
+	{
+		return commands.length;
+	}
+	
+	// Used by CommandJournal to write each command of the composite
+	PluggableCommand get(int index)
+	{
+		return commands[index];
+	}
+}
@@ -0,0 +1,305 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Heap and PriorityQueue are not thread safe, ConcurrentPriorityQueue is the PriorityQueue to share between registration threads
+ * 	- The fields the comparator depends on must not change while an element is in the queue, there is no updatePriority here,
+ * 		remove the element and offer it again instead. A queue of Students can be told to do this itself, see listenToPriorityChanges
+ * 	- Elements with equal priority are polled in the order they were offered
+ */
+package WaitlistProj;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe PriorityQueue backed by a lock free skip list.
+ * 
+ * Contract:
+ * 	- offer, poll, peek and remove are linearizable while the queue does not listen to priority changes: poll always returns the highest priority
+ * 		element present at the instant it takes effect, and two threads can never poll the same element
+ * 	- offer and poll are lock free and run at O(log(n)) expected complexity, so threads offering and polling at the same time do not serialize on a lock.
+ * 		This does not make it faster, the skip list costs more per operation than a heap, and ConcurrentPriorityQueueBenchmark has measured
+ * 		a synchronized PriorityQueue ahead of it at every thread count, so measure on the target hardware before choosing it
+ * 	- size is O(1) but only a snapshot, it may be stale by the time it is returned
+ * 	- the iterator returns elements in priority order, it is weakly consistent and never throws ConcurrentModificationException
+ * 	- remove and contains match elements by reference and scan the queue, O(n)
+ * 	- a Student whose GPA or units taken change, in a queue listening for it, is taken out before the change and offered again after it,
+ * 		and goes behind the students of equal priority. This is not atomic: between the two, poll, peek, contains and the iterator do not see the student,
+ * 		while size still counts it. Finding the student takes O(log(n)) plus the number of students of the same priority
+ */
+public class ConcurrentPriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
+{
+	private final ConcurrentSkipListSet<Entry<E>> skipList; // Underlying datastructure, entries are sorted highest priority first
+	private final AtomicLong sequenceCounter; // Gives every offered element a unique sequence, so that equal priority elements are distinct entries polled in FIFO order
+	private final AtomicInteger size; // Keeps track of the number of elements, ConcurrentSkipListSet.size() would traverse the whole list
+	private final Comparator<E> compareMethod; // The algorithm used to compare two objects with in the queue
+	private volatile PriorityResifter resifter; // Added to every Student element, null unless listenToPriorityChanges(true)
+	
+	public ConcurrentPriorityQueue()
+	{
+		this(Comparator.naturalOrder()); // Natural order matches the default of PriorityQueue
+	}
+	
+	public ConcurrentPriorityQueue(Comparator<E> compareMethod)
+	{
+		this.compareMethod = compareMethod;
+		sequenceCounter = new AtomicLong();
+		size = new AtomicInteger();
+		resifter = null;
+		
+		// Higher priority first, ties are broken by the order the elements were offered
+		skipList = new ConcurrentSkipListSet<Entry<E>>((x, y) -> 
+		{
+			int priority = compareMethod.compare(y.element, x.element);
+			return priority != 0 ? priority : Long.compare(x.sequence, y.sequence);
+		});
+	}
+	
+	public ConcurrentPriorityQueue(Collection<? extends E> col)
+	{
+		this(col, Comparator.naturalOrder());
+	}
+	
+	public ConcurrentPriorityQueue(Collection<? extends E> col, Comparator<E> compareMethod)
+	{
+		this(compareMethod);
+		addAll(col);
+	}
+	
+	public Comparator<E> comparator()
+	{
+		return compareMethod;
+	}
+	
+	@Override
+	public boolean offer(E e)
+	{
+		if (e == null)
+		{
+			throw new NullPointerException();
+		}
+		// Listen before the entry is published, otherwise a poll in another thread could stop listening before this thread starts, leaking the listener
+		PriorityResifter listener = resifter;
+		if (listener != null && e instanceof Student)
+		{
+			((Student) e).addPriorityListener(listener);
+		}
+		skipList.add(new Entry<E>(e, sequenceCounter.getAndIncrement()));
+		size.incrementAndGet();
+		return true;
+	}
+	
+	@Override
+	public E poll()
+	{
+		Entry<E> head = skipList.pollFirst(); // pollFirst removes atomically, a competing poll moves on to the next entry
+		if (head == null)
+		{
+			return null;
+		}
+		size.decrementAndGet();
+		stopListeningTo(head.element);
+		return head.element;
+	}
+	
+	@Override
+	public E peek()
+	{
+		// first() throws when empty, and the list may become empty between an isEmpty check and first(), therefore iterate instead
+		Iterator<Entry<E>> headIterator = skipList.iterator();
+		return headIterator.hasNext() ? headIterator.next().element : null;
+	}
+	
+	@Override
+	public boolean remove(Object o)
+	{
+		for (Entry<E> entry : skipList)
+		{
+			// Only the thread whose remove succeeds decrements size, another thread may have polled the entry in the meantime
+			if (entry.element == o && skipList.remove(entry))
+			{
+				size.decrementAndGet();
+				stopListeningTo(entry.element);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		for (Entry<E> entry : skipList)
+		{
+			if (entry.element == o)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public void clear()
+	{
+		// Poll one element at a time so that size stays consistent with concurrent offers
+		while (poll() != null)
+		{
+			
+		}
+	}
+	
+	@Override
+	public boolean isEmpty()
+	{
+		return skipList.isEmpty();
+	}
+	
+	// size is incremented after an entry is added, so a racing poll can briefly drive the counter below zero
+	@Override
+	public int size()
+	{
+		return Math.max(size.get(), 0);
+	}
+	
+	@Override
+	public Iterator<E> iterator()
+	{
+		return new ConcurrentPriorityIterator();
+	}
+	
+	// Returns elements in priority order, weakly consistent like the skip list it wraps
+	class ConcurrentPriorityIterator implements Iterator<E>
+	{
+		private final Iterator<Entry<E>> skipListIterator; // iterator of the underlying skip list
+		private Entry<E> lastReturned; // the entry returned by the last call to next, used by remove
+		
+		public ConcurrentPriorityIterator()
+		{
+			skipListIterator = skipList.iterator();
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			return skipListIterator.hasNext();
+		}
+		
+		@Override
+		public E next()
+		{
+			lastReturned = skipListIterator.next();
+			return lastReturned.element;
+		}
+		
+		@Override
+		public void remove()
+		{
+			if (lastReturned == null)
+			{
+				throw new IllegalStateException();
+			}
+			if (skipList.remove(lastReturned))
+			{
+				size.decrementAndGet();
+				stopListeningTo(lastReturned.element);
+			}
+			lastReturned = null;
+		}
+	}
+	
+	/**
+	 * Whether Student elements are re-sifted when their GPA or units taken change, they are not by default.
+	 * Must be set before the queue is shared between threads, and a listening queue must be cleared before it is dropped
+	 */
+	public void listenToPriorityChanges(boolean listen)
+	{
+		if (listen == (resifter != null))
+		{
+			return;
+		}
+		PriorityResifter listener = listen ? new PriorityResifter() : resifter;
+		for (Entry<E> entry : skipList)
+		{
+			if (entry.element instanceof Student)
+			{
+				if (listen)
+				{
+					((Student) entry.element).addPriorityListener(listener);
+				}
+				else
+				{
+					((Student) entry.element).removePriorityListener(listener);
+				}
+			}
+		}
+		resifter = listen ? listener : null;
+	}
+	
+	private void stopListeningTo(E element)
+	{
+		PriorityResifter listener = resifter;
+		if (listener != null && element instanceof Student)
+		{
+			((Student) element).removePriorityListener(listener);
+		}
+	}
+	
+	// The skip list can only find an entry under the priority it was sorted by, so a Student is taken out before its priority changes and put back after
+	class PriorityResifter implements StudentPriorityListener
+	{
+		private final ConcurrentHashMap<Student, Integer> removedCopies = new ConcurrentHashMap<Student, Integer>(); // Students between the two calls
+		
+		// The priority has not changed yet, so the entries of the student lie among the entries of equal priority, bounded by the lowest and highest sequence
+		@SuppressWarnings("unchecked") // Only elements of this queue are listened to, so student is an E
+		@Override
+		public void priorityChanging(Student student)
+		{
+			int removed = 0;
+			Entry<E> lowest = new Entry<E>((E) student, Long.MIN_VALUE);
+			Entry<E> highest = new Entry<E>((E) student, Long.MAX_VALUE);
+			for (Entry<E> entry : skipList.subSet(lowest, true, highest, true))
+			{
+				if (entry.element == student && skipList.remove(entry))
+				{
+					removed++;
+				}
+			}
+			if (removed > 0)
+			{
+				removedCopies.merge(student, removed, Integer::sum);
+			}
+		}
+		
+		// size was left alone while the entries were out, they are put back as new entries like any offer
+		@SuppressWarnings("unchecked") // Only elements of this queue are listened to, so student is an E
+		@Override
+		public void priorityChanged(Student student)
+		{
+			Integer removed = removedCopies.remove(student);
+			for (int copy = 0; removed != null && copy < removed; copy++)
+			{
+				skipList.add(new Entry<E>((E) student, sequenceCounter.getAndIncrement()));
+			}
+		}
+	}
+	
+	// An element paired with the order it was offered in
+	static final class Entry<E>
+	{
+		final E element;
+		final long sequence;
+		
+		Entry(E element, long sequence)
+		{
+			this.element = element;
+			this.sequence = sequence;
+		}
+	}
+}
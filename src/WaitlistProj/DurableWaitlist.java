@@ -0,0 +1,445 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The directory holds the files of one waitlist only, and only one DurableWaitlist has it open at a time
+ * 	- compareMethod orders elements exactly the same way every time the waitlist is opened, replay depends on it
+ * 	- Elements are not mutated while in the waitlist, a change in priority goes through updatePriority so that it is logged.
+ * 		A waitlist of Students can instead be told to listen for GPA and units taken changes, see listenToPriorityChanges
+ * 	- Not thread safe
+ */
+package WaitlistProj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A waitlist that survives a restart. Every operation is appended to a WaitlistLog before it is applied to the in memory Heap,
+ * and checkpoint writes the whole heap to a snapshot file and starts a new, empty generation of the log.
+ * 
+ * Opening a waitlist loads the snapshot in O(n), it is written in heap order so it needs no reordering, then replays the log on top of it.
+ * Removals are logged by heap position rather than by value, so replay reproduces the exact heap layout the waitlist had, even among ties
+ */
+public class DurableWaitlist<E extends Comparable<E>> extends AbstractQueue<E> implements Closeable
+{
+	public static final String SNAPSHOTFILE = "waitlist.snapshot";
+	public static final String LOGFILE = "waitlist.log";
+	public static final int DEFAULTSYNCBATCHSIZE = 64;
+	public static final int DEFAULTSNAPSHOTINTERVAL = 100000;
+	
+	private static final int SNAPSHOTMAGIC = 0x57534E50; // "WSNP"
+	private static final int SNAPSHOTVERSION = 1;
+	private static final int FIRSTGENERATION = 1; // The log is zeroed, not generation 0, when no snapshot has been taken yet
+	
+	// Record types of the log
+	private static final byte OFFER = 1;
+	private static final byte POLL = 2;
+	private static final byte REMOVE = 3;
+	private static final byte CLEAR = 4;
+	
+	private final Path directory;
+	private final Heap<E> heap;
+	private final WaitlistLog log;
+	private final WaitlistCodec<E> codec;
+	private final int snapshotInterval; // Operations between automatic checkpoints, 0 only checkpoints when asked to
+	private int operationsSinceSnapshot;
+	private ByteBuffer scratch; // Reused to encode every logged record
+	private final int replayedRecords; // Records replayed from the log when this waitlist was opened
+	private final long recoveryNanos; // Time spent loading the snapshot and replaying the log when this waitlist was opened
+	private StudentPriorityListener resifter; // Added to every Student element so that a change to its priority is logged through updatePriority, null unless listening
+	
+	/**
+	 * Opens the waitlist stored in directory with the default sync batch size and snapshot interval
+	 */
+	public DurableWaitlist(Path directory, Comparator<E> compareMethod, WaitlistCodec<E> codec) throws IOException
+	{
+		this(directory, compareMethod, codec, DEFAULTSYNCBATCHSIZE, DEFAULTSNAPSHOTINTERVAL);
+	}
+	
+	/**
+	 * Opens the waitlist stored in directory, creating it if the directory is empty
+	 * @param directory - holds the snapshot and log of this waitlist, created if it does not exist
+	 * @param compareMethod - the ordering of the waitlist, null for the natural ordering of E
+	 * @param codec - turns elements into bytes for the log and snapshot
+	 * @param syncBatchSize - the number of operations logged between each fsync, 1 makes every operation durable as soon as it returns
+	 * @param snapshotInterval - the number of operations between automatic checkpoints, 0 only checkpoints when checkpoint is called
+	 */
+	public DurableWaitlist(Path directory, Comparator<E> compareMethod, WaitlistCodec<E> codec, int syncBatchSize, int snapshotInterval) throws IOException
+	{
+		if (codec == null)
+		{
+			throw new NullPointerException("codec cannot be null");
+		}
+		if (snapshotInterval < 0)
+		{
+			throw new IllegalArgumentException("snapshotInterval cannot be negative: " + snapshotInterval);
+		}
+		long recoveryStart = System.nanoTime();
+		this.directory = directory;
+		this.codec = codec;
+		this.snapshotInterval = snapshotInterval;
+		operationsSinceSnapshot = 0;
+		scratch = ByteBuffer.allocate(256);
+		Files.createDirectories(directory);
+		
+		List<E> snapshotElements = new ArrayList<E>();
+		int generation = readSnapshot(snapshotElements);
+		heap = new Heap<E>(snapshotElements, compareMethod == null ? Comparator.<E>naturalOrder() : compareMethod);
+		resifter = null; // The heap is left not listening either, it would re-sift without logging
+		log = new WaitlistLog(directory.resolve(LOGFILE), syncBatchSize);
+		replayedRecords = log.replay(generation, this::replay);
+		recoveryNanos = System.nanoTime() - recoveryStart;
+	}
+	
+	@Override
+	public boolean offer(E e)
+	{
+		if (e == null)
+		{
+			throw new NullPointerException("Cannot offer a null element");
+		}
+		ByteBuffer payload = scratchFor(codec.maxEncodedSize(e));
+		codec.encode(e, payload);
+		payload.flip();
+		append(OFFER, payload);
+		heap.offer(e);
+		listenTo(e);
+		afterOperation();
+		return true;
+	}
+	
+	@Override
+	public E poll()
+	{
+		if (heap.isEmpty())
+		{
+			return null;
+		}
+		append(POLL, scratchFor(0).flip());
+		E polled = heap.poll();
+		stopListeningTo(polled);
+		afterOperation();
+		return polled;
+	}
+	
+	@Override
+	public E peek()
+	{
+		return heap.peek();
+	}
+	
+	@Override
+	public boolean remove(Object o)
+	{
+		int heapIndex = heap.indexOf(o);
+		if (heapIndex < 0)
+		{
+			return false;
+		}
+		removeLogged(heapIndex);
+		afterOperation();
+		return true;
+	}
+	
+	/**
+	 * Restores the heap order after the priority of element has changed, logged as a removal followed by an offer
+	 * @return false if element is not in the waitlist
+	 */
+	public boolean updatePriority(E element)
+	{
+		int heapIndex = heap.indexOf(element);
+		if (heapIndex < 0)
+		{
+			return false;
+		}
+		removeLogged(heapIndex);
+		offer(element);
+		return true;
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		return heap.contains(o);
+	}
+	
+	@Override
+	public void clear()
+	{
+		append(CLEAR, scratchFor(0).flip());
+		for (E element : heap)
+		{
+			stopListeningTo(element);
+		}
+		heap.clear();
+		afterOperation();
+	}
+	
+	@Override
+	public int size()
+	{
+		return heap.size();
+	}
+	
+	public Comparator<E> comparator()
+	{
+		return heap.comparator();
+	}
+	
+	// Iterates in no particular order, the heap iterator does not support removal so nothing can bypass the log
+	@Override
+	public Iterator<E> iterator()
+	{
+		return heap.iterator();
+	}
+	
+	/**
+	 * Writes every element to a new snapshot and starts a new generation of the log. The snapshot is written to a temporary file
+	 * and moved over the old one, so a crash part way through leaves the previous snapshot and its log untouched
+	 */
+	public void checkpoint() throws IOException
+	{
+		int newGeneration = log.generation() + 1;
+		writeSnapshot(newGeneration);
+		log.reset(newGeneration);
+		operationsSinceSnapshot = 0;
+	}
+	
+	/**
+	 * Whether a change to the GPA or units taken of a Student element is logged and applied through updatePriority, it is not by default.
+	 * Like Heap.listenToPriorityChanges, a listening waitlist must be cleared, closed or stop listening before it is dropped
+	 */
+	public void listenToPriorityChanges(boolean listen)
+	{
+		if (listen == (resifter != null))
+		{
+			return;
+		}
+		for (E element : heap)
+		{
+			stopListeningTo(element);
+		}
+		resifter = listen ? this::priorityChanged : null;
+		for (E element : heap)
+		{
+			listenTo(element);
+		}
+	}
+	
+	// Forces every logged operation to disk without waiting for the sync batch to fill
+	public void sync()
+	{
+		log.sync();
+	}
+	
+	public int replayedRecords()
+	{
+		return replayedRecords;
+	}
+	
+	public long recoveryNanos()
+	{
+		return recoveryNanos;
+	}
+	
+	// Stops listening to the students first, a change after close has nowhere to be logged
+	@Override
+	public void close() throws IOException
+	{
+		listenToPriorityChanges(false);
+		log.close();
+	}
+	
+	private void removeLogged(int heapIndex)
+	{
+		ByteBuffer payload = scratchFor(Integer.BYTES);
+		payload.putInt(heapIndex);
+		payload.flip();
+		append(REMOVE, payload);
+		stopListeningTo(heap.removeAtIndex(heapIndex));
+	}
+	
+	// Called by a Student element after its GPA or units taken changed
+	@SuppressWarnings("unchecked") // Only elements of this waitlist are listened to, so student is an E
+	private void priorityChanged(Student student)
+	{
+		updatePriority((E) student);
+	}
+	
+	private void listenTo(E element)
+	{
+		if (resifter != null && element instanceof Student)
+		{
+			((Student) element).addPriorityListener(resifter);
+		}
+	}
+	
+	private void stopListeningTo(E element)
+	{
+		if (resifter != null && element instanceof Student)
+		{
+			((Student) element).removePriorityListener(resifter);
+		}
+	}
+	
+	private void append(byte type, ByteBuffer payload)
+	{
+		try
+		{
+			log.append(type, payload);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private void afterOperation()
+	{
+		if (snapshotInterval > 0 && ++operationsSinceSnapshot >= snapshotInterval)
+		{
+			try
+			{
+				checkpoint();
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	// Applies one logged operation to the heap while the waitlist is being opened
+	private void replay(byte type, ByteBuffer payload) throws IOException
+	{
+		switch (type)
+		{
+			case OFFER:
+				heap.offer(codec.decode(payload));
+				break;
+			case POLL:
+				heap.poll();
+				break;
+			case REMOVE:
+				heap.removeAtIndex(payload.getInt());
+				break;
+			case CLEAR:
+				heap.clear();
+				break;
+			default:
+				throw new IOException("Unknown waitlist log record type: " + type);
+		}
+	}
+	
+	// Returns the cleared scratch buffer, grown if it cannot hold size bytes
+	private ByteBuffer scratchFor(int size)
+	{
+		if (scratch.capacity() < size)
+		{
+			scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+		}
+		scratch.clear();
+		return scratch;
+	}
+	
+	/**
+	 * Snapshot layout: int magic, int version, int generation, int element count, then every element in heap order as an int length
+	 * followed by its encoding, and finally an int CRC32 of everything before it
+	 * @return the generation of the snapshot, FIRSTGENERATION when there is none
+	 */
+	private int readSnapshot(List<E> elements) throws IOException
+	{
+		Path snapshotFile = directory.resolve(SNAPSHOTFILE);
+		if (!Files.exists(snapshotFile))
+		{
+			return FIRSTGENERATION;
+		}
+		ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+		if (snapshot.remaining() < 5 * Integer.BYTES || snapshot.getInt() != SNAPSHOTMAGIC)
+		{
+			throw new IOException(snapshotFile + " is not a waitlist snapshot");
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(snapshot.array(), 0, snapshot.limit() - Integer.BYTES);
+		if ((int) checksum.getValue() != snapshot.getInt(snapshot.limit() - Integer.BYTES))
+		{
+			throw new IOException(snapshotFile + " is corrupt");
+		}
+		int version = snapshot.getInt();
+		if (version != SNAPSHOTVERSION)
+		{
+			throw new IOException("Unsupported waitlist snapshot version: " + version);
+		}
+		int generation = snapshot.getInt();
+		int count = snapshot.getInt();
+		for (int i = 0; i < count; i++)
+		{
+			int length = snapshot.getInt();
+			ByteBuffer encoded = snapshot.slice(snapshot.position(), length);
+			snapshot.position(snapshot.position() + length);
+			elements.add(codec.decode(encoded));
+		}
+		return generation;
+	}
+	
+	private void writeSnapshot(int generation) throws IOException
+	{
+		Object[] elements = heap.toArray();
+		long snapshotSize = 5 * Integer.BYTES;
+		for (Object element : elements)
+		{
+			snapshotSize += Integer.BYTES + codec.maxEncodedSize(elementOf(element));
+		}
+		if (snapshotSize > Integer.MAX_VALUE)
+		{
+			throw new IOException("Waitlist is too large for a single snapshot");
+		}
+		
+		ByteBuffer snapshot = ByteBuffer.allocate((int) snapshotSize);
+		snapshot.putInt(SNAPSHOTMAGIC);
+		snapshot.putInt(SNAPSHOTVERSION);
+		snapshot.putInt(generation);
+		snapshot.putInt(elements.length);
+		for (Object element : elements)
+		{
+			int lengthPosition = snapshot.position();
+			snapshot.position(lengthPosition + Integer.BYTES);
+			codec.encode(elementOf(element), snapshot);
+			snapshot.putInt(lengthPosition, snapshot.position() - lengthPosition - Integer.BYTES);
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(snapshot.array(), 0, snapshot.position());
+		snapshot.putInt((int) checksum.getValue());
+		snapshot.flip();
+		
+		Path temporaryFile = directory.resolve(SNAPSHOTFILE + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (snapshot.hasRemaining())
+			{
+				channel.write(snapshot);
+			}
+			channel.force(true);
+		}
+		Files.move(temporaryFile, directory.resolve(SNAPSHOTFILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	// toArray hands back Object[], every element in it was added to this waitlist as an E
+	@SuppressWarnings("unchecked")
+	private E elementOf(Object element)
+	{
+		return (E) element;
+	}
+}
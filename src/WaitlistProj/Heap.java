@@ -2,286 +2,1217 @@
  * @author William Ritchie
  * ASSUMPTIONS:
  * 	- This Heap datastructure has limited functionality and does not implement a heapsort method, this is reasonable for the project: assign1
- * 	- Extends the AbstractQueue interface from java, this is to help provide scalability in its ability to interact 
+ * 	- Extends the AbstractQueue interface from java, this is to help provide scalability in its ability to interact
  * 		with other native java objects, and to lay the ground work for other future functionality
+ * 	- Large heaps are built bottom up on the common ForkJoinPool, so the comparator or key extractor must be safe to call from several threads at once
  */
 package WaitlistProj;
 
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A heap data structure implementing the AbstractQueue interface.
  * array-based priority queue data structure where offer and poll methods run at O(log(n)) complexity.
- * This heap uses an ArrayList as its underlying data structure, primarily to access elements of the array in log(1) time and 
- * in order to allow the ArrayList to handle the resizing functionality
- * 
+ * This heap stores its elements directly in an Object array that it grows itself, and sifts iteratively: the element being placed is held aside
+ * while the elements on its path move into the hole, so it is written to the array once instead of being swapped at every level
+ *
  * This implementation of the Heap enforces that objects be Comparable
+ *
+ * A Heap may optionally be position-indexed: it then keeps a map from each element to its slot in heapStorage, kept in sync whenever an element moves,
+ * so that remove, contains and updatePriority run at O(log(n)) instead of scanning the whole array.
+ * Elements are matched by reference (==), therefore a position-indexed Heap can hold each object at most once
+ *
+ * Instead of a Comparator a Heap may be given a key extractor: each element's key is computed once when it enters the heap and cached
+ * alongside it, so sifting compares doubles rather than re-evaluating the priority algorithm. A cached key is only recomputed by updatePriority
+ *
+ * The heap is binary by default but its arity, the number of children of each node, can be chosen at construction. A wider heap is shallower,
+ * so poll and remove touch fewer, closer together levels at the cost of comparing more children per level
+ *
+ * A heap of Students can be told to listen to every student it holds through listenToPriorityChanges, a change to a student's GPA or units
+ * taken then re-sifts them through updatePriority. It is off by default: listening makes every offer and removal register or unregister
+ * with the student, and a re-sift is only O(log(n)) in a position-indexed heap, a linear scan otherwise
  */
 public final class Heap<E extends Comparable<E>> extends AbstractQueue<E>
 {
-    private final List<E> heapStorage; // The underlying datastructure for the heap, handles resizing as the number of elements increases
+    private static final int DEFAULTCAPACITY = 16; // Capacity of a heap that was not given one
+    private static final int DEFAULTARITY = 2; // A heap that was not given an arity is a binary heap
+    private static final int PARALLELTHRESHOLD = 1 << 16; // Heaps of at least this many elements are built in parallel by the collection constructors
+    private static final int SEQUENTIALSUBTREE = 1 << 12; // Subtrees of at most this many elements are built by a single task
+
+    private Object[] heapStorage; // The underlying datastructure for the heap, heapStorage[0 .. size-1] hold the elements in heap order
     private int size; // Keeps track of the number of elements in the heap
     private long modificationCounter; // Used in the implementation of Iterable , ensures an edge case where a user might be attempting to use the iterator while simultaneously offering an object to the Heap
-    private Comparator<E> compareMethod; // The algorithm used to compare two objects with in the heap
-    
+    private final Comparator<E> compareMethod; // The algorithm used to compare two objects with in the heap
+    private final Map<E, Integer> positionIndex; // Maps each element to its index in heapStorage, null when this heap is not position-indexed
+    private final ToDoubleFunction<? super E> keyExtractor; // Computes the priority key of an element, null when this heap compares elements with compareMethod
+    private double[] keyCache; // keyCache[i] is the cached key of heapStorage[i], always as long as heapStorage. null when this heap has no keyExtractor
+    private final int arity; // The number of children of every node, the children of index i are arity*i + 1 through arity*i + arity
+    private WaitlistMetrics metrics; // Counts the operations of this heap, null when it is not instrumented
+    private long unflushedSiftLevels; // Levels sifted since the last operation was counted in metrics, a plain field is far cheaper than a LongAdder per sift
+    private long unflushedComparisons; // Comparator calls made by sifting since the last operation was counted, derived from the path of each sift
+    private StudentPriorityListener resifter; // Added to every Student element to re-sift it when its priority changes, null unless listenToPriorityChanges(true)
+
     public Heap()
     {
     	this(Comparator.naturalOrder()); // Natural order was arbitrarily chosen as the default comparator
     }
-    
+
     public Heap(Comparator<E> compareMethod)
     {
-    	heapStorage = new ArrayList<E>();
-    	modificationCounter = 0;
-    	size = 0;
-    	this.compareMethod = compareMethod;
+    	this(compareMethod, false);
+    }
+
+    /**
+     *
+     * @param compareMethod - the algorithm used to determine priority
+     * @param positionIndexed - true if this heap should track the index of every element, making remove, contains and updatePriority O(log(n))
+     */
+    public Heap(Comparator<E> compareMethod, boolean positionIndexed)
+    {
+    	this(compareMethod, positionIndexed, DEFAULTARITY);
     }
-    
-    public Heap(Collection<? extends E> col) 
+
+    /**
+     *
+     * @param compareMethod - the algorithm used to determine priority
+     * @param positionIndexed - true if this heap should track the index of every element, making remove, contains and updatePriority O(log(n))
+     * @param arity - the number of children of every node, at least 2
+     */
+    public Heap(Comparator<E> compareMethod, boolean positionIndexed, int arity)
+    {
+    	this(new Object[DEFAULTCAPACITY], 0, compareMethod, null, positionIndexed, arity);
+    }
+
+    /**
+     *
+     * @param keyExtractor - computes the priority of an element, higher keys are higher priority. Each key is computed once and cached
+     */
+    public Heap(ToDoubleFunction<? super E> keyExtractor)
+    {
+    	this(keyExtractor, false);
+    }
+
+    public Heap(ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed)
+    {
+    	this(keyExtractor, positionIndexed, DEFAULTARITY);
+    }
+
+    public Heap(ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed, int arity)
+    {
+    	this(new Object[DEFAULTCAPACITY], 0, Comparator.comparingDouble(keyExtractor), keyExtractor, positionIndexed, arity);
+    }
+
+    /**
+     *
+     * @param initialCapacity - the number of elements this heap can hold before its storage has to grow, use it ahead of bulk loads
+     * @param compareMethod - the algorithm used to determine priority
+     */
+    public Heap(int initialCapacity, Comparator<E> compareMethod)
+    {
+    	this(new Object[checkCapacity(initialCapacity)], 0, compareMethod, null, false, DEFAULTARITY);
+    }
+
+    public Heap(Collection<? extends E> col)
     {
     	this(col, Comparator.naturalOrder());
     }
-    
+
     public Heap(Collection<? extends E> col, Comparator<E> compareMethod)
     {
+    	this(col, compareMethod, false);
+    }
+
+    public Heap(Collection<? extends E> col, Comparator<E> compareMethod, boolean positionIndexed)
+    {
+    	this(col, compareMethod, positionIndexed, DEFAULTARITY);
+    }
+
+    public Heap(Collection<? extends E> col, Comparator<E> compareMethod, boolean positionIndexed, int arity)
+    {
+    	this(copyOf(col), col.size(), compareMethod, null, positionIndexed, arity);
+    }
+
+    public Heap(Collection<? extends E> col, ToDoubleFunction<? super E> keyExtractor)
+    {
+    	this(col, keyExtractor, false);
+    }
+
+    public Heap(Collection<? extends E> col, ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed)
+    {
+    	this(col, keyExtractor, positionIndexed, DEFAULTARITY);
+    }
+
+    public Heap(Collection<? extends E> col, ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed, int arity)
+    {
+    	this(copyOf(col), col.size(), Comparator.comparingDouble(keyExtractor), keyExtractor, positionIndexed, arity);
+    }
+
+    // Every public constructor ends up here, the first initialSize slots of initialStorage are taken over by this heap and turned into a heap in O(n)
+    private Heap(Object[] initialStorage, int initialSize, Comparator<E> compareMethod, ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed, int arity)
+    {
+    	if (arity < 2)
+    	{
+    		throw new IllegalArgumentException("A heap must have an arity of at least 2: " + arity);
+    	}
+    	this.arity = arity;
     	modificationCounter = 0;
-    	heapStorage = new ArrayList<E>(col);
-    	size = heapStorage.size(); 
+    	heapStorage = initialStorage;
+    	size = initialSize;
     	this.compareMethod = compareMethod;
-    	createHeapStructure(); // Turns the internal datastructure, heapStorage, into a heap
+    	this.keyExtractor = keyExtractor;
+    	metrics = null;
+    	resifter = null;
+    	positionIndex = positionIndexed ? new IdentityHashMap<E, Integer>(size) : null;
+
+    	for (int index = 0; index < size; index++)
+    	{
+    		if (heapStorage[index] == null)
+    		{
+    			throw new NullPointerException();
+    		}
+    	}
+    	if (isKeyed())
+    	{
+    		keyCache = new double[heapStorage.length];
+    		for (int index = 0; index < size; index++)
+    		{
+    			keyCache[index] = keyExtractor.applyAsDouble(elementAt(index));
+    		}
+    	}
+    	if (isPositionIndexed())
+    	{
+    		for (int index = 0; index < size; index++)
+    		{
+    			indexElement(elementAt(index), index);
+    		}
+    	}
+    	createHeapStructure(true); // Turns the internal datastructure, heapStorage, into a heap
     }
-    
-    private void createHeapStructure()
+
+    /**
+     * Whether this heap re-sifts its Student elements when their priority changes, it does not by default.
+     * While listening every student holds a reference to this heap, so a listening heap must be cleared or stop listening before it is dropped,
+     * otherwise it stays reachable from its students and keeps re-sifting. A student held twice by a heap that is not position-indexed
+     * stops being listened to once either copy leaves, and only its first copy is re-sifted
+     */
+    public void listenToPriorityChanges(boolean listen)
     {
-    	int tempSize = size;
-   	 
-        // Build up the heaps structure within the arraylist: heapStorage
-        for (int i = tempSize / 2 - 1; i >= 0; i--)
-        {
-            heapify(heapStorage, tempSize, i);
-        }
+    	if (listen == (resifter != null))
+    	{
+    		return;
+    	}
+    	if (!listen)
+    	{
+    		for (int index = 0; index < size; index++)
+    		{
+    			stopListeningTo(elementAt(index));
+    		}
+    	}
+    	resifter = listen ? this::priorityChanged : null;
+    	for (int index = 0; listen && index < size; index++)
+    	{
+    		listenTo(elementAt(index));
+    	}
     }
-    
-    private void swap(List<E> heapStructure, int index1, int index2)
+
+    // Called by a Student element after its GPA or units taken changed
+    @SuppressWarnings("unchecked") // Only elements of this heap are listened to, so student is an E
+    private void priorityChanged(Student student)
     {
-    	E swapVar = heapStructure.get(index1); //Must use a temp variable so that the element at index1 is not lost when the element at index2 replaces it
-        heapStructure.set(index1, heapStructure.get(index2));
-        heapStructure.set(index2,swapVar);
+    	updatePriority((E) student);
     }
-    
-    private void heapify(List<E> heapStructure, int heapLevel, int previousIndex)
+
+    private void listenTo(E element)
     {
-        int currentIndex = previousIndex; //Current index of the largest element seen so far
-        int leftChildIndex = 2*previousIndex + 1; // the leftchild index of the currentIndex's element
-        int rightChildIndex = 2*previousIndex + 2; //the rightchild index of the currentIndex's element
-  
-        // Must check if the leftchild and right child are not null children within the balanced tree, i.e: leftChild < sizeofheap
-        // If left child is larger than the current largest element then current largest elements index should become leftchildsindex
-        if (leftChildIndex < heapLevel && compareMethod.compare(heapStructure.get(leftChildIndex), heapStructure.get(currentIndex)) > 0)
-        {
-        	 currentIndex = leftChildIndex;
-        }   
- 
-        // If right child is larger than current largest element then current largest elements index should become rightchildsindex
-        if (rightChildIndex < heapLevel && compareMethod.compare(heapStructure.get(rightChildIndex), heapStructure.get(currentIndex)) >= 0)
-        {
-            currentIndex = rightChildIndex;
-        }
- 
-        // If the index of the current largest element is not root (i.e. it is still not the previousIndex), then swap
-        if (currentIndex != previousIndex)
-        {
-            swap(heapStructure,previousIndex,currentIndex);
- 
-            // Recursively heapify the sub-tree
-            heapify(heapStructure, heapLevel, currentIndex);
-        }
+    	if (resifter != null && element instanceof Student)
+    	{
+    		((Student) element).addPriorityListener(resifter);
+    	}
     }
 
-    private void trickleDown(List<E> heapStructure, int previousIndex)
+    private void stopListeningTo(Object element)
     {
-        int currentIndex = previousIndex; //Current index of the largest element seen so far
-        int leftChildIndex = 2*previousIndex + 1; // the leftchild index of the currentIndex's element
-        int rightChildIndex = 2*previousIndex + 2; //the rightchild index of the currentIndex's element
- 
-        // Must check if the leftchild and right child are not null children within the balanced tree, i.e: leftChild < sizeofheap
-        // If left child is larger than the current largest element then current largest elements index should become leftchildsindex
-        if (leftChildIndex < size && compareMethod.compare(heapStructure.get(leftChildIndex), heapStructure.get(currentIndex)) > 0)
-        {
-            currentIndex = leftChildIndex;
-        }
- 
-        // If right child is larger than current largest element then current largest elements index should become rightchildsindex
-        if (rightChildIndex < size && compareMethod.compare(heapStructure.get(rightChildIndex), heapStructure.get(currentIndex)) >= 0)
-        {
-            currentIndex = rightChildIndex;
-        }
- 
-        // If the index of the current largest element is not root (i.e. it is still not the previousIndex), then swap
-        if (currentIndex != previousIndex)
-        {
-            swap(heapStructure, previousIndex, currentIndex);
- 
-            // Recursively move down the sub-tree
-            trickleDown(heapStructure, currentIndex);
-        }
+    	if (resifter != null && element instanceof Student)
+    	{
+    		((Student) element).removePriorityListener(resifter);
+    	}
+    }
+
+    // Copies the elements of col into a new array with room for at least DEFAULTCAPACITY elements
+    private static Object[] copyOf(Collection<?> col)
+    {
+    	Object[] elements = col.toArray();
+    	return Arrays.copyOf(elements, Math.max(elements.length, DEFAULTCAPACITY), Object[].class);
+    }
+
+    private static int checkCapacity(int initialCapacity)
+    {
+    	if (initialCapacity < 0)
+    	{
+    		throw new IllegalArgumentException("Initial capacity cannot be negative: " + initialCapacity);
+    	}
+    	return Math.max(initialCapacity, 1);
+    }
+
+    /**
+     * Counts the operations of this heap into metrics from now on. Comparisons are not counted by wrapping compareMethod, which would slow every call,
+     * but worked out from the path of every sift, which fixes the calls it made; the comparisons of priorityIterator and peekTopK are not counted
+     * @param metrics - null to stop counting
+     */
+    public void instrument(WaitlistMetrics metrics)
+    {
+    	if (this.metrics != null)
+    	{
+    		flushMetrics();
+    	}
+    	this.metrics = metrics;
+    }
+
+    public WaitlistMetrics metrics()
+    {
+    	return metrics;
+    }
+
+    public int arity()
+    {
+    	return arity;
+    }
+
+    public boolean isPositionIndexed()
+    {
+    	return positionIndex != null;
     }
 
-    private void trickleUp(List<E> heapStructure)
+    // True if this heap orders its elements by cached keys rather than by calling compareMethod
+    public boolean isKeyed()
     {
-    	int heapIndex = size - 1; // trickling up therefore start the index at the last element in the heap
-    	// As longs as the heapIndex has not reached the beginning of the array (i.e. 0) and the current element is larger than its parent, then swap them and replace their indices
-    	while (heapIndex != 0 && compareMethod.compare(heapStructure.get(findParentIndex(heapIndex)), heapStructure.get(heapIndex)) > 0)
+    	return keyExtractor != null;
+    }
+
+    @SuppressWarnings("unchecked") // Only elements of type E are ever stored in heapStorage
+    private E elementAt(int heapIndex)
+    {
+    	return (E) heapStorage[heapIndex];
+    }
+
+    // Compares the elements at two indices of heapStorage, using their cached keys when this heap has a keyExtractor
+    private int compareAt(int index1, int index2)
+    {
+    	if (isKeyed())
+    	{
+    		return Double.compare(keyCache[index1], keyCache[index2]);
+    	}
+    	return compareMethod.compare(elementAt(index1), elementAt(index2));
+    }
+
+    // Records that element now lives at heapIndex, a position-indexed heap refuses to hold the same object twice as it could not tell the copies apart
+    private void indexElement(E element, int heapIndex)
+    {
+    	if (positionIndex.containsKey(element))
+    	{
+    		throw new IllegalArgumentException("A position-indexed Heap can only hold each element once");
+    	}
+    	positionIndex.put(element, heapIndex);
+    }
+
+    // Grows the storage of this heap, if necessary, so that it can hold minCapacity elements without reallocating
+    public void ensureCapacity(int minCapacity)
+    {
+    	if (minCapacity > heapStorage.length)
+    	{
+    		int newCapacity = Math.max(minCapacity, heapStorage.length * 2);
+    		heapStorage = Arrays.copyOf(heapStorage, newCapacity);
+    		if (isKeyed())
+    		{
+    			keyCache = Arrays.copyOf(keyCache, newCapacity);
+    		}
+    	}
+    }
+
+    // inParallel is only true from the collection constructors, rebuilds after addAll, merge or pollTopK run in the calling thread so that
+    // an operation on one waitlist never takes over the threads of the common pool
+    private void createHeapStructure(boolean inParallel)
+    {
+    	// The subtrees of a node are disjoint ranges of heapStorage, so they can be built at the same time. A position-indexed heap shares
+    	// its map between every slot and an instrumented heap counts into plain fields, those are always built by this thread
+    	if (inParallel && size >= PARALLELTHRESHOLD && !isPositionIndexed() && metrics == null)
+    	{
+    		ForkJoinPool.commonPool().invoke(new HeapifyTask(0, size));
+    		return;
+    	}
+
+        // Build up the heaps structure within heapStorage, every index after the parent of the last element is a leaf and already a heap on its own
+        for (int heapIndex = findLastParentIndex(); heapIndex >= 0; heapIndex--)
         {
-           swap(heapStructure,heapIndex, findParentIndex(heapIndex));
-           heapIndex = findParentIndex(heapIndex);
+            trickleDown(heapIndex, elementAt(heapIndex), isKeyed() ? keyCache[heapIndex] : 0);
         }
     }
 
+    // Builds the subtree under root into a heap: its child subtrees first, each as its own task, then root is trickled down into them
+    private final class HeapifyTask extends RecursiveAction
+    {
+    	private static final long serialVersionUID = 1L;
+    	private final int root;
+    	private final int subtreeSize; // At most the number of elements in the subtree under root, exact when its last level is full
+
+    	HeapifyTask(int root, int subtreeSize)
+    	{
+    		this.root = root;
+    		this.subtreeSize = subtreeSize;
+    	}
+
+    	@Override
+    	protected void compute()
+    	{
+    		if (subtreeSize <= SEQUENTIALSUBTREE)
+    		{
+    			heapifySubtree(root, findLastParentIndex() + 1);
+    			return;
+    		}
+    		List<HeapifyTask> childTasks = new ArrayList<HeapifyTask>(arity);
+    		int firstChild = arity*root + 1;
+    		for (int childIndex = firstChild; childIndex < firstChild + arity && childIndex <= findLastParentIndex(); childIndex++)
+    		{
+    			childTasks.add(new HeapifyTask(childIndex, (subtreeSize - 1) / arity));
+    		}
+    		invokeAll(childTasks);
+    		trickleDown(root, elementAt(root), isKeyed() ? keyCache[root] : 0);
+    	}
+    }
+
+    // Builds the subtree under heapIndex into a heap in this thread, the same bottom up order as createHeapStructure restricted to one subtree
+    private void heapifySubtree(int heapIndex, int firstLeaf)
+    {
+    	if (heapIndex >= firstLeaf)
+    	{
+    		return;
+    	}
+    	int firstChild = arity*heapIndex + 1;
+    	for (int childIndex = firstChild; childIndex < firstChild + arity && childIndex < firstLeaf; childIndex++)
+    	{
+    		heapifySubtree(childIndex, firstLeaf);
+    	}
+    	trickleDown(heapIndex, elementAt(heapIndex), isKeyed() ? keyCache[heapIndex] : 0);
+    }
+
+    // Writes element, and its key, into heapIndex. Every element that changes slots passes through here
+    private void place(int heapIndex, E element, double key)
+    {
+    	heapStorage[heapIndex] = element;
+    	if (isKeyed())
+    	{
+    		keyCache[heapIndex] = key;
+    	}
+    	if (isPositionIndexed())
+    	{
+    		positionIndex.put(element, heapIndex);
+    	}
+    }
+
+    /**
+     * Moves the hole at heapIndex towards the leaves until element fits there, then places element in it.
+     * The largest child moves up into the hole at each level, on a tie the rightmost of the largest children is chosen
+     * @param key - the cached key of element, ignored unless this heap is keyed
+     */
+    private void trickleDown(int heapIndex, E element, double key)
+    {
+    	int startIndex = heapIndex;
+    	int firstLeaf = findLastParentIndex() + 1; // Every index below firstLeaf has at least one child
+    	if (isKeyed())
+    	{
+    		while (heapIndex < firstLeaf)
+    		{
+    			int firstChild = arity*heapIndex + 1;
+    			int lastChild = Math.min(firstChild + arity, size) - 1;
+    			int childIndex = firstChild;
+    			for (int sibling = firstChild + 1; sibling <= lastChild; sibling++)
+    			{
+    				if (keyCache[sibling] >= keyCache[childIndex])
+    				{
+    					childIndex = sibling;
+    				}
+    			}
+    			if (keyCache[childIndex] <= key)
+    			{
+    				break;
+    			}
+    			place(heapIndex, elementAt(childIndex), keyCache[childIndex]);
+    			heapIndex = childIndex;
+    		}
+    	}
+    	else
+    	{
+    		while (heapIndex < firstLeaf)
+    		{
+    			int firstChild = arity*heapIndex + 1;
+    			int lastChild = Math.min(firstChild + arity, size) - 1;
+    			int childIndex = firstChild;
+    			E child = elementAt(firstChild);
+    			for (int sibling = firstChild + 1; sibling <= lastChild; sibling++)
+    			{
+    				if (compareMethod.compare(elementAt(sibling), child) >= 0)
+    				{
+    					childIndex = sibling;
+    					child = elementAt(sibling);
+    				}
+    			}
+    			if (compareMethod.compare(child, element) <= 0)
+    			{
+    				break;
+    			}
+    			place(heapIndex, child, 0);
+    			heapIndex = childIndex;
+    		}
+    	}
+    	place(heapIndex, element, key);
+    	if (metrics != null)
+    	{
+    		int levels = depthOf(heapIndex) - depthOf(startIndex);
+    		unflushedSiftLevels += levels;
+    		if (!isKeyed())
+    		{
+    			unflushedComparisons += trickleDownComparisons(startIndex, heapIndex, levels);
+    		}
+    	}
+    }
+
+    /**
+     * Moves the hole at heapIndex towards the head while element is larger than the parent of the hole, then places element in it
+     * @param key - the cached key of element, ignored unless this heap is keyed
+     */
+    private void trickleUp(int heapIndex, E element, double key)
+    {
+    	int startIndex = heapIndex;
+    	if (isKeyed())
+    	{
+    		while (heapIndex != 0 && key > keyCache[findParentIndex(heapIndex)])
+    		{
+    			int parentIndex = findParentIndex(heapIndex);
+    			place(heapIndex, elementAt(parentIndex), keyCache[parentIndex]);
+    			heapIndex = parentIndex;
+    		}
+    	}
+    	else
+    	{
+    		while (heapIndex != 0 && compareMethod.compare(element, elementAt(findParentIndex(heapIndex))) > 0)
+    		{
+    			int parentIndex = findParentIndex(heapIndex);
+    			place(heapIndex, elementAt(parentIndex), 0);
+    			heapIndex = parentIndex;
+    		}
+    	}
+    	place(heapIndex, element, key);
+    	if (metrics != null)
+    	{
+    		int levels = depthOf(startIndex) - depthOf(heapIndex);
+    		unflushedSiftLevels += levels;
+    		if (!isKeyed())
+    		{
+    			unflushedComparisons += heapIndex != 0 ? levels + 1 : levels; // One per level moved, and one more with the parent it stopped below
+    		}
+    	}
+    }
+
+    // Restores heap order around heapIndex after the element there changed, an element only ever needs to move in one direction
+    private void resift(int heapIndex)
+    {
+    	E element = elementAt(heapIndex);
+    	double key = isKeyed() ? keyCache[heapIndex] : 0;
+    	trickleDown(heapIndex, element, key);
+
+    	// If trickleDown did not move the element then it may need to move towards the head instead
+    	if (heapStorage[heapIndex] == element)
+    	{
+    		trickleUp(heapIndex, element, key);
+    	}
+    }
+
+    // Removes the element at heapIndex by moving the last element into its slot and re-sifting that slot, O(log(n)). The caller updates modificationCounter
+    private E removeAt(int heapIndex)
+    {
+    	E removedElement = elementAt(heapIndex);
+    	size--;
+    	E lastElement = elementAt(size);
+    	heapStorage[size] = null; // Do not hold on to elements that have left the heap
+    	stopListeningTo(removedElement);
+
+    	if (isPositionIndexed())
+    	{
+    		positionIndex.remove(removedElement);
+    	}
+
+    	// If the removed element was the last one then there is no hole left to fill
+    	if (heapIndex != size)
+    	{
+    		double lastKey = isKeyed() ? keyCache[size] : 0;
+    		trickleDown(heapIndex, lastElement, lastKey);
+    		if (heapStorage[heapIndex] == lastElement)
+    		{
+    			trickleUp(heapIndex, lastElement, lastKey);
+    		}
+    	}
+    	return removedElement;
+    }
+
+    // Returns the index of o within heapStorage, or -1 if it is not in the heap. Elements are matched by reference
+    int indexOf(Object o)
+    {
+    	if (isPositionIndexed())
+    	{
+    		Integer heapIndex = positionIndex.get(o);
+    		return heapIndex == null ? -1 : heapIndex;
+    	}
+
+    	for (int index = 0; index < size; index++)
+    	{
+    		if (heapStorage[index] == o)
+    		{
+    			return index;
+    		}
+    	}
+    	return -1;
+    }
+
     private int findParentIndex(int childIndex)
     {
-    	int parentToBe = childIndex;
-    	return (parentToBe - 1) / 2; // parentIdx = (childIdx-1)/2
+    	return (childIndex - 1) / arity; // parentIdx = (childIdx-1)/arity
+    }
+
+    // The number of levels between heapIndex and the head, only used to count sift levels
+    private int depthOf(int heapIndex)
+    {
+    	if (arity == 2)
+    	{
+    		return 31 - Integer.numberOfLeadingZeros(heapIndex + 1);
+    	}
+    	int depth = 0;
+    	while (heapIndex != 0)
+    	{
+    		heapIndex = findParentIndex(heapIndex);
+    		depth++;
+    	}
+    	return depth;
+    }
+
+    /**
+     * The comparator calls of a trickleDown that moved the hole levels times from startIndex to heapIndex. Every hole it moves out of and the hole it
+     * stops at cost one call per child, the siblings against each other and the largest against element. Only the last parent can have fewer than arity children
+     */
+    private long trickleDownComparisons(int startIndex, int heapIndex, int levels)
+    {
+    	int lastParent = findLastParentIndex();
+    	long comparisons = (long) levels * arity;
+    	if (heapIndex <= lastParent)
+    	{
+    		comparisons += arity; // Stopped above the leaves, after comparing with the children of heapIndex
+    	}
+    	if (lastParent >= 0 && (heapIndex == lastParent || (heapIndex != startIndex && findParentIndex(heapIndex) == lastParent)))
+    	{
+    		comparisons -= arity - (size - (arity*lastParent + 1));
+    	}
+    	return comparisons;
+    }
+
+    // Adds the sift levels and comparisons counted since the last operation to metrics, called at the end of every counted operation
+    private void flushMetrics()
+    {
+    	metrics.sifted(unflushedSiftLevels);
+    	unflushedSiftLevels = 0;
+    	metrics.compared(unflushedComparisons);
+    	unflushedComparisons = 0;
     }
-    
+
+    // The index of the last element that has a child, or -1 if no element has one
+    private int findLastParentIndex()
+    {
+    	return size > 1 ? findParentIndex(size - 1) : -1;
+    }
+
     public Comparator<E> comparator()
     {
     	return compareMethod;
     }
-    
-    // This does not require Log(n) complexity
+
+    // Finding the element is O(log(n)) for a position-indexed heap and a linear scan otherwise, removing it once found is always O(log(n))
     @Override
 	public boolean remove(Object o)
 	{
-    	for (E element : heapStorage)
+    	long start = metrics == null ? 0 : metrics.startTimer();
+    	int heapIndex = indexOf(o);
+    	if (heapIndex >= 0)
     	{
-    		if (element == o)
-    		{
-    			heapStorage.remove(element);
-    			size--;
-    			createHeapStructure();
-    			modificationCounter++;
-    			return true;
-    		}
+    		removeAt(heapIndex);
+    		modificationCounter++;
+    	}
+    	if (metrics != null)
+    	{
+    		metrics.removed(start); // A miss is counted too, it scanned the whole heap unless the heap is position-indexed
+    		flushMetrics();
     	}
-		return false;
+		return heapIndex >= 0;
 	}
-    
+
+    // Removes the element at a position previously found by indexOf, DurableWaitlist logs removals by position so that replay is deterministic
+    E removeAtIndex(int heapIndex)
+    {
+    	if (heapIndex < 0 || heapIndex >= size)
+    	{
+    		throw new IndexOutOfBoundsException("Heap index " + heapIndex + " is not within a heap of size " + size);
+    	}
+    	long start = metrics == null ? 0 : metrics.startTimer();
+    	E removedElement = removeAt(heapIndex);
+    	modificationCounter++;
+    	if (metrics != null)
+    	{
+    		metrics.removed(start);
+    		flushMetrics();
+    	}
+    	return removedElement;
+    }
+
     @Override
-    public String toString()
+    public boolean contains(Object o)
+    {
+    	return indexOf(o) >= 0;
+    }
+
+    /**
+     * Must be called after a field used by the comparator of an element in this heap has changed, otherwise the heap order is silently broken.
+     * For a keyed heap this is the only way the cached key of an element is recomputed. Student elements call it themselves, see priorityChanged
+     * @param element - the element whose priority changed
+     * @return true if the element was in the heap and has been moved to its new position, false otherwise
+     */
+    public boolean updatePriority(E element)
+    {
+    	int heapIndex = indexOf(element);
+    	if (heapIndex < 0)
+    	{
+    		return false;
+    	}
+    	if (isKeyed())
+    	{
+    		keyCache[heapIndex] = keyExtractor.applyAsDouble(element);
+    	}
+    	resift(heapIndex);
+    	modificationCounter++;
+    	return true;
+    }
+
+    @Override
+    public void clear()
     {
-    	String tempString = "";
-    	
     	for (int index = 0; index < size; index++)
     	{
-    		tempString += "[" + heapStorage.get(index).toString() + "], "; //Formatting the string in this manner follows javas standard
+    		stopListeningTo(heapStorage[index]);
     	}
-    	return tempString;
+    	Arrays.fill(heapStorage, 0, size, null);
+    	size = 0;
+    	if (isPositionIndexed())
+    	{
+    		positionIndex.clear();
+    	}
+    	modificationCounter++;
     }
-    
+
     @Override
-	public Object[] toArray()
-	{
-    	Object[] tempArray = new Object[size];
-    	
+    public String toString()
+    {
+    	StringBuilder tempString = new StringBuilder();
+
     	for (int index = 0; index < size; index++)
     	{
-    		tempArray[index]  = heapStorage.get(index);
+    		tempString.append("[").append(heapStorage[index]).append("], "); //Formatting the string in this manner follows javas standard
     	}
-		return tempArray;
+    	return tempString.toString();
+    }
+
+    @Override
+	public Object[] toArray()
+	{
+		return Arrays.copyOf(heapStorage, size);
 	}
-	
+
     // Returns an array of specific type T, this differs from the Object[] returned by the generic toArray() method
 	@SuppressWarnings("unchecked") // Suppress the unchecked cast to T
 	@Override
 	public <T> T[] toArray(T[] a)
 	{
-    	for (int index = 0; index < size; index++)
-    	{
-    		a[index]  = (T) heapStorage.get(index);
-    	}
+		// Like every java Collection, allocate a new array of the same type when a is too small
+		if (a.length < size)
+		{
+			return (T[]) Arrays.copyOf(heapStorage, size, a.getClass());
+		}
+		System.arraycopy(heapStorage, 0, a, 0, size);
+		if (a.length > size)
+		{
+			a[size] = null;
+		}
 		return a;
 	}
-    
+
     @Override
     public Iterator<E> iterator()
     {
+    	if (metrics != null)
+    	{
+    		metrics.iteratorCreated();
+    	}
         return new IteratorHelper();
     }
-    
+
     /**
-     * 
+     *
      * @author William Ritchie
      * Class that implements Iterator, used by the iterator method for this heap, does not enforce heap order
      */
     class IteratorHelper implements Iterator<E>
     {
-    	int iterIdx; //iterator index used to iterate through the elements of the local array
-    	List<E> localArray; // a temporary array to hold the elements of the heap to be iterated through 
+    	int iterIdx; //iterator index used to iterate through the elements of heapStorage
     	long modCounter; // used inconjunction with modificationCounter prevent an edge case from breaking the iterator -- ConcurrentModificationExcpetion
 
+    	// No copy of heapStorage is needed, modCounter guarantees it has not changed since the iterator was created
     	public IteratorHelper()
     	{
     		iterIdx = 0;
-    		localArray = new java.util.ArrayList<>(size);
     		modCounter = modificationCounter; // modCounter should always be equal to modificationCounter while an instance of the iterator exists
-    		
-    		for (int i=0; i<size;i++)
-    		{
-    			localArray.add(heapStorage.get(i));
-    		}
     	}
-    	
+
 		@Override
 		public boolean hasNext()
 		{
-			// If modCounter does not equal modificationCounter then the user attempted to offer or poll elements while the iterator was running, therefore throw an ConcurrentModificationException 
+			// If modCounter does not equal modificationCounter then the user attempted to offer or poll elements while the iterator was running, therefore throw an ConcurrentModificationException
 			if (modCounter != modificationCounter)
 			{
 				throw new ConcurrentModificationException();
 			}
-			
+
 			return iterIdx < size;
 		}
 
 		@Override
-		public E next() 
+		public E next()
 		{
 			// If there are NO elements to be returned then throw NoSuchElementException
 			if (!hasNext())
 			{
 				throw new NoSuchElementException();
 			}
-			
-			return localArray.get(iterIdx++);
+
+			if (metrics != null)
+			{
+				metrics.elementIterated();
+			}
+			return elementAt(iterIdx++);
 		}
-    	
+
+    }
+
+    /**
+     *
+     * @param k - the number of elements wanted
+     * @return the k highest priority elements in priority order, or every element if the heap holds fewer than k. The heap is not modified
+     */
+    public List<E> peekTopK(int k)
+    {
+    	int count = Math.min(Math.max(k, 0), size);
+    	List<E> topK = new ArrayList<E>(count);
+    	Iterator<E> priorityOrder = priorityIterator();
+    	for (int taken = 0; taken < count; taken++)
+    	{
+    		topK.add(priorityOrder.next());
+    	}
+    	return topK;
+    }
+
+    /**
+     * Removes the k highest priority elements as one batch.
+     * When k is small each element is taken off the head like poll; when k*log(n) exceeds n it is cheaper to locate the k elements
+     * with a priority order walk, compact the rest of the array and rebuild the heap bottom up in O(n)
+     * @param k - the number of elements wanted
+     * @return the removed elements in priority order, or every element if the heap holds fewer than k
+     */
+    public List<E> pollTopK(int k)
+    {
+    	int count = Math.min(Math.max(k, 0), size);
+    	List<E> topK = new ArrayList<E>(count);
+    	if (count == 0)
+    	{
+    		return topK;
+    	}
+
+    	int log2Size = 32 - Integer.numberOfLeadingZeros(size);
+    	if ((long) count * log2Size <= size)
+    	{
+    		for (int taken = 0; taken < count; taken++)
+    		{
+    			topK.add(removeAt(0));
+    		}
+    	}
+    	else
+    	{
+    		boolean[] taken = new boolean[size];
+    		PriorityOrderIterator priorityOrder = new PriorityOrderIterator();
+    		for (int index = 0; index < count; index++)
+    		{
+    			int heapIndex = priorityOrder.nextIndex();
+    			taken[heapIndex] = true;
+    			topK.add(elementAt(heapIndex));
+    		}
+    		removeTaken(taken);
+    	}
+    	modificationCounter++; // one batch is one modification
+    	if (metrics != null)
+    	{
+    		metrics.polled(count);
+    		flushMetrics();
+    	}
+    	return topK;
+    }
+
+    // Polls up to maxElements elements into c in priority order, returns the number of elements moved
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+    	if (c == this)
+    	{
+    		throw new IllegalArgumentException("Cannot drain a Heap into itself");
+    	}
+    	List<E> drained = pollTopK(maxElements);
+    	c.addAll(drained);
+    	return drained.size();
+    }
+
+    public int drainTo(Collection<? super E> c)
+    {
+    	return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    // Removes every element whose index is marked in taken by sliding the remaining elements together, then rebuilds the heap in O(n)
+    private void removeTaken(boolean[] taken)
+    {
+    	int keptCount = 0;
+    	for (int index = 0; index < size; index++)
+    	{
+    		if (taken[index])
+    		{
+    			stopListeningTo(heapStorage[index]);
+    			if (isPositionIndexed())
+    			{
+    				positionIndex.remove(heapStorage[index]);
+    			}
+    			continue;
+    		}
+    		place(keptCount++, elementAt(index), isKeyed() ? keyCache[index] : 0);
+    	}
+    	Arrays.fill(heapStorage, keptCount, size, null);
+    	size = keptCount;
+    	createHeapStructure(false);
     }
-    
+
+    // Returns an iterator that does enforce priority order, without copying or modifying this heap
+    public Iterator<E> priorityIterator()
+    {
+    	if (metrics != null)
+    	{
+    		metrics.iteratorCreated();
+    	}
+    	return new PriorityOrderIterator();
+    }
+
+    /**
+     *
+     * Class that implements Iterator in priority order by walking the live heap: the next element is always the highest priority element of a small
+     * frontier of heap indices, and returning an element adds its children to the frontier. Taking the first k elements costs O(k log(k))
+     */
+    class PriorityOrderIterator implements Iterator<E>
+    {
+    	private int[] frontier; // a heap of indices into heapStorage, ordered by the priority of the elements they point to
+    	private int frontierSize; // number of indices in frontier
+    	private int returnedCount; // number of elements returned so far
+    	private final long modCounter; // should remain equal to modificationCounter while the iterator is being used
+
+    	public PriorityOrderIterator()
+    	{
+    		frontier = new int[16];
+    		frontierSize = 0;
+    		returnedCount = 0;
+    		modCounter = modificationCounter;
+
+    		if (size > 0)
+    		{
+    			frontier[frontierSize++] = 0; // The head of the heap is always returned first
+    		}
+    	}
+
+    	@Override
+    	public boolean hasNext()
+    	{
+    		if (modCounter != modificationCounter)
+    		{
+    			throw new ConcurrentModificationException();
+    		}
+    		return returnedCount < size;
+    	}
+
+    	@Override
+    	public E next()
+    	{
+    		if (metrics != null)
+    		{
+    			metrics.elementIterated();
+    		}
+    		return elementAt(nextIndex());
+    	}
+
+    	// Returns the index in heapStorage of the next element in priority order
+    	int nextIndex()
+    	{
+    		if (!hasNext())
+    		{
+    			throw new NoSuchElementException();
+    		}
+
+    		// Take the highest priority index off the frontier, then replace it with its children as they are the only new candidates
+    		int heapIndex = frontier[0];
+    		frontier[0] = frontier[--frontierSize];
+    		frontierTrickleDown();
+
+    		int lastChild = Math.min(arity*heapIndex + arity, size - 1);
+    		for (int childIndex = arity*heapIndex + 1; childIndex <= lastChild; childIndex++)
+    		{
+    			frontierOffer(childIndex);
+    		}
+    		returnedCount++;
+    		return heapIndex;
+    	}
+
+    	private void frontierOffer(int heapIndex)
+    	{
+    		if (frontierSize == frontier.length)
+    		{
+    			frontier = Arrays.copyOf(frontier, frontierSize * 2);
+    		}
+    		int frontierIdx = frontierSize++;
+    		while (frontierIdx != 0 && compareAt(heapIndex, frontier[(frontierIdx - 1) / 2]) > 0)
+    		{
+    			frontier[frontierIdx] = frontier[(frontierIdx - 1) / 2];
+    			frontierIdx = (frontierIdx - 1) / 2;
+    		}
+    		frontier[frontierIdx] = heapIndex;
+    	}
+
+    	private void frontierTrickleDown()
+    	{
+    		int frontierIdx = 0;
+    		int heapIndex = frontier[0];
+    		while (2*frontierIdx + 1 < frontierSize)
+    		{
+    			int childIdx = 2*frontierIdx + 1;
+    			if (childIdx + 1 < frontierSize && compareAt(frontier[childIdx + 1], frontier[childIdx]) > 0)
+    			{
+    				childIdx++;
+    			}
+    			if (compareAt(heapIndex, frontier[childIdx]) >= 0)
+    			{
+    				break;
+    			}
+    			frontier[frontierIdx] = frontier[childIdx];
+    			frontierIdx = childIdx;
+    		}
+    		frontier[frontierIdx] = heapIndex;
+    	}
+    }
+
     @Override
-    public int size() 
+    public int size()
     {
         return size;
     }
 
     // add an element to the heap
     @Override
-    public boolean offer(E e) 
+    public boolean offer(E e)
     {
-    	heapStorage.add(e); //adds the element to the END of the array, not the beginning, this is important for maintaining heap structure at log(n) time
-    	size++; 
-    	trickleUp(heapStorage); // maintain the heap, starting at the element just added
-    	modificationCounter++; 
+    	long start = metrics == null ? 0 : metrics.startTimer();
+    	append(e);
+    	trickleUp(size - 1, e, isKeyed() ? keyCache[size - 1] : 0); // maintain the heap, starting at the element just added
+    	modificationCounter++;
+    	if (metrics != null)
+    	{
+    		metrics.offered(start);
+    		flushMetrics();
+    	}
         return true;
     }
 
+    /**
+     * Offers every element of col as one batch.
+     * The elements are appended first, then heap order is restored either by trickling each of them up or by rebuilding the whole heap
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> col)
+    {
+    	if (col == this)
+    	{
+    		throw new IllegalArgumentException("Cannot add a Heap to itself");
+    	}
+    	int firstAppended = size;
+    	ensureCapacity(size + col.size());
+    	try
+    	{
+    		for (E e : col)
+    		{
+    			append(e);
+    		}
+    	}
+    	finally
+    	{
+    		// Even if an element was rejected, the elements appended before it are part of the heap and must be put in heap order
+    		restoreOrderFrom(firstAppended);
+    		modificationCounter++;
+    		if (metrics != null)
+    		{
+    			metrics.offered(size - firstAppended);
+    			flushMetrics();
+    		}
+    	}
+    	return size > firstAppended;
+    }
+
+    /**
+     * Moves every element of other into this heap and leaves other empty, for combining the waitlists of two sections.
+     * Unlike addAll nothing is copied out of other first, the cached keys of other are reused when both heaps have the same key extractor,
+     * and when this heap is empty and orders its elements exactly like other the storage of other is already a heap and is taken as is
+     * @throws IllegalArgumentException - if this heap is position-indexed and already holds an element of other, neither heap is changed
+     */
+    public void merge(Heap<E> other)
+    {
+    	if (other == this)
+    	{
+    		throw new IllegalArgumentException("Cannot merge a Heap with itself");
+    	}
+    	int firstAppended = size;
+    	int mergedCount = other.size;
+    	if (mergedCount == 0)
+    	{
+    		return;
+    	}
+    	if (isPositionIndexed())
+    	{
+    		int indexedCount = 0;
+    		try
+    		{
+    			for (; indexedCount < mergedCount; indexedCount++)
+    			{
+    				indexElement(other.elementAt(indexedCount), firstAppended + indexedCount);
+    			}
+    		}
+    		catch (IllegalArgumentException e)
+    		{
+    			for (int index = 0; index < indexedCount; index++)
+    			{
+    				positionIndex.remove(other.heapStorage[index]);
+    			}
+    			throw e;
+    		}
+    	}
+    	ensureCapacity(firstAppended + mergedCount);
+    	System.arraycopy(other.heapStorage, 0, heapStorage, firstAppended, mergedCount);
+    	if (isKeyed())
+    	{
+    		if (keyExtractor == other.keyExtractor)
+    		{
+    			System.arraycopy(other.keyCache, 0, keyCache, firstAppended, mergedCount);
+    		}
+    		else
+    		{
+    			for (int index = firstAppended; index < firstAppended + mergedCount; index++)
+    			{
+    				keyCache[index] = keyExtractor.applyAsDouble(elementAt(index));
+    			}
+    		}
+    	}
+    	size += mergedCount;
+    	other.clear();
+    	for (int index = firstAppended; index < size; index++)
+    	{
+    		listenTo(elementAt(index));
+    	}
+
+    	if (firstAppended != 0 || !ordersLike(other))
+    	{
+    		restoreOrderFrom(firstAppended);
+    	}
+    	modificationCounter++;
+    	if (metrics != null)
+    	{
+    		metrics.offered(mergedCount);
+    		flushMetrics();
+    	}
+    }
+
+    // True if this heap and other place the same elements in the same slots: the same arity, and the same key extractor or comparator
+    private boolean ordersLike(Heap<E> other)
+    {
+    	if (arity != other.arity || isKeyed() != other.isKeyed())
+    	{
+    		return false;
+    	}
+    	return isKeyed() ? keyExtractor == other.keyExtractor : comparator().equals(other.comparator());
+    }
+
+    // Puts the elements appended from firstAppended on into heap order, by trickling each of them up or, when there are enough of them
+    // that k*log(n) exceeds n, by rebuilding the whole heap bottom up in O(n)
+    private void restoreOrderFrom(int firstAppended)
+    {
+    	int appendedCount = size - firstAppended;
+    	int log2Size = 32 - Integer.numberOfLeadingZeros(size);
+    	if ((long) appendedCount * log2Size > size)
+    	{
+    		createHeapStructure(false);
+    	}
+    	else
+    	{
+    		for (int heapIndex = firstAppended; heapIndex < size; heapIndex++)
+    		{
+    			trickleUp(heapIndex, elementAt(heapIndex), isKeyed() ? keyCache[heapIndex] : 0);
+    		}
+    	}
+    }
+
+    // Adds e to the END of the array without restoring heap order, the caller is responsible for trickling it up or rebuilding the heap
+    private void append(E e)
+    {
+    	if (e == null)
+    	{
+    		throw new NullPointerException();
+    	}
+    	if (isPositionIndexed())
+    	{
+    		indexElement(e, size);
+    	}
+    	ensureCapacity(size + 1);
+    	heapStorage[size] = e; //adds the element to the END of the array, not the beginning, this is important for maintaining heap structure at log(n) time
+    	if (isKeyed())
+    	{
+    		keyCache[size] = keyExtractor.applyAsDouble(e); // the key is computed once here and reused by every comparison until updatePriority
+    	}
+    	size++;
+    	listenTo(e);
+    }
+
     // Return the element at the head of the heap, and remove it
     @Override
     public E poll()
@@ -290,27 +1221,31 @@ public final class Heap<E extends Comparable<E>> extends AbstractQueue<E>
     	{
     		return null;
     	}
+    	else if (metrics == null)
+    	{
+    		modificationCounter++;
+    		return removeAt(0); // the last element replaces the head and trickles down to maintain the heap
+    	}
     	else
     	{
-    		E headOfHeap = heapStorage.get(0); //Must save the head of the heap in a temporary variable so it can be returned by the method later
-    		heapStorage.set(0, heapStorage.get(size-1));
-    		heapStorage.remove(size - 1);
-    		size--;
-    		trickleDown(heapStorage,0); // maintain the heap starting at its head
+    		long start = metrics.startTimer();
     		modificationCounter++;
-	        return headOfHeap;
+    		E head = removeAt(0);
+    		metrics.polled(start);
+    		flushMetrics();
+    		return head;
     	}
     }
 
     // Return the element at the head of the heap, but don't remove it
     @Override
-    public E peek() 
+    public E peek()
     {
     	if (size==0)
     	{
     		return null;
     	}
 
-    	return heapStorage.get(0);
+    	return elementAt(0);
     }
 }
@@ -0,0 +1,139 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A feed with millions of bad rows must not need millions of Reject objects, only the first maxRecordedRejects are kept while every reject is counted
+ */
+package WaitlistProj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Collects the outcome of a StudentImporter run: how many rows became students, and why every other row was rejected
+public class ImportReport
+{
+	public static final int DEFAULTMAXRECORDEDREJECTS = 1000;
+	
+	private final int maxRecordedRejects;
+	private long acceptedCount; // Rows that became students
+	private long rejectCount; // Rows that were rejected, including those beyond maxRecordedRejects
+	private final List<Reject> rejects; // The first maxRecordedRejects rejects in file order
+	
+	// A row of the feed that did not become a student
+	public static final class Reject
+	{
+		private final long lineNumber; // Starts at 1 for the first line of the file, header included
+		private final String reason;
+		private final String row;
+		
+		public Reject(long lineNumber, String reason, String row)
+		{
+			this.lineNumber = lineNumber;
+			this.reason = reason;
+			this.row = row;
+		}
+		
+		public long getLineNumber()
+		{
+			return lineNumber;
+		}
+		
+		public String getReason()
+		{
+			return reason;
+		}
+		
+		public String getRow()
+		{
+			return row;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return "Line " + lineNumber + ": " + reason + ": " + row;
+		}
+	}
+	
+	public ImportReport()
+	{
+		this(DEFAULTMAXRECORDEDREJECTS);
+	}
+	
+	/**
+	 * 
+	 * @param maxRecordedRejects - the number of rejects kept for getRejects, every reject is still counted by getRejectCount
+	 */
+	public ImportReport(int maxRecordedRejects)
+	{
+		if (maxRecordedRejects < 0)
+		{
+			throw new IllegalArgumentException("maxRecordedRejects cannot be negative: " + maxRecordedRejects);
+		}
+		this.maxRecordedRejects = maxRecordedRejects;
+		acceptedCount = 0;
+		rejectCount = 0;
+		rejects = new ArrayList<Reject>();
+	}
+	
+	public long getAcceptedCount()
+	{
+		return acceptedCount;
+	}
+	
+	public long getRejectCount()
+	{
+		return rejectCount;
+	}
+	
+	public boolean hasRejects()
+	{
+		return rejectCount > 0;
+	}
+	
+	// The first rejects in file order, at most maxRecordedRejects of them
+	public List<Reject> getRejects()
+	{
+		return Collections.unmodifiableList(rejects);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "Accepted: " + acceptedCount + "   Rejected: " + rejectCount;
+	}
+	
+	void accept()
+	{
+		acceptedCount++;
+	}
+	
+	void reject(long lineNumber, String reason, String row)
+	{
+		if (rejects.size() < maxRecordedRejects)
+		{
+			rejects.add(new Reject(lineNumber, reason, row));
+		}
+		rejectCount++;
+	}
+	
+	// Adds the outcome of a later part of the same file, whose line numbers start after lineOffset lines
+	void merge(ImportReport part, long lineOffset)
+	{
+		for (Reject partReject : part.rejects)
+		{
+			if (rejects.size() == maxRecordedRejects)
+			{
+				break;
+			}
+			rejects.add(new Reject(partReject.getLineNumber() + lineOffset, partReject.getReason(), partReject.getRow()));
+		}
+		acceptedCount += part.acceptedCount;
+		rejectCount += part.rejectCount;
+	}
+	
+	int getMaxRecordedRejects()
+	{
+		return maxRecordedRejects;
+	}
+}
@@ -0,0 +1,22 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Implemented by PluggableCommands, the payload names its target rather than holding it, e.g. by section id,
+ * 		so that a CommandDecoder can find the target again after a restart
+ */
+package WaitlistProj;
+
+import java.nio.ByteBuffer;
+
+// A command that a CommandJournal can write to disk as a type id and a compact payload of its arguments
+public interface JournaledCommand
+{
+	// Identifies the kind of command to the CommandDecoder, never negative, negative ids are reserved for the markers of the journal
+	public byte typeId();
+	
+	// An upper bound on the number of bytes writePayload will write
+	public int maxPayloadSize();
+	
+	// Writes the arguments of this command at the position of out, out is guaranteed to have at least maxPayloadSize() bytes remaining
+	public void writePayload(ByteBuffer out);
+}
@@ -0,0 +1,154 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Latencies are in nanoseconds and never negative, a negative latency is recorded as 0
+ * 	- Percentiles are estimates: each power of two is split into SUBBUCKETS buckets, so a percentile is within 25% of the true value
+ */
+package WaitlistProj;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// A thread safe log-linear histogram of latencies, record is a pair of LongAdder increments and never allocates or locks
+public class LatencyHistogram
+{
+	private static final int SUBBUCKETBITS = 2;
+	private static final int SUBBUCKETS = 1 << SUBBUCKETBITS; // Buckets per power of two
+	private static final int BUCKETCOUNT = (Long.SIZE - SUBBUCKETBITS + 1) * SUBBUCKETS;
+	
+	private final LongAdder[] buckets;
+	private final LongAdder total; // The sum of every recorded latency
+	private final LongAccumulator max;
+	
+	public LatencyHistogram()
+	{
+		buckets = new LongAdder[BUCKETCOUNT];
+		for (int index = 0; index < BUCKETCOUNT; index++)
+		{
+			buckets[index] = new LongAdder();
+		}
+		total = new LongAdder();
+		max = new LongAccumulator(Math::max, 0);
+	}
+	
+	public void record(long nanos)
+	{
+		nanos = Math.max(nanos, 0);
+		buckets[bucketOf(nanos)].increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+	
+	// Not atomic with respect to concurrent records, a record that races with reset may be kept or lost
+	public void reset()
+	{
+		for (LongAdder bucket : buckets)
+		{
+			bucket.reset();
+		}
+		total.reset();
+		max.reset();
+	}
+	
+	public Snapshot snapshot()
+	{
+		long[] counts = new long[BUCKETCOUNT];
+		for (int index = 0; index < BUCKETCOUNT; index++)
+		{
+			counts[index] = buckets[index].sum();
+		}
+		return new Snapshot(counts, total.sum(), max.get());
+	}
+	
+	// Values below SUBBUCKETS get a bucket each, above that the bucket is the power of two plus the next SUBBUCKETBITS bits below the top bit
+	static int bucketOf(long nanos)
+	{
+		if (nanos < SUBBUCKETS)
+		{
+			return (int) nanos;
+		}
+		int topBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (topBit - SUBBUCKETBITS)) & (SUBBUCKETS - 1);
+		return (topBit - SUBBUCKETBITS + 1) * SUBBUCKETS + subBucket;
+	}
+	
+	// The largest latency that falls in bucket
+	static long upperBoundOf(int bucket)
+	{
+		if (bucket < SUBBUCKETS)
+		{
+			return bucket;
+		}
+		int topBit = bucket / SUBBUCKETS + SUBBUCKETBITS - 1;
+		long lowerBound = (1L << topBit) | ((long) (bucket % SUBBUCKETS) << (topBit - SUBBUCKETBITS));
+		return lowerBound + (1L << (topBit - SUBBUCKETBITS)) - 1;
+	}
+	
+	// The counts of a histogram at one instant, not changed by later records
+	public static final class Snapshot
+	{
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+		
+		Snapshot(long[] counts, long total, long max)
+		{
+			this.counts = counts;
+			long count = 0;
+			for (long bucketCount : counts)
+			{
+				count += bucketCount;
+			}
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+		
+		public long getCount()
+		{
+			return count;
+		}
+		
+		public long getMaxNanos()
+		{
+			return max;
+		}
+		
+		public double getMeanNanos()
+		{
+			return count == 0 ? 0 : (double) total / count;
+		}
+		
+		/**
+		 * 
+		 * @param percentile - between 0 and 100, e.g. 99 for the p99
+		 * @return the upper bound of the bucket holding the percentile, capped by the largest latency recorded, 0 if nothing was recorded
+		 */
+		public long getPercentileNanos(double percentile)
+		{
+			if (percentile < 0 || percentile > 100)
+			{
+				throw new IllegalArgumentException("A percentile must be between 0 and 100: " + percentile);
+			}
+			long rank = (long) Math.ceil(count * percentile / 100);
+			long seen = 0;
+			for (int bucket = 0; bucket < counts.length; bucket++)
+			{
+				seen += counts[bucket];
+				if (seen >= Math.max(rank, 1))
+				{
+					return Math.min(upperBoundOf(bucket), max);
+				}
+			}
+			return 0;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return "count=" + count + " mean=" + Math.round(getMeanNanos()) + "ns p50=" + getPercentileNanos(50) + "ns p99=" + getPercentileNanos(99) 
+					+ "ns max=" + max + "ns";
+		}
+	}
+}
@@ -0,0 +1,394 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Students are copied in by offer and copied out by peek and poll, so the Student returned is never the same object that was offered
+ * 		and changing it does not change the waitlist; students are therefore matched by red id rather than by reference. A student whose
+ * 		GPA or units taken change has to be removed and offered again, there is no object in the waitlist to listen to the change
+ * 	- Like StudentWaitlist, each student's priority key is computed once by offer
+ * 	- Java 17 has no final MemorySegment API, so the storage is direct ByteBuffers, each of which is limited to 2GiB
+ * 	- Like Heap, the iterator does not enforce priority order
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractQueue;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary max heap of students stored outside the java heap, for waitlists of millions of students that should not weigh on the garbage collector.
+ * 
+ * The heap itself is an array of fixed width entries in a direct ByteBuffer, a float priority key and the int offset of the student's record,
+ * so sifting compares floats and moves 8 bytes without touching a record. Records are encoded by StudentCodec into a second direct ByteBuffer,
+ * an arena that records are appended to; records of students that have left are garbage until the arena is compacted, which happens once
+ * there is more garbage than live records. However many students it holds, the waitlist is a handful of objects to the garbage collector
+ */
+public class OffHeapWaitlist extends AbstractQueue<Student>
+{
+	private static final int DEFAULTCAPACITY = 1024; // Entries
+	private static final int ENTRYSIZE = Float.BYTES + Integer.BYTES; // The priority key and the offset of the record
+	private static final int MINCOMPACTIONBYTES = 1 << 16; // The arena is not compacted for less garbage than this
+	private static final StudentCodec CODEC = new StudentCodec();
+	
+	private ByteBuffer entries; // entries of the heap in heap order, size of them are in use
+	private ByteBuffer arena; // The records, arenaEnd bytes of it are in use
+	private int size;
+	private int arenaEnd; // Where the next record is appended
+	private int garbageBytes; // Bytes of the arena taken up by records of students that have left the waitlist
+	private long modificationCounter; // Used by the iterator to detect the waitlist being modified while iterating
+	private final StudentPriorityKey priorityKey;
+	
+	public OffHeapWaitlist()
+	{
+		this(StudentPriorityKey.gpa()); // GPA matches the natural order of Student
+	}
+	
+	public OffHeapWaitlist(StudentPriorityKey priorityKey)
+	{
+		this(DEFAULTCAPACITY, priorityKey);
+	}
+	
+	/**
+	 * 
+	 * @param initialCapacity - the number of students the waitlist can hold before its entries have to grow, records take about 64 bytes each on top
+	 */
+	public OffHeapWaitlist(int initialCapacity, StudentPriorityKey priorityKey)
+	{
+		if (initialCapacity < 1)
+		{
+			throw new IllegalArgumentException("Initial capacity must be at least 1: " + initialCapacity);
+		}
+		entries = ByteBuffer.allocateDirect(initialCapacity * ENTRYSIZE).order(ByteOrder.nativeOrder());
+		arena = ByteBuffer.allocateDirect(initialCapacity * 64); // Big endian like every buffer StudentCodec reads, slices included
+		size = 0;
+		arenaEnd = 0;
+		garbageBytes = 0;
+		modificationCounter = 0;
+		this.priorityKey = priorityKey;
+	}
+	
+	public StudentPriorityKey priorityKey()
+	{
+		return priorityKey;
+	}
+	
+	// The bytes of direct memory the waitlist holds, including room it has not used yet
+	public long offHeapBytes()
+	{
+		return (long) entries.capacity() + arena.capacity();
+	}
+	
+	// The bytes of the arena taken up by the records of the students in the waitlist
+	public int liveRecordBytes()
+	{
+		return arenaEnd - garbageBytes;
+	}
+	
+	private float keyAt(int heapIndex)
+	{
+		return entries.getFloat(heapIndex * ENTRYSIZE);
+	}
+	
+	private int recordAt(int heapIndex)
+	{
+		return entries.getInt(heapIndex * ENTRYSIZE + Float.BYTES);
+	}
+	
+	private void putEntry(int heapIndex, float key, int record)
+	{
+		entries.putFloat(heapIndex * ENTRYSIZE, key);
+		entries.putInt(heapIndex * ENTRYSIZE + Float.BYTES, record);
+	}
+	
+	// Moves the hole at heapIndex towards the head until the entry of key and record fits there
+	private void trickleUp(int heapIndex, float key, int record)
+	{
+		while (heapIndex != 0)
+		{
+			int parentIndex = (heapIndex - 1) / 2;
+			float parentKey = keyAt(parentIndex);
+			if (key <= parentKey)
+			{
+				break;
+			}
+			putEntry(heapIndex, parentKey, recordAt(parentIndex));
+			heapIndex = parentIndex;
+		}
+		putEntry(heapIndex, key, record);
+	}
+	
+	// Moves the hole at heapIndex towards the leaves until the entry of key and record fits there
+	private void trickleDown(int heapIndex, float key, int record)
+	{
+		int half = size / 2; // Every index below half has at least a left child
+		while (heapIndex < half)
+		{
+			int childIndex = 2 * heapIndex + 1;
+			float childKey = keyAt(childIndex);
+			int rightChildIndex = childIndex + 1;
+			if (rightChildIndex < size && keyAt(rightChildIndex) >= childKey)
+			{
+				childIndex = rightChildIndex;
+				childKey = keyAt(rightChildIndex);
+			}
+			if (key >= childKey)
+			{
+				break;
+			}
+			putEntry(heapIndex, childKey, recordAt(childIndex));
+			heapIndex = childIndex;
+		}
+		putEntry(heapIndex, key, record);
+	}
+	
+	// Removes the entry at heapIndex by moving the last entry into the hole and sifting it into place, returns the record of the removed entry
+	private int removeAt(int heapIndex)
+	{
+		int removedRecord = recordAt(heapIndex);
+		size--;
+		float lastKey = keyAt(size);
+		int lastRecord = recordAt(size);
+		
+		if (heapIndex != size)
+		{
+			trickleDown(heapIndex, lastKey, lastRecord);
+			if (recordAt(heapIndex) == lastRecord)
+			{
+				trickleUp(heapIndex, lastKey, lastRecord);
+			}
+		}
+		garbageBytes += recordLength(removedRecord);
+		modificationCounter++;
+		return removedRecord;
+	}
+	
+	@Override
+	public boolean offer(Student student)
+	{
+		if (student == null)
+		{
+			throw new NullPointerException();
+		}
+		if ((size + 1) * ENTRYSIZE > entries.capacity())
+		{
+			entries = grow(entries, size * ENTRYSIZE, (long) size * ENTRYSIZE * 2);
+		}
+		int record = appendRecord(student);
+		size++;
+		trickleUp(size - 1, priorityKey.priorityOf(student), record);
+		modificationCounter++;
+		return true;
+	}
+	
+	// The student is decoded from its record, the record itself is garbage from now on
+	@Override
+	public Student poll()
+	{
+		if (size == 0)
+		{
+			return null;
+		}
+		Student head = readRecord(recordAt(0));
+		removeAt(0);
+		compactIfWasteful();
+		return head;
+	}
+	
+	// Decodes a new Student from the record of the head on every call
+	@Override
+	public Student peek()
+	{
+		if (size == 0)
+		{
+			return null;
+		}
+		return readRecord(recordAt(0));
+	}
+	
+	// Returns the precomputed priority of the head of the waitlist without decoding it, throws NoSuchElementException if it is empty
+	public float peekPriority()
+	{
+		if (size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		return keyAt(0);
+	}
+	
+	// Removes the student with redId, O(n) as every record is checked, only the red id of each is read
+	public boolean removeByRedId(String redId)
+	{
+		int index = indexOfRedId(redId);
+		if (index < 0)
+		{
+			return false;
+		}
+		removeAt(index);
+		compactIfWasteful();
+		return true;
+	}
+	
+	public boolean containsRedId(String redId)
+	{
+		return indexOfRedId(redId) >= 0;
+	}
+	
+	// The students offered are never in the waitlist themselves, so a student is looked up by red id
+	@Override
+	public boolean remove(Object o)
+	{
+		return o instanceof Student && removeByRedId(((Student) o).getRedId());
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		return o instanceof Student && containsRedId(((Student) o).getRedId());
+	}
+	
+	// The direct memory is kept for the next students, only the counters are reset
+	@Override
+	public void clear()
+	{
+		size = 0;
+		arenaEnd = 0;
+		garbageBytes = 0;
+		modificationCounter++;
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public Iterator<Student> iterator()
+	{
+		return new WaitlistIterator();
+	}
+	
+	// Iterates over the students in heap order, not priority order, decoding each one as it is returned
+	class WaitlistIterator implements Iterator<Student>
+	{
+		private int iterIdx; // index of the next student to be returned
+		private final long modCounter; // should remain equal to modificationCounter while the iterator is being used
+		
+		public WaitlistIterator()
+		{
+			iterIdx = 0;
+			modCounter = modificationCounter;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			if (modCounter != modificationCounter)
+			{
+				throw new ConcurrentModificationException();
+			}
+			return iterIdx < size;
+		}
+		
+		@Override
+		public Student next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			return readRecord(recordAt(iterIdx++));
+		}
+	}
+	
+	// Records are an int length followed by the bytes StudentCodec wrote, returns the offset of the record
+	private int appendRecord(Student student)
+	{
+		int maxRecordSize = Integer.BYTES + CODEC.maxEncodedSize(student);
+		if ((long) arenaEnd + maxRecordSize > arena.capacity())
+		{
+			arena = grow(arena, arenaEnd, Math.max((long) arena.capacity() * 2, (long) arenaEnd + maxRecordSize));
+		}
+		ByteBuffer writer = arena.duplicate();
+		writer.position(arenaEnd + Integer.BYTES);
+		CODEC.encode(student, writer);
+		int record = arenaEnd;
+		arena.putInt(record, writer.position() - record);
+		arenaEnd = writer.position();
+		return record;
+	}
+	
+	private int recordLength(int record)
+	{
+		return arena.getInt(record);
+	}
+	
+	private Student readRecord(int record)
+	{
+		ByteBuffer reader = arena.slice(record + Integer.BYTES, recordLength(record) - Integer.BYTES);
+		try
+		{
+			return CODEC.decode(reader);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e); // Only records written by appendRecord are ever read
+		}
+	}
+	
+	// The index of the entry whose record holds redId, comparing the encoded bytes so that no String is decoded
+	private int indexOfRedId(String redId)
+	{
+		byte[] wanted = redId == null ? null : redId.getBytes(StandardCharsets.UTF_8);
+		for (int index = 0; index < size; index++)
+		{
+			int position = recordAt(index) + Integer.BYTES;
+			int nameLength = arena.getInt(position);
+			position += Integer.BYTES + Math.max(nameLength, 0); // A null name is written with a length of -1
+			int redIdLength = arena.getInt(position);
+			position += Integer.BYTES;
+			if (wanted == null ? redIdLength == -1 : redIdLength == wanted.length && arena.slice(position, redIdLength).equals(ByteBuffer.wrap(wanted)))
+			{
+				return index;
+			}
+		}
+		return -1;
+	}
+	
+	// Copies every live record into a new arena, in heap order, once garbage outweighs the live records
+	private void compactIfWasteful()
+	{
+		if (garbageBytes < MINCOMPACTIONBYTES || garbageBytes < liveRecordBytes())
+		{
+			return;
+		}
+		ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(2 * liveRecordBytes(), MINCOMPACTIONBYTES));
+		for (int index = 0; index < size; index++)
+		{
+			int record = recordAt(index);
+			int length = recordLength(record);
+			entries.putInt(index * ENTRYSIZE + Float.BYTES, compacted.position());
+			compacted.put(arena.slice(record, length));
+		}
+		arenaEnd = compacted.position();
+		garbageBytes = 0;
+		arena = compacted;
+	}
+	
+	// A new direct buffer of newCapacity bytes holding the first used bytes of buffer, the old buffer is freed once it is garbage collected
+	private static ByteBuffer grow(ByteBuffer buffer, int used, long newCapacity)
+	{
+		if (newCapacity > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("An OffHeapWaitlist buffer cannot grow past 2GiB");
+		}
+		ByteBuffer grown = ByteBuffer.allocateDirect((int) newCapacity).order(buffer.order());
+		grown.put(buffer.slice(0, used));
+		return grown;
+	}
+}
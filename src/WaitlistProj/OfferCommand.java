@@ -0,0 +1,72 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The undo removes each offered element by reference, O(log(n)) each on a position indexed queue and O(n) each otherwise
+ */
+package WaitlistProj;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Offers elements to a PriorityQueue. Adjacent OfferCommands on the same queue coalesce into one addAll, which heapifies in bulk
+public class OfferCommand<E extends Comparable<E>> extends PluggableCommand
+{
+	private final PriorityQueue<E> target;
+	private final List<E> elements; // Grows as later commands are coalesced into this one
+	
+	public OfferCommand(PriorityQueue<E> target, E element)
+	{
+		this.target = target;
+		elements = new ArrayList<E>();
+		elements.add(element);
+	}
+	
+	@Override
+	public void execute()
+	{
+		if (elements.size() == 1)
+		{
+			target.offer(elements.get(0));
+		}
+		else
+		{
+			target.addAll(elements);
+		}
+	}
+	
+	// The elements offered, including those of commands coalesced into this one
+	protected List<E> elements()
+	{
+		return elements;
+	}
+	
+	@Override
+	public void undo()
+	{
+		for (int index = elements.size() - 1; index >= 0; index--)
+		{
+			target.remove(elements.get(index));
+		}
+	}
+	
+	// The elements themselves are shared with the queue, only the references to them count
+	@Override
+	public long estimatedBytes()
+	{
+		return 40 + 8L * elements.size();
+	}
+	
+	@Override
+	public boolean coalesce(PluggableCommand next)
+	{
+		// Same class as well as same target, a subclass may carry more than the elements, see SectionOfferCommand
+		if (next.getClass() == getClass() && ((OfferCommand<?>) next).target == target)
+		{
+			@SuppressWarnings("unchecked")
+			OfferCommand<E> nextOffer = (OfferCommand<E>) next;
+			elements.addAll(nextOffer.elements);
+			return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,329 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The fields the comparator depends on must not change while an element is in any version of the heap, every version shares the element
+ * 	- Elements are matched by reference (==), like Heap
+ * 	- Immutable, so any version can be read by any number of threads without locking
+ */
+package WaitlistProj;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable leftist max heap. Every change returns a new heap that shares all of its unchanged nodes with the heap it was made from,
+ * so keeping an old version costs nothing and going back to one is a pointer swap.
+ * 
+ * Every node's right spine is no longer than its left one, so merging walks at most O(log(n)) nodes down the right spines of the two heaps,
+ * and only those nodes are copied. with, withoutHead and merge are O(log(n)) time and allocate O(log(n)) nodes,
+ * without and contains search every node of at least the priority of the element, O(n), but without only copies the path to the removed node
+ */
+public final class PersistentHeap<E extends Comparable<E>> implements Iterable<E>
+{
+	private final Node<E> root; // null for an empty heap
+	private final Comparator<E> compareMethod; // The algorithm used to compare two objects with in the heap
+	
+	private PersistentHeap(Node<E> root, Comparator<E> compareMethod)
+	{
+		this.root = root;
+		this.compareMethod = compareMethod;
+	}
+	
+	// An empty heap ordered by compareMethod, null for the natural ordering of E
+	public static <E extends Comparable<E>> PersistentHeap<E> empty(Comparator<E> compareMethod)
+	{
+		return new PersistentHeap<E>(null, compareMethod == null ? Comparator.naturalOrder() : compareMethod);
+	}
+	
+	// Builds a heap of every element of col in O(n) by merging the elements pairwise, round after round, rather than adding them one at a time
+	public static <E extends Comparable<E>> PersistentHeap<E> of(Collection<? extends E> col, Comparator<E> compareMethod)
+	{
+		PersistentHeap<E> heap = empty(compareMethod);
+		return col.isEmpty() ? heap : new PersistentHeap<E>(heap.build(col), heap.compareMethod);
+	}
+	
+	public Comparator<E> comparator()
+	{
+		return compareMethod;
+	}
+	
+	public int size()
+	{
+		return root == null ? 0 : root.size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return root == null;
+	}
+	
+	// Returns the highest priority element, null if the heap is empty
+	public E peek()
+	{
+		return root == null ? null : root.element;
+	}
+	
+	// A heap that also holds element
+	public PersistentHeap<E> with(E element)
+	{
+		if (element == null)
+		{
+			throw new NullPointerException();
+		}
+		return new PersistentHeap<E>(merge(root, new Node<E>(element, null, null)), compareMethod);
+	}
+	
+	// A heap without the highest priority element, this heap if it is empty
+	public PersistentHeap<E> withoutHead()
+	{
+		return root == null ? this : new PersistentHeap<E>(merge(root.left, root.right), compareMethod);
+	}
+	
+	// A heap that holds the elements of both heaps, other must have the same ordering as this heap
+	public PersistentHeap<E> merge(PersistentHeap<E> other)
+	{
+		if (other.compareMethod != compareMethod)
+		{
+			throw new IllegalArgumentException("Cannot merge heaps with different comparators");
+		}
+		return other.root == null ? this : new PersistentHeap<E>(merge(root, other.root), compareMethod);
+	}
+	
+	// A heap that also holds every element of col, col is built into a heap on its own then merged in
+	public PersistentHeap<E> withAll(Collection<? extends E> col)
+	{
+		return col.isEmpty() ? this : new PersistentHeap<E>(merge(root, build(col)), compareMethod);
+	}
+	
+	// A heap without o, this heap if it does not hold o
+	public PersistentHeap<E> without(Object o)
+	{
+		NodePath<E> path = find(o);
+		if (path == null)
+		{
+			return this;
+		}
+		
+		// Replace the node with the merge of its children, then copy every ancestor on the way back up to point at its new child
+		Node<E> child = path.nodes[path.depth - 1];
+		Node<E> replacement = merge(child.left, child.right);
+		for (int index = path.depth - 2; index >= 0; index--)
+		{
+			Node<E> parent = path.nodes[index];
+			replacement = parent.left == child ? makeNode(parent.element, replacement, parent.right) : makeNode(parent.element, parent.left, replacement);
+			child = parent;
+		}
+		return new PersistentHeap<E>(replacement, compareMethod);
+	}
+	
+	public boolean contains(Object o)
+	{
+		return find(o) != null;
+	}
+	
+	// Returns the elements in no particular order, every version is immutable so the iterator can never be invalidated
+	@Override
+	public Iterator<E> iterator()
+	{
+		return new NodeIterator();
+	}
+	
+	// The heap is walked with an explicit stack, a leftist heap's left spine can be as long as the heap
+	class NodeIterator implements Iterator<E>
+	{
+		private final ArrayDeque<Node<E>> pending; // Nodes whose element has not been returned yet
+		
+		public NodeIterator()
+		{
+			pending = new ArrayDeque<Node<E>>();
+			if (root != null)
+			{
+				pending.push(root);
+			}
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			return !pending.isEmpty();
+		}
+		
+		@Override
+		public E next()
+		{
+			if (pending.isEmpty())
+			{
+				throw new NoSuchElementException();
+			}
+			Node<E> node = pending.pop();
+			if (node.right != null)
+			{
+				pending.push(node.right);
+			}
+			if (node.left != null)
+			{
+				pending.push(node.left);
+			}
+			return node.element;
+		}
+	}
+	
+	// Merges along the right spines, the recursion is only as deep as those spines are long, O(log(n))
+	private Node<E> merge(Node<E> first, Node<E> second)
+	{
+		if (first == null)
+		{
+			return second;
+		}
+		if (second == null)
+		{
+			return first;
+		}
+		// The higher priority root stays on top, on a tie the root of first does
+		if (compareMethod.compare(second.element, first.element) > 0)
+		{
+			Node<E> swap = first;
+			first = second;
+			second = swap;
+		}
+		return makeNode(first.element, first.left, merge(first.right, second));
+	}
+	
+	// Puts the child with the shorter right spine on the right, which is what keeps every right spine O(log(n)) long
+	private static <E> Node<E> makeNode(E element, Node<E> first, Node<E> second)
+	{
+		return rank(first) >= rank(second) ? new Node<E>(element, first, second) : new Node<E>(element, second, first);
+	}
+	
+	private static int rank(Node<?> node)
+	{
+		return node == null ? 0 : node.rank;
+	}
+	
+	private Node<E> build(Collection<? extends E> col)
+	{
+		ArrayDeque<Node<E>> round = new ArrayDeque<Node<E>>(col.size());
+		for (E element : col)
+		{
+			if (element == null)
+			{
+				throw new NullPointerException();
+			}
+			round.add(new Node<E>(element, null, null));
+		}
+		while (round.size() > 1)
+		{
+			round.add(merge(round.poll(), round.poll()));
+		}
+		return round.poll();
+	}
+	
+	/**
+	 * The path from the root to the node holding o, null if no node holds it.
+	 * No node below one of lower priority than o can hold o, so those subtrees are skipped, which matters most when o is of low priority
+	 */
+	private NodePath<E> find(Object o)
+	{
+		if (root == null || o == null)
+		{
+			return null;
+		}
+		E element;
+		try
+		{
+			@SuppressWarnings("unchecked")
+			E castElement = (E) o;
+			compareMethod.compare(castElement, root.element);
+			element = castElement;
+		}
+		catch (ClassCastException e)
+		{
+			return null; // Not an element this heap could hold
+		}
+		
+		NodePath<E> path = new NodePath<E>();
+		path.push(root);
+		while (path.depth > 0)
+		{
+			Node<E> node = path.nodes[path.depth - 1];
+			byte visited = path.visited[path.depth - 1]++;
+			if (visited == 0)
+			{
+				if (node.element == o)
+				{
+					return path;
+				}
+				if (compareMethod.compare(node.element, element) < 0)
+				{
+					path.depth--;
+				}
+				else if (node.left != null)
+				{
+					path.push(node.left);
+				}
+			}
+			else if (visited == 1)
+			{
+				if (node.right != null)
+				{
+					path.push(node.right);
+				}
+			}
+			else
+			{
+				path.depth--;
+			}
+		}
+		return null;
+	}
+	
+	// A node is never changed once it is made, which is what lets every version of the heap share it
+	static final class Node<E>
+	{
+		final E element;
+		final Node<E> left;
+		final Node<E> right;
+		final int rank; // The length of the right spine of this node, the shortest path to a missing child
+		final int size; // The number of elements in the subtree of this node
+		
+		Node(E element, Node<E> left, Node<E> right)
+		{
+			this.element = element;
+			this.left = left;
+			this.right = right;
+			rank = 1 + rank(right);
+			size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+		}
+	}
+	
+	// The stack of a depth first search, visited counts how many of the node itself, its left child and its right child were visited
+	static final class NodePath<E>
+	{
+		Node<E>[] nodes;
+		byte[] visited;
+		int depth;
+		
+		@SuppressWarnings("unchecked")
+		NodePath()
+		{
+			nodes = (Node<E>[]) new Node<?>[32];
+			visited = new byte[32];
+			depth = 0;
+		}
+		
+		void push(Node<E> node)
+		{
+			if (depth == nodes.length)
+			{
+				nodes = Arrays.copyOf(nodes, 2 * depth);
+				visited = Arrays.copyOf(visited, 2 * depth);
+			}
+			nodes[depth] = node;
+			visited[depth++] = 0;
+		}
+	}
+}
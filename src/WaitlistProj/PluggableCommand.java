@@ -3,6 +3,8 @@ package WaitlistProj;
 // Expected to be used in conjunction with lambda expressions
 public class PluggableCommand
 {
+	public static final long DEFAULTESTIMATEDBYTES = 64; // The command and its two lambdas, not counting whatever the lambdas capture
+	
 	Command doo; // the command to execute
 	Command undo; // the command to undo doo (generally is the inverse of doo)
 	
@@ -12,6 +14,12 @@ public class PluggableCommand
 		this.undo = undo;
 	}
 	
+	// For subclasses that override execute and undo rather than pass in lambdas
+	protected PluggableCommand()
+	{
+		
+	}
+	
 	public void execute()
 	{
 		doo.execute();
@@ -21,4 +29,20 @@ public class PluggableCommand
 	{
 		undo.execute();
 	}
+	
+	/**
+	 * Called by a batching CommandProcessor with the command queued right after this one, neither has executed yet.
+	 * A command that can do the work of both absorbs next into itself and returns true, next is then dropped from the batch
+	 * @return false, plain commands never coalesce
+	 */
+	public boolean coalesce(PluggableCommand next)
+	{
+		return false;
+	}
+	
+	// The bytes this command keeps alive while it is in a CommandProcessor history, override when a command holds more than its lambdas
+	public long estimatedBytes()
+	{
+		return DEFAULTESTIMATEDBYTES;
+	}
 }
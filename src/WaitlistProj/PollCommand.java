@@ -0,0 +1,100 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The undo offers the polled elements back, equal priority elements may come back in a different heap position than they left
+ * 	- A command coalesced into another still reports what it polled: the absorbing command keeps the first elements of the batch and hands
+ * 		the rest to the commands it absorbed, in the order they were coalesced, as if each had polled on its own
+ */
+package WaitlistProj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Polls the highest priority elements of a PriorityQueue. Adjacent PollCommands on the same queue coalesce into one pollTopK
+public class PollCommand<E extends Comparable<E>> extends PluggableCommand
+{
+	private final PriorityQueue<E> target;
+	private final int ownCount; // The count this command was created with
+	private int count; // Grows as later commands are coalesced into this one
+	private final List<PollCommand<E>> absorbed; // The commands coalesced into this one, each gets its share of polled
+	private List<E> polled; // What the last execute polled for this command and the ones it absorbed, in priority order
+	
+	public PollCommand(PriorityQueue<E> target)
+	{
+		this(target, 1);
+	}
+	
+	public PollCommand(PriorityQueue<E> target, int count)
+	{
+		if (count < 1)
+		{
+			throw new IllegalArgumentException("A PollCommand must poll at least one element: " + count);
+		}
+		this.target = target;
+		this.ownCount = count;
+		this.count = count;
+		absorbed = new ArrayList<PollCommand<E>>();
+		polled = Collections.emptyList();
+	}
+	
+	@Override
+	public void execute()
+	{
+		deliver(target.pollTopK(count));
+	}
+	
+	@Override
+	public void undo()
+	{
+		target.addAll(polled);
+		deliver(Collections.emptyList());
+	}
+	
+	// Keeps elements for this command and the commands it absorbed, the first ownCount are its own and the rest are split among the absorbed commands
+	private void deliver(List<E> elements)
+	{
+		polled = elements;
+		int start = Math.min(ownCount, elements.size());
+		for (PollCommand<E> next : absorbed)
+		{
+			int end = Math.min(start + next.count, elements.size());
+			next.deliver(elements.subList(start, end));
+			start = end;
+		}
+	}
+	
+	// The number of elements to poll, including those of commands coalesced into this one
+	protected int count()
+	{
+		return count;
+	}
+	
+	// The elements this command polled in the last execute, fewer than it was created with if the queue ran out. Elements polled on behalf of
+	// commands coalesced into this one are returned by their own getPolled
+	public List<E> getPolled()
+	{
+		return Collections.unmodifiableList(polled.subList(0, Math.min(ownCount, polled.size())));
+	}
+	
+	// The polled elements are only referenced by this command once they leave the queue, each is estimated as a 64 byte object
+	@Override
+	public long estimatedBytes()
+	{
+		return 40 + 40L * absorbed.size() + 64L * count;
+	}
+	
+	@SuppressWarnings("unchecked") // next has the same target, therefore the same element type
+	@Override
+	public boolean coalesce(PluggableCommand next)
+	{
+		if (next.getClass() == getClass() && ((PollCommand<?>) next).target == target)
+		{
+			PollCommand<E> nextPoll = (PollCommand<E>) next;
+			count += nextPoll.count;
+			absorbed.add(nextPoll);
+			return true;
+		}
+		return false;
+	}
+}
@@ -5,17 +5,18 @@
  * 	- PriorityQueue enforces that the objects that are used have implemented Comparable, the underlying data structure does not necessarily have to
  * 		force such implementation, although in this case Heap.java does
  *  - PriorityQueue does not need to keep track of the comparator method used sort by priority, as the heap will keep track of it
+ *  - PriorityQueue is not thread safe, threads that share a waitlist should use ConcurrentPriorityQueue instead
  */
 package WaitlistProj;
 
 import java.util.AbstractQueue;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.ToDoubleFunction;
 
 // E extends Comparable<E> ensures that the objects used in this priority queue implement Comparable and thus have the comparTo method
 // PriorityQueue extends AbstractQueue which implements Iterable and Collection interfaces in order to help with scalablity with other java objects
@@ -47,24 +48,94 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 		heap = new Heap<E>(col, compareMethod);
 		modificationCounter = 0;
 	}
+	
+	// A position-indexed PriorityQueue supports O(log(n)) remove, contains and updatePriority, see Heap for the restrictions this imposes
+	public PriorityQueue(Comparator<E> compareMethod, boolean positionIndexed)
+	{
+		heap = new Heap<E>(compareMethod, positionIndexed);
+		modificationCounter = 0;
+	}
+	
+	public PriorityQueue(Collection<? extends E> col, Comparator<E> compareMethod, boolean positionIndexed)
+	{
+		heap = new Heap<E>(col, compareMethod, positionIndexed);
+		modificationCounter = 0;
+	}
+	
+	// Pre-sizes the heap so that bulk loads of up to initialCapacity elements do not reallocate its storage
+	public PriorityQueue(int initialCapacity, Comparator<E> compareMethod)
+	{
+		heap = new Heap<E>(initialCapacity, compareMethod);
+		modificationCounter = 0;
+	}
+	
+	// arity is the number of children of every node of the underlying heap, wider heaps are shallower which favors poll over offer
+	public PriorityQueue(Comparator<E> compareMethod, boolean positionIndexed, int arity)
+	{
+		heap = new Heap<E>(compareMethod, positionIndexed, arity);
+		modificationCounter = 0;
+	}
+	
+	public PriorityQueue(Collection<? extends E> col, Comparator<E> compareMethod, boolean positionIndexed, int arity)
+	{
+		heap = new Heap<E>(col, compareMethod, positionIndexed, arity);
+		modificationCounter = 0;
+	}
+	
+	// A keyed PriorityQueue computes the priority of each element once on offer, see Heap for when keys are recomputed
+	public PriorityQueue(ToDoubleFunction<? super E> keyExtractor)
+	{
+		this(keyExtractor, false);
+	}
+	
+	public PriorityQueue(ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed)
+	{
+		heap = new Heap<E>(keyExtractor, positionIndexed);
+		modificationCounter = 0;
+	}
+	
+	public PriorityQueue(Collection<? extends E> col, ToDoubleFunction<? super E> keyExtractor)
+	{
+		this(col, keyExtractor, false);
+	}
+	
+	public PriorityQueue(Collection<? extends E> col, ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed)
+	{
+		heap = new Heap<E>(col, keyExtractor, positionIndexed);
+		modificationCounter = 0;
+	}
 
-	public boolean contains(E elementToCheck)
+	public PriorityQueue(ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed, int arity)
 	{
-		//Can use heap iterator because contains method does not care about order
-		for (E heapItem : heap)
-		{
-			if (elementToCheck == heapItem)
-			{
-				return true;
-			}
-		}
-		return false;
+		heap = new Heap<E>(keyExtractor, positionIndexed, arity);
+		modificationCounter = 0;
+	}
+	
+	public PriorityQueue(Collection<? extends E> col, ToDoubleFunction<? super E> keyExtractor, boolean positionIndexed, int arity)
+	{
+		heap = new Heap<E>(col, keyExtractor, positionIndexed, arity);
+		modificationCounter = 0;
+	}
+
+	// contains does not care about order, therefore the heap can answer it directly without building a PriorityIterator
+	@Override
+	public boolean contains(Object elementToCheck)
+	{
+		return heap.contains(elementToCheck);
 	}
 
 	public void clear()
 	{
+		modificationCounter++;
 		heap.clear();
 	}
+	
+	// Re-establishes priority order after a field used by the comparator of elementToUpdate has changed, this also recomputes its key in a keyed PriorityQueue
+	public boolean updatePriority(E elementToUpdate)
+	{
+		modificationCounter++;
+		return heap.updatePriority(elementToUpdate);
+	}
 
 	@Override
 	public int size()
@@ -80,6 +151,30 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 		return heap.offer(elementToBeOffered);
 	}
 
+	// Offers every element of col as one batch, large batches are heapified bottom up instead of one offer at a time
+	@Override
+	public boolean addAll(Collection<? extends E> col)
+	{
+		if (col == this)
+		{
+			throw new IllegalArgumentException("Cannot add a PriorityQueue to itself");
+		}
+		modificationCounter++;
+		return heap.addAll(col);
+	}
+
+	// Moves every element of other into this PriorityQueue and leaves other empty, cheaper than addAll followed by clear, see Heap.merge
+	public void merge(PriorityQueue<E> other)
+	{
+		if (other == this)
+		{
+			throw new IllegalArgumentException("Cannot merge a PriorityQueue with itself");
+		}
+		modificationCounter++;
+		other.modificationCounter++;
+		heap.merge(other.heap);
+	}
+
 	// Returns the highest priority element, but does not remove that element
 	@Override
 	public E peek() 
@@ -99,9 +194,35 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 	@Override
 	public boolean remove(Object o)
 	{
+		modificationCounter++;
 		return heap.remove(o);
 	}
 	
+	// Returns the k highest priority elements in priority order without removing them
+	public List<E> peekTopK(int k)
+	{
+		return heap.peekTopK(k);
+	}
+	
+	// Removes the k highest priority elements in one batch, cheaper than polling k times; returns them in priority order
+	public List<E> pollTopK(int k)
+	{
+		modificationCounter++;
+		return heap.pollTopK(k);
+	}
+	
+	// Moves up to maxElements of the highest priority elements into c, returns the number of elements moved
+	public int drainTo(Collection<? super E> c, int maxElements)
+	{
+		modificationCounter++;
+		return heap.drainTo(c, maxElements);
+	}
+	
+	public int drainTo(Collection<? super E> c)
+	{
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+	
 	// Follows javas standards for converting a collection to a string
 	@Override
 	public String toString()
@@ -115,6 +236,29 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 		return heap.toArray();
 	}
 	
+	// Opt in to re-sifting Students when their GPA or units taken change, best with a position-indexed PriorityQueue. See Heap.listenToPriorityChanges
+	public void listenToPriorityChanges(boolean listen)
+	{
+		heap.listenToPriorityChanges(listen);
+	}
+	
+	// Counts the operations of this PriorityQueue into metrics, including every PriorityIterator, null stops counting. See Heap.instrument
+	public void instrument(WaitlistMetrics metrics)
+	{
+		heap.instrument(metrics);
+	}
+	
+	public WaitlistMetrics metrics()
+	{
+		return heap.metrics();
+	}
+	
+	// The number of children of every node of the underlying heap
+	public int arity()
+	{
+		return heap.arity();
+	}
+	
 	// The heap is to keep track of the algorithm used to determine priority
 	public Comparator<E> comparator()
 	{
@@ -134,25 +278,16 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 		return new PriorityIterator();
 	}
 
+	// Walks the heap lazily in priority order, so taking the first k elements costs O(k log(k)) and nothing is copied
 	class PriorityIterator implements Iterator<E>
     {
-    	private int iterIdx; // Iterator index, to be used in the methods next and has next to access the elements of localArray
-    	private List<E> localArray; // an Arraylist to hold the elements of tempHeap as they are polled in priority order
     	private long modCounter; // used in conjunction with the modificationCounter; should remain equal while the iterator is being used
-    	private Heap<E> tempHeap; // the temporary heap that holds the elements of the current heap in the same order
+    	private Iterator<E> heapPriorityIterator; // the priority order iterator of the underlying heap, which also detects changes made directly to the heap
 
     	public PriorityIterator()
     	{
-    		iterIdx =0;
-    		localArray = new ArrayList<E>(size()); 
     		modCounter = modificationCounter; // modCounter should always be equal to modificationCounter during the existence of a instance of an Iterator
-    		tempHeap = new Heap<E>(heap, heap.comparator()); // Important to keep the comparator the same as well
-    		
-    		// Note: cannot use an iterator over the elements in tempHeap, because the underlying datastructures iterator may not GUARANTEE priority order
-    		for (int i=0; i<size();i++)
-    		{
-    			localArray.add(tempHeap.poll());
-    		}
+    		heapPriorityIterator = heap.priorityIterator();
     	}
     	
 		@Override
@@ -165,7 +300,7 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 				throw new ConcurrentModificationException();
 			}
 			
-			return iterIdx < size();
+			return heapPriorityIterator.hasNext();
 		}
 
 		@Override
@@ -176,7 +311,7 @@ public class PriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
 			{
 				throw new NoSuchElementException();
 			}
-			return localArray.get(iterIdx++);
+			return heapPriorityIterator.next();
 		}
     	
     }
@@ -0,0 +1,75 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Every section named in the journal has a queue by the time the journal is replayed
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+// Decodes SectionOfferCommands and SectionPollCommands, finding the queue of each section through sections
+public class SectionCommandDecoder implements CommandDecoder
+{
+	private static final StudentCodec CODEC = new StudentCodec();
+	
+	private final Function<String, PriorityQueue<Student>> sections; // The queue of a section id, null if there is no such section
+	
+	public SectionCommandDecoder(Function<String, PriorityQueue<Student>> sections)
+	{
+		this.sections = sections;
+	}
+	
+	@Override
+	public PluggableCommand decode(byte typeId, ByteBuffer payload) throws IOException
+	{
+		try
+		{
+			String sectionId = getSectionId(payload);
+			PriorityQueue<Student> target = sections.apply(sectionId);
+			if (target == null)
+			{
+				throw new IOException("No waitlist for section: " + sectionId);
+			}
+			int count = payload.getInt();
+			if (count < 1)
+			{
+				throw new IOException("Not a valid journaled count: " + count);
+			}
+			
+			switch (typeId)
+			{
+				case SectionOfferCommand.TYPEID:
+					SectionOfferCommand offer = new SectionOfferCommand(sectionId, target, CODEC.decode(payload));
+					for (int i = 1; i < count; i++)
+					{
+						offer.coalesce(new SectionOfferCommand(sectionId, target, CODEC.decode(payload)));
+					}
+					return offer;
+				case SectionPollCommand.TYPEID:
+					return new SectionPollCommand(sectionId, target, count);
+				default:
+					throw new IOException("Not a section command type id: " + typeId);
+			}
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("Not a valid journaled section command", e);
+		}
+	}
+	
+	private static String getSectionId(ByteBuffer payload) throws IOException
+	{
+		int length = payload.getInt();
+		if (length < 0 || length > payload.remaining())
+		{
+			throw new IOException("Not a valid section id length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		payload.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,71 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- sectionId names the target queue to the SectionCommandDecoder that replays the command, and is never null
+ */
+package WaitlistProj;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// An OfferCommand on the waitlist of a section that a CommandJournal can record, coalesces only with other offers to the same section
+public class SectionOfferCommand extends OfferCommand<Student> implements JournaledCommand
+{
+	public static final byte TYPEID = 1;
+	
+	private static final StudentCodec CODEC = new StudentCodec();
+	
+	private final String sectionId;
+	
+	public SectionOfferCommand(String sectionId, PriorityQueue<Student> target, Student student)
+	{
+		super(target, student);
+		if (sectionId == null)
+		{
+			throw new NullPointerException("A SectionOfferCommand needs a section id");
+		}
+		this.sectionId = sectionId;
+	}
+	
+	public String getSectionId()
+	{
+		return sectionId;
+	}
+	
+	@Override
+	public byte typeId()
+	{
+		return TYPEID;
+	}
+	
+	// The section id, then the count and every student
+	@Override
+	public int maxPayloadSize()
+	{
+		int maxPayloadSize = Integer.BYTES + 3 * sectionId.length() + Integer.BYTES;
+		for (Student student : elements())
+		{
+			maxPayloadSize += CODEC.maxEncodedSize(student);
+		}
+		return maxPayloadSize;
+	}
+	
+	@Override
+	public void writePayload(ByteBuffer out)
+	{
+		byte[] section = sectionId.getBytes(StandardCharsets.UTF_8);
+		out.putInt(section.length);
+		out.put(section);
+		out.putInt(elements().size());
+		for (Student student : elements())
+		{
+			CODEC.encode(student, out);
+		}
+	}
+	
+	@Override
+	public boolean coalesce(PluggableCommand next)
+	{
+		return next instanceof SectionOfferCommand && ((SectionOfferCommand) next).sectionId.equals(sectionId) && super.coalesce(next);
+	}
+}
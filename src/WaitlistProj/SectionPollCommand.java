@@ -0,0 +1,60 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- sectionId names the target queue to the SectionCommandDecoder that replays the command, and is never null
+ * 	- Replay polls whichever students are at the top of the queue then, which are the same ones as long as every change to the queue was journaled
+ */
+package WaitlistProj;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// A PollCommand on the waitlist of a section that a CommandJournal can record, only the count is journaled, not the students polled
+public class SectionPollCommand extends PollCommand<Student> implements JournaledCommand
+{
+	public static final byte TYPEID = 2;
+	
+	private final String sectionId;
+	
+	public SectionPollCommand(String sectionId, PriorityQueue<Student> target, int count)
+	{
+		super(target, count);
+		if (sectionId == null)
+		{
+			throw new NullPointerException("A SectionPollCommand needs a section id");
+		}
+		this.sectionId = sectionId;
+	}
+	
+	public String getSectionId()
+	{
+		return sectionId;
+	}
+	
+	@Override
+	public byte typeId()
+	{
+		return TYPEID;
+	}
+	
+	@Override
+	public int maxPayloadSize()
+	{
+		return Integer.BYTES + 3 * sectionId.length() + Integer.BYTES;
+	}
+	
+	@Override
+	public void writePayload(ByteBuffer out)
+	{
+		byte[] section = sectionId.getBytes(StandardCharsets.UTF_8);
+		out.putInt(section.length);
+		out.put(section);
+		out.putInt(count());
+	}
+	
+	@Override
+	public boolean coalesce(PluggableCommand next)
+	{
+		return next instanceof SectionPollCommand && ((SectionPollCommand) next).sectionId.equals(sectionId) && super.coalesce(next);
+	}
+}
@@ -0,0 +1,59 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- change only modifies target, anything else it touches is not restored by undo
+ * 	- Like every command in a CommandProcessor history, undo runs with target as execute left it and redo with target as undo left it
+ */
+package WaitlistProj;
+
+// Runs any change to a SnapshotPriorityQueue with no hand written inverse: undo restores the snapshot taken before the change and redo the one taken after, both O(1)
+public class SnapshotCommand<E extends Comparable<E>> extends PluggableCommand
+{
+	private final SnapshotPriorityQueue<E> target;
+	private final Command change;
+	private PersistentHeap<E> before; // The target before the change, null until the first execute
+	private PersistentHeap<E> after; // The target after the change, null until the first execute
+	
+	public SnapshotCommand(SnapshotPriorityQueue<E> target, Command change)
+	{
+		this.target = target;
+		this.change = change;
+	}
+	
+	// The change runs once, a redo restores its result rather than running it again
+	@Override
+	public void execute()
+	{
+		if (after != null)
+		{
+			target.restore(after);
+			return;
+		}
+		before = target.snapshot();
+		try
+		{
+			change.execute();
+		}
+		catch (RuntimeException e)
+		{
+			target.restore(before); // A change that throws part way leaves nothing behind
+			before = null;
+			throw e;
+		}
+		after = target.snapshot();
+	}
+	
+	@Override
+	public void undo()
+	{
+		target.restore(before);
+	}
+	
+	// The snapshots share every unchanged node with the queue, a change copies about two nodes of 32 bytes per level of the queue
+	@Override
+	public long estimatedBytes()
+	{
+		int levels = 32 - Integer.numberOfLeadingZeros(target.size() + 1);
+		return DEFAULTESTIMATEDBYTES + 32 + 2L * 32 * levels;
+	}
+}
@@ -0,0 +1,129 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Not thread safe, but a snapshot is immutable and can be handed to any thread
+ * 	- Elements are matched by reference (==), like Heap
+ * 	- Like PersistentHeap, the fields the comparator depends on must not change while an element is in the queue or any snapshot of it,
+ * 		it does not listen for Student priority changes since every snapshot shares the element
+ */
+package WaitlistProj;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * A PriorityQueue backed by a PersistentHeap, so that taking a snapshot of the whole queue and restoring one are both O(1).
+ * offer and poll are O(log(n)) like Heap but allocate O(log(n)) nodes each, remove and contains are O(n).
+ * 
+ * Each snapshot shares every node that has not changed since, so holding many of them costs memory in proportion to the changes made between them,
+ * not to the size of the queue. SnapshotCommand uses this to undo any change exactly
+ */
+public class SnapshotPriorityQueue<E extends Comparable<E>> extends AbstractQueue<E>
+{
+	private PersistentHeap<E> heap; // The current version, replaced on every change
+	
+	public SnapshotPriorityQueue()
+	{
+		this(Comparator.naturalOrder());
+	}
+	
+	public SnapshotPriorityQueue(Comparator<E> compareMethod)
+	{
+		heap = PersistentHeap.empty(compareMethod);
+	}
+	
+	public SnapshotPriorityQueue(Collection<? extends E> col, Comparator<E> compareMethod)
+	{
+		heap = PersistentHeap.of(col, compareMethod);
+	}
+	
+	// The queue as it is now, O(1). Later changes to this queue do not affect the snapshot
+	public PersistentHeap<E> snapshot()
+	{
+		return heap;
+	}
+	
+	// Puts the queue back to snapshot, O(1). snapshot must be ordered by the same comparator as this queue
+	public void restore(PersistentHeap<E> snapshot)
+	{
+		if (snapshot.comparator() != heap.comparator())
+		{
+			throw new IllegalArgumentException("Cannot restore a snapshot with a different comparator");
+		}
+		heap = snapshot;
+	}
+	
+	public Comparator<E> comparator()
+	{
+		return heap.comparator();
+	}
+	
+	@Override
+	public boolean offer(E e)
+	{
+		heap = heap.with(e);
+		return true;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends E> col)
+	{
+		if (col == this)
+		{
+			throw new IllegalArgumentException("Cannot add a SnapshotPriorityQueue to itself");
+		}
+		PersistentHeap<E> before = heap;
+		heap = heap.withAll(col);
+		return heap != before;
+	}
+	
+	@Override
+	public E poll()
+	{
+		E head = heap.peek();
+		heap = heap.withoutHead();
+		return head;
+	}
+	
+	@Override
+	public E peek()
+	{
+		return heap.peek();
+	}
+	
+	@Override
+	public boolean remove(Object o)
+	{
+		PersistentHeap<E> before = heap;
+		heap = heap.without(o);
+		return heap != before;
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		return heap.contains(o);
+	}
+	
+	// O(1), the old version is simply let go
+	@Override
+	public void clear()
+	{
+		heap = PersistentHeap.empty(heap.comparator());
+	}
+	
+	@Override
+	public int size()
+	{
+		return heap.size();
+	}
+	
+	// Iterates the version current when the iterator was made, in no particular order, and never throws ConcurrentModificationException
+	@Override
+	public Iterator<E> iterator()
+	{
+		return heap.iterator();
+	}
+}
@@ -3,10 +3,14 @@
  * ASSUMPTIONS:
  * 	 - getters and setters were provided for: students name, red id, email, GPA, and the number of units taken; the assumption is that we want
  * 		users to be able alter such information within this object
+ * 	 - changing the GPA or units taken of a student notifies the queues listening to it through a StudentPriorityListener. Queues only listen
+ * 		when told to, except WaitlistManager which always does; in any other queue the student must be removed before the change and offered again after it
  */
 
 package WaitlistProj;
 
+import java.util.Arrays;
+
 /**
  * The implementation of Comparable is important for Student Objects use with the priority queue, 
  */
@@ -18,10 +22,11 @@ public class Student implements Comparable<Student>
 	private String email; 
 	private float gpa;
 	private int unitsTaken; 
+	private volatile StudentPriorityListener[] priorityListeners; // Copied on every change so notifying needs no lock, null until a listener is added
 	
-	// CONSTANTS:
-	private final float MAXIMUMUNITS = 150.0F; // Maximum number of units a student can take
-	private final float MAXIMUMGPA = 4.0F; // Maximum GPA a studetnt can have
+	// CONSTANTS: shared by every student rather than stored in each one
+	public static final float MAXIMUMUNITS = 150.0F; // Maximum number of units a student can take
+	public static final float MAXIMUMGPA = 4.0F; // Maximum GPA a studetnt can have
 	
 	// The student class throw GpaOutOfRangeException and UnitsOutOfRangeException in order to handle when a user inputs a GPA or number of units taken that
 	// are not with in a valid range
@@ -31,26 +36,66 @@ public class Student implements Comparable<Student>
 		this.redId = redId;
 		this.email = email;
 		
-		// Check that the GPA is in the valid range; if false then throw the GpaOutOfRangeException
-		if (checkGpaInValidRange(gpa))
+		// Check that the GPA and number of units are in the valid range; if not then throw the matching exception
+		StudentValidation validation = validate(gpa, unitsTaken);
+		if (validation == StudentValidation.GPAOUTOFRANGE)
 		{
-			this.gpa = gpa;
+			throw new GpaOutOfRangeException(validation.getMessage());
 		}
-		else
+		if (validation == StudentValidation.UNITSOUTOFRANGE)
 		{
-			throw new GpaOutOfRangeException("GPA is not valid! It must reside between 0 and 4.0");
+			throw new UnitsOutOfRangeException(validation.getMessage());
 		}
+		this.gpa = gpa;
+		this.unitsTaken = unitsTaken;
+	}
+	
+	// Used by create, which fills in the fields once it has validated them
+	private Student()
+	{
 		
-		// Check that the number of units is in the valid range; if false then throw UnitsOutOfRangeException
-		if (checkUnitsInValidRange(unitsTaken))
+	}
+	
+	/**
+	 * Checks the GPA and number of units a student would be constructed with, the GPA is checked first just like the constructor does
+	 * @return VALID or the first problem found
+	 */
+	public static StudentValidation validate(float gpa, int unitsTaken)
+	{
+		if (!checkGpaInValidRange(gpa))
 		{
-			this.unitsTaken = unitsTaken;
+			return StudentValidation.GPAOUTOFRANGE;
 		}
-		else
+		if (!checkUnitsInValidRange(unitsTaken))
 		{
-			throw new UnitsOutOfRangeException("Number of units is not valid! It must reside between 0 and 150");
+			return StudentValidation.UNITSOUTOFRANGE;
 		}
-		
+		return StudentValidation.VALID;
+	}
+	
+	/**
+	 * Creates a student without throwing, for feeds where bad rows are common enough that the constructor's exceptions would dominate the cost
+	 * @param errors - told why the student was not created, may be null if the caller only needs the null return
+	 * @return the new student, or null if gpa or unitsTaken is out of range
+	 */
+	public static Student create(String studentName, String redId, String email, float gpa, int unitsTaken, StudentErrorSink errors)
+	{
+		StudentValidation validation = validate(gpa, unitsTaken);
+		if (!validation.isValid())
+		{
+			if (errors != null)
+			{
+				errors.reject(validation, redId);
+			}
+			return null;
+		}
+		Student student = new Student();
+		student.studentName = studentName;
+		student.redId = redId;
+		student.email = email;
+		student.gpa = gpa;
+		student.unitsTaken = unitsTaken;
+		return student;
 	}
 
 	public String getStudentName()
@@ -93,14 +138,99 @@ public class Student implements Comparable<Student>
 		this.email = newEmail;
 	}
 
+	// GPA and units taken are what the priority algorithms use, therefore changing either one notifies the priority listeners
 	public void setGpa(float newGpa)
 	{
-		this.gpa = newGpa;
+		if (Float.compare(this.gpa, newGpa) != 0)
+		{
+			notifyPriorityChanging();
+			this.gpa = newGpa;
+			notifyPriorityChanged();
+		}
 	}
 
 	public void setUnitsTaken(int newUnitsTaken)
 	{
-		this.unitsTaken = newUnitsTaken;
+		if (this.unitsTaken != newUnitsTaken)
+		{
+			notifyPriorityChanging();
+			this.unitsTaken = newUnitsTaken;
+			notifyPriorityChanged();
+		}
+	}
+	
+	// Adding the same listener twice has no effect, listeners are matched by reference
+	public synchronized void addPriorityListener(StudentPriorityListener listener)
+	{
+		if (listener == null)
+		{
+			throw new NullPointerException();
+		}
+		StudentPriorityListener[] listeners = priorityListeners;
+		if (listeners == null)
+		{
+			priorityListeners = new StudentPriorityListener[] { listener };
+			return;
+		}
+		for (StudentPriorityListener existing : listeners)
+		{
+			if (existing == listener)
+			{
+				return;
+			}
+		}
+		StudentPriorityListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+		grown[listeners.length] = listener;
+		priorityListeners = grown;
+	}
+	
+	public synchronized void removePriorityListener(StudentPriorityListener listener)
+	{
+		StudentPriorityListener[] listeners = priorityListeners;
+		if (listeners == null)
+		{
+			return;
+		}
+		for (int index = 0; index < listeners.length; index++)
+		{
+			if (listeners[index] == listener)
+			{
+				if (listeners.length == 1)
+				{
+					priorityListeners = null;
+					return;
+				}
+				StudentPriorityListener[] shrunk = new StudentPriorityListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, shrunk, 0, index);
+				System.arraycopy(listeners, index + 1, shrunk, index, listeners.length - index - 1);
+				priorityListeners = shrunk;
+				return;
+			}
+		}
+	}
+	
+	private void notifyPriorityChanging()
+	{
+		StudentPriorityListener[] listeners = priorityListeners;
+		if (listeners != null)
+		{
+			for (StudentPriorityListener listener : listeners)
+			{
+				listener.priorityChanging(this);
+			}
+		}
+	}
+	
+	private void notifyPriorityChanged()
+	{
+		StudentPriorityListener[] listeners = priorityListeners;
+		if (listeners != null)
+		{
+			for (StudentPriorityListener listener : listeners)
+			{
+				listener.priorityChanged(this);
+			}
+		}
 	}
 
 	@Override
@@ -114,7 +244,7 @@ public class Student implements Comparable<Student>
 		return "Name: " + studentName + "   Red ID: " + redId;
 	}
 
-	private boolean checkGpaInValidRange(float gpa)
+	private static boolean checkGpaInValidRange(float gpa)
 	{
 		if (gpa >= 0.0f && gpa <= MAXIMUMGPA)
 		{
@@ -123,7 +253,7 @@ public class Student implements Comparable<Student>
 		return false;
 	}
 
-	private boolean checkUnitsInValidRange(int unitsTaken)
+	private static boolean checkUnitsInValidRange(int unitsTaken)
 	{
 		if (unitsTaken >= 0 && unitsTaken <= MAXIMUMUNITS)
 		{
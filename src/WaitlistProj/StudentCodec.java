@@ -0,0 +1,99 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Strings are written as UTF-8 with an int length prefix, a null string is written with a length of -1
+ * 	- setGpa and setUnitsTaken do not validate, so a student is validated when it is encoded and a bad one is refused before it reaches the disk
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Encodes every field of a Student, the GPA and units taken are validated when the student is encoded and again when it is decoded
+public class StudentCodec implements WaitlistCodec<Student>
+{
+	// Student.create cannot throw a checked exception, so the sink smuggles the IOException out to decode, which unwraps it
+	private static final StudentErrorSink REJECT = (problem, redId) -> 
+	{
+		throw new UncheckedIOException(new IOException("Not a valid encoded Student " + redId + ": " + problem.getMessage()));
+	};
+	
+	/**
+	 * @throws IllegalArgumentException - if the GPA or units taken of student are out of range, nothing is written to out
+	 */
+	@Override
+	public void encode(Student student, ByteBuffer out)
+	{
+		StudentValidation validation = Student.validate(student.getGpa(), student.getUnitsTaken());
+		if (!validation.isValid())
+		{
+			throw new IllegalArgumentException("Cannot encode Student " + student.getRedId() + ": " + validation.getMessage());
+		}
+		putString(student.getStudentName(), out);
+		putString(student.getRedId(), out);
+		putString(student.getEmail(), out);
+		out.putFloat(student.getGpa());
+		out.putInt(student.getUnitsTaken());
+	}
+	
+	// A UTF-8 character is at most 3 bytes for every char of a java String
+	@Override
+	public int maxEncodedSize(Student student)
+	{
+		return 3 * Integer.BYTES + 3 * (length(student.getStudentName()) + length(student.getRedId()) + length(student.getEmail())) 
+				+ Float.BYTES + Integer.BYTES;
+	}
+	
+	@Override
+	public Student decode(ByteBuffer in) throws IOException
+	{
+		try
+		{
+			return Student.create(getString(in), getString(in), getString(in), in.getFloat(), in.getInt(), REJECT);
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("Not a valid encoded Student", e);
+		}
+	}
+	
+	private static int length(String value)
+	{
+		return value == null ? 0 : value.length();
+	}
+	
+	private static void putString(String value, ByteBuffer out)
+	{
+		if (value == null)
+		{
+			out.putInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.putInt(bytes.length);
+		out.put(bytes);
+	}
+	
+	private static String getString(ByteBuffer in) throws IOException
+	{
+		int length = in.getInt();
+		if (length == -1)
+		{
+			return null;
+		}
+		if (length < 0 || length > in.remaining())
+		{
+			throw new IOException("Not a valid encoded String length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
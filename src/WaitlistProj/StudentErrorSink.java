@@ -0,0 +1,13 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- One sink is reused for every student of a bulk import, so reject must not expect to be called only once
+ */
+package WaitlistProj;
+
+// Receives the reason Student.create refused to create a student, in place of the exception the constructor would throw
+@FunctionalInterface
+public interface StudentErrorSink
+{
+	public void reject(StudentValidation problem, String redId);
+}
@@ -0,0 +1,198 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Every handle offered belongs to the StudentStore the queue was created with, and stays in the store until it leaves the queue
+ * 	- Like StudentWaitlist, the priority key of each student is computed once by offer, from the weighted priority of StudentPriorityKey
+ * 	- A handle can be offered more than once, it is then in the queue more than once
+ */
+package WaitlistProj;
+
+import java.util.Arrays;
+
+/**
+ * A binary max heap of int handles into a StudentStore, the waitlist counterpart of the store.
+ *
+ * The heap is two parallel arrays, the precomputed priority keys and the handles, so a queue of any size is two objects to the garbage
+ * collector and sifting never reads the store. poll and peek return StudentStore.NOHANDLE instead of null when the queue is empty.
+ */
+public class StudentHandleQueue
+{
+	private static final int DEFAULTCAPACITY = 64;
+	
+	private final StudentStore store;
+	private final float unitsWeight; // Weights of the priority: unitsWeight * (units / MAXUNITS) + gpaWeight * (gpa / MAXGPA)
+	private final float gpaWeight;
+	private float[] keys; // keys[i] is the priority key of handles[i]
+	private int[] handles; // in heap order, size of them are in use
+	private int size;
+	
+	// Orders by GPA, like the natural order of Student
+	public StudentHandleQueue(StudentStore store)
+	{
+		this(store, 0.0f, 1.0f);
+	}
+	
+	// Orders by the same priority as StudentPriorityKey.weighted(unitsWeight, gpaWeight)
+	public StudentHandleQueue(StudentStore store, float unitsWeight, float gpaWeight)
+	{
+		this.store = store;
+		this.unitsWeight = unitsWeight;
+		this.gpaWeight = gpaWeight;
+		keys = new float[DEFAULTCAPACITY];
+		handles = new int[DEFAULTCAPACITY];
+		size = 0;
+	}
+	
+	public StudentStore store()
+	{
+		return store;
+	}
+	
+	// Throws IllegalArgumentException if handle does not hold a student in the store
+	public boolean offer(int handle)
+	{
+		if (!store.isLive(handle))
+		{
+			throw new IllegalArgumentException("Not the handle of a student in the store: " + handle);
+		}
+		if (size == handles.length)
+		{
+			keys = Arrays.copyOf(keys, size * 2);
+			handles = Arrays.copyOf(handles, size * 2);
+		}
+		size++;
+		trickleUp(size - 1, priorityOf(handle), handle);
+		return true;
+	}
+	
+	// Removes and returns the handle of the highest priority student, the student stays in the store
+	public int poll()
+	{
+		if (size == 0)
+		{
+			return StudentStore.NOHANDLE;
+		}
+		int head = handles[0];
+		removeAt(0);
+		return head;
+	}
+	
+	public int peek()
+	{
+		return size == 0 ? StudentStore.NOHANDLE : handles[0];
+	}
+	
+	// Removes one occurrence of handle, O(n) as the handles are scanned
+	public boolean remove(int handle)
+	{
+		int index = indexOf(handle);
+		if (index < 0)
+		{
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+	
+	public boolean contains(int handle)
+	{
+		return indexOf(handle) >= 0;
+	}
+	
+	public void clear()
+	{
+		size = 0;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	// The handles in the queue in heap order, not priority order
+	public int[] toArray()
+	{
+		return Arrays.copyOf(handles, size);
+	}
+	
+	private float priorityOf(int handle)
+	{
+		return (unitsWeight * (store.unitsAt(handle) / StudentPriorityKey.MAXUNITS)) + (gpaWeight * (store.gpaAt(handle) / StudentPriorityKey.MAXGPA));
+	}
+	
+	private int indexOf(int handle)
+	{
+		for (int index = 0; index < size; index++)
+		{
+			if (handles[index] == handle)
+			{
+				return index;
+			}
+		}
+		return -1;
+	}
+	
+	// Moves the hole at index towards the head until key and handle fit there
+	private void trickleUp(int index, float key, int handle)
+	{
+		while (index != 0)
+		{
+			int parentIndex = (index - 1) / 2;
+			if (key <= keys[parentIndex])
+			{
+				break;
+			}
+			keys[index] = keys[parentIndex];
+			handles[index] = handles[parentIndex];
+			index = parentIndex;
+		}
+		keys[index] = key;
+		handles[index] = handle;
+	}
+	
+	// Moves the hole at index towards the leaves until key and handle fit there
+	private void trickleDown(int index, float key, int handle)
+	{
+		int half = size / 2; // Every index below half has at least a left child
+		while (index < half)
+		{
+			int childIndex = 2 * index + 1;
+			int rightChildIndex = childIndex + 1;
+			if (rightChildIndex < size && keys[rightChildIndex] >= keys[childIndex])
+			{
+				childIndex = rightChildIndex;
+			}
+			if (key >= keys[childIndex])
+			{
+				break;
+			}
+			keys[index] = keys[childIndex];
+			handles[index] = handles[childIndex];
+			index = childIndex;
+		}
+		keys[index] = key;
+		handles[index] = handle;
+	}
+	
+	// Moves the last entry into the hole at index and sifts it into place
+	private void removeAt(int index)
+	{
+		size--;
+		if (index == size)
+		{
+			return;
+		}
+		float lastKey = keys[size];
+		int lastHandle = handles[size];
+		trickleDown(index, lastKey, lastHandle);
+		if (handles[index] == lastHandle && keys[index] == lastKey)
+		{
+			trickleUp(index, lastKey, lastHandle);
+		}
+	}
+}
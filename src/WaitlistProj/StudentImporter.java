@@ -0,0 +1,454 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The feed is UTF-8 CSV with one student per line in the order: name, red id, email, GPA, units taken
+ * 	- Fields may be quoted with " and a quote inside a quoted field is written "", but a quoted field never contains a line break,
+ * 		which is what lets the file be split into chunks at any line break
+ * 	- Blank lines are skipped rather than rejected
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams a registrar feed into students without ever holding more of the file in memory than one buffer per thread.
+ * 
+ * Every row is validated before its Student is constructed, so a bad row costs a reject in the ImportReport rather than a thrown exception.
+ * With a parallelism above 1 the file is split into that many chunks at line breaks and each chunk is parsed on its own thread,
+ * the students and rejects of the chunks are then joined back together in file order
+ */
+public class StudentImporter
+{
+	public static final int DEFAULTBUFFERSIZE = 1 << 16;
+	private static final int MINCHUNKSIZE = 1 << 20; // A thread is not worth starting for less of the file than this
+	private static final int FIELDCOUNT = 5;
+	private static final int MAXREJECTEDROWLENGTH = 256; // Bytes of a rejected row kept in the report
+	
+	private final boolean hasHeaderRow; // Whether the first line of the file names the columns
+	private final int parallelism; // The most threads used to parse one file
+	private final int bufferSize; // Bytes read from the file at a time by each thread, also the longest row accepted
+	
+	// Single threaded import of a file that starts with a header row
+	public StudentImporter()
+	{
+		this(true, 1, DEFAULTBUFFERSIZE);
+	}
+	
+	/**
+	 * 
+	 * @param hasHeaderRow - true if the first line of the file is skipped as a header
+	 * @param parallelism - the most threads used to parse one file, 1 parses on the calling thread
+	 * @param bufferSize - the bytes read at a time by each thread, rows longer than this are rejected
+	 */
+	public StudentImporter(boolean hasHeaderRow, int parallelism, int bufferSize)
+	{
+		if (parallelism < 1)
+		{
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		}
+		if (bufferSize < 1)
+		{
+			throw new IllegalArgumentException("bufferSize must be at least 1: " + bufferSize);
+		}
+		this.hasHeaderRow = hasHeaderRow;
+		this.parallelism = parallelism;
+		this.bufferSize = bufferSize;
+	}
+	
+	/**
+	 * 
+	 * @param file - the feed to import
+	 * @param report - receives the accepted and rejected row counts and the rejected rows
+	 * @return every valid student in the order they appear in the file
+	 */
+	public List<Student> importStudents(Path file, ImportReport report) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long fileSize = channel.size();
+			int chunkCount = (int) Math.max(1, Math.min(parallelism, fileSize / MINCHUNKSIZE));
+			if (chunkCount == 1)
+			{
+				ChunkParser parser = new ChunkParser(channel, 0, fileSize, report);
+				parser.parse();
+				return parser.students;
+			}
+			
+			List<ChunkParser> parsers = new ArrayList<ChunkParser>(chunkCount);
+			for (int chunk = 0; chunk < chunkCount; chunk++)
+			{
+				parsers.add(new ChunkParser(channel, fileSize * chunk / chunkCount, fileSize * (chunk + 1) / chunkCount, 
+						new ImportReport(report.getMaxRecordedRejects())));
+			}
+			parseInParallel(parsers);
+			
+			int studentCount = 0;
+			for (ChunkParser parser : parsers)
+			{
+				studentCount += parser.students.size();
+			}
+			List<Student> students = new ArrayList<Student>(studentCount);
+			long lineOffset = 0;
+			for (ChunkParser parser : parsers)
+			{
+				students.addAll(parser.students);
+				report.merge(parser.report, lineOffset);
+				lineOffset += parser.lineCount;
+			}
+			return students;
+		}
+	}
+	
+	// Imports file and builds the queue from every valid student at once, in O(n)
+	public PriorityQueue<Student> importQueue(Path file, Comparator<Student> compareMethod, ImportReport report) throws IOException
+	{
+		return new PriorityQueue<Student>(importStudents(file, report), compareMethod);
+	}
+	
+	private void parseInParallel(List<ChunkParser> parsers) throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(parsers.size());
+		try
+		{
+			for (Future<Void> parsed : executor.invokeAll(parsers))
+			{
+				parsed.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while importing students");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Parses every line that starts within [start, end) of the file. The line that crosses start belongs to the chunk before,
+	 * and the line that crosses end is read to its end by this chunk
+	 */
+	private final class ChunkParser implements Callable<Void>, StudentErrorSink
+	{
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final ImportReport report; // Line numbers in it are counted from the start of this chunk
+		private final List<Student> students;
+		private long lineCount; // Lines that start within this chunk
+		private final byte[] bytes; // The buffer rows are read into
+		
+		// The bounds of each field of the current row, reused for every row
+		private final int[] fieldStarts;
+		private final int[] fieldEnds;
+		private final boolean[] fieldQuoted;
+		private int rowStart; // Bounds of the row Student.create is validating, for reject
+		private int rowEnd;
+		
+		ChunkParser(FileChannel channel, long start, long end, ImportReport report)
+		{
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.report = report;
+			students = new ArrayList<Student>();
+			lineCount = 0;
+			bytes = new byte[bufferSize];
+			fieldStarts = new int[FIELDCOUNT];
+			fieldEnds = new int[FIELDCOUNT];
+			fieldQuoted = new boolean[FIELDCOUNT];
+		}
+		
+		@Override
+		public Void call() throws IOException
+		{
+			parse();
+			return null;
+		}
+		
+		void parse() throws IOException
+		{
+			long bufferOffset = start; // The position in the file of bytes[0]
+			int dataEnd = 0; // bytes[0, dataEnd) have been read from the file
+			int lineStart = 0; // Start of the current line within bytes
+			int scanFrom = 0; // Where the search for the end of the current line continues from
+			boolean skipping = start > 0 && !isLineBreakAt(start - 1); // Dropping bytes up to the next line break
+			boolean endOfFile = false;
+			
+			while (true)
+			{
+				int lineBreak = indexOfLineBreak(scanFrom, dataEnd);
+				if (lineBreak >= 0)
+				{
+					if (skipping)
+					{
+						skipping = false;
+					}
+					else if (bufferOffset + lineStart >= end)
+					{
+						return;
+					}
+					else
+					{
+						parseLine(lineStart, lineBreak);
+					}
+					lineStart = lineBreak + 1;
+					scanFrom = lineStart;
+					continue;
+				}
+				if (endOfFile)
+				{
+					if (!skipping && lineStart < dataEnd && bufferOffset + lineStart < end)
+					{
+						parseLine(lineStart, dataEnd);
+					}
+					return;
+				}
+				
+				if (lineStart > 0)
+				{
+					// Keep the unfinished line and make room after it
+					System.arraycopy(bytes, lineStart, bytes, 0, dataEnd - lineStart);
+					bufferOffset += lineStart;
+					dataEnd -= lineStart;
+					lineStart = 0;
+				}
+				else if (dataEnd == bytes.length)
+				{
+					// The whole buffer is one unfinished line
+					if (!skipping)
+					{
+						if (bufferOffset >= end)
+						{
+							return;
+						}
+						lineCount++;
+						report.reject(lineCount, "Row is longer than " + bufferSize + " bytes", rowText(0, dataEnd));
+						skipping = true;
+					}
+					bufferOffset += dataEnd;
+					dataEnd = 0;
+				}
+				scanFrom = dataEnd;
+				
+				int read = channel.read(ByteBuffer.wrap(bytes, dataEnd, bytes.length - dataEnd), bufferOffset + dataEnd);
+				if (read < 0)
+				{
+					endOfFile = true;
+				}
+				else
+				{
+					dataEnd += read;
+				}
+			}
+		}
+		
+		private boolean isLineBreakAt(long position) throws IOException
+		{
+			ByteBuffer single = ByteBuffer.allocate(1);
+			return channel.read(single, position) == 1 && single.get(0) == '\n';
+		}
+		
+		private int indexOfLineBreak(int from, int to)
+		{
+			for (int index = from; index < to; index++)
+			{
+				if (bytes[index] == '\n')
+				{
+					return index;
+				}
+			}
+			return -1;
+		}
+		
+		// Validates the line in bytes[lineStart, lineEnd) and either adds its student or rejects it
+		private void parseLine(int lineStart, int lineEnd)
+		{
+			lineCount++;
+			if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r')
+			{
+				lineEnd--;
+			}
+			if (lineEnd == lineStart || (hasHeaderRow && start == 0 && lineCount == 1))
+			{
+				return;
+			}
+			
+			String problem = splitFields(lineStart, lineEnd);
+			if (problem != null)
+			{
+				report.reject(lineCount, problem, rowText(lineStart, lineEnd));
+				return;
+			}
+			float gpa = parseGpa(fieldStarts[3], fieldEnds[3]);
+			if (Float.isNaN(gpa))
+			{
+				report.reject(lineCount, "GPA is not a number", rowText(lineStart, lineEnd));
+				return;
+			}
+			int unitsTaken = parseUnits(fieldStarts[4], fieldEnds[4]);
+			if (unitsTaken < 0)
+			{
+				report.reject(lineCount, "Number of units is not a whole number", rowText(lineStart, lineEnd));
+				return;
+			}
+			rowStart = lineStart;
+			rowEnd = lineEnd;
+			Student student = Student.create(textField(0), textField(1), textField(2), gpa, unitsTaken, this);
+			if (student != null)
+			{
+				students.add(student);
+				report.accept();
+			}
+		}
+		
+		// Called by Student.create when the GPA or units of the current row are out of range
+		@Override
+		public void reject(StudentValidation problem, String redId)
+		{
+			report.reject(lineCount, problem.getMessage(), rowText(rowStart, rowEnd));
+		}
+		
+		// Fills fieldStarts, fieldEnds and fieldQuoted, returns why the row could not be split into FIELDCOUNT fields or null if it could
+		private String splitFields(int lineStart, int lineEnd)
+		{
+			int index = lineStart;
+			for (int field = 0; field < FIELDCOUNT; field++)
+			{
+				if (index < lineEnd && bytes[index] == '"')
+				{
+					index++;
+					fieldStarts[field] = index;
+					while (index < lineEnd && !(bytes[index] == '"' && (index + 1 == lineEnd || bytes[index + 1] != '"')))
+					{
+						index += bytes[index] == '"' ? 2 : 1;
+					}
+					if (index == lineEnd)
+					{
+						return "Quoted field is never closed";
+					}
+					fieldEnds[field] = index++;
+					fieldQuoted[field] = true;
+					if (index < lineEnd && bytes[index] != ',')
+					{
+						return "Unexpected character after a quoted field";
+					}
+				}
+				else
+				{
+					fieldStarts[field] = index;
+					while (index < lineEnd && bytes[index] != ',')
+					{
+						index++;
+					}
+					fieldEnds[field] = index;
+					fieldQuoted[field] = false;
+				}
+				
+				if (index == lineEnd)
+				{
+					return field == FIELDCOUNT - 1 ? null : "Expected " + FIELDCOUNT + " fields but found " + (field + 1);
+				}
+				index++; // Past the comma
+			}
+			return "Expected " + FIELDCOUNT + " fields but found more";
+		}
+		
+		private String textField(int field)
+		{
+			String text = new String(bytes, fieldStarts[field], fieldEnds[field] - fieldStarts[field], StandardCharsets.UTF_8);
+			return fieldQuoted[field] ? text.replace("\"\"", "\"") : text;
+		}
+		
+		// Returns NaN unless bytes[from, to) is an unsigned decimal, surrounding spaces allowed, so that parseFloat never throws
+		private float parseGpa(int from, int to)
+		{
+			while (from < to && bytes[from] == ' ')
+			{
+				from++;
+			}
+			while (to > from && bytes[to - 1] == ' ')
+			{
+				to--;
+			}
+			int digitCount = 0;
+			boolean seenPoint = false;
+			for (int index = from; index < to; index++)
+			{
+				if (bytes[index] >= '0' && bytes[index] <= '9')
+				{
+					digitCount++;
+				}
+				else if (bytes[index] == '.' && !seenPoint)
+				{
+					seenPoint = true;
+				}
+				else
+				{
+					return Float.NaN;
+				}
+			}
+			if (digitCount == 0)
+			{
+				return Float.NaN;
+			}
+			return Float.parseFloat(new String(bytes, from, to - from, StandardCharsets.ISO_8859_1));
+		}
+		
+		// Returns -1 unless bytes[from, to) is an unsigned whole number, surrounding spaces allowed
+		private int parseUnits(int from, int to)
+		{
+			while (from < to && bytes[from] == ' ')
+			{
+				from++;
+			}
+			while (to > from && bytes[to - 1] == ' ')
+			{
+				to--;
+			}
+			if (from == to || to - from > 9)
+			{
+				return -1; // Nine digits cannot overflow an int
+			}
+			int value = 0;
+			for (int index = from; index < to; index++)
+			{
+				if (bytes[index] < '0' || bytes[index] > '9')
+				{
+					return -1;
+				}
+				value = value * 10 + (bytes[index] - '0');
+			}
+			return value;
+		}
+		
+		private String rowText(int from, int to)
+		{
+			return new String(bytes, from, Math.min(to - from, MAXREJECTEDROWLENGTH), StandardCharsets.UTF_8);
+		}
+	}
+}
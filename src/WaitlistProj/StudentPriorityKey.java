@@ -0,0 +1,31 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A students priority can be reduced to a single float, higher floats are higher priority
+ * 	- The key of a student is computed once when it enters a StudentWaitlist, therefore a field it depends on may only change while the
+ * 		student is waiting if the waitlist is told, by updatePriority or by listenToPriorityChanges(true)
+ */
+package WaitlistProj;
+
+// Strategy used by StudentWaitlist to turn a student into a primitive priority key, avoiding the boxing done by Comparator<Student>
+@FunctionalInterface
+public interface StudentPriorityKey 
+{
+	// Constants used by the weighted priority algorithm
+	public static final float MAXUNITS = Student.MAXIMUMUNITS;
+	public static final float MAXGPA = Student.MAXIMUMGPA;
+	
+	public float priorityOf(Student student);
+	
+	// Same ordering as Student.compareTo
+	public static StudentPriorityKey gpa()
+	{
+		return student -> student.getGpa();
+	}
+	
+	// Priority: unitsWeight * (numUnits / maxunits) + gpaWeight * (gpa / maxgpa)
+	public static StudentPriorityKey weighted(float unitsWeight, float gpaWeight)
+	{
+		return student -> (unitsWeight * (student.getUnitsTaken() / MAXUNITS)) + (gpaWeight * (student.getGpa() / MAXGPA));
+	}
+}
@@ -0,0 +1,19 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Called on the thread that changed the student, priorityChanging before the new value is stored and priorityChanged after
+ */
+package WaitlistProj;
+
+// Observer told when setGpa or setUnitsTaken changes a field the priority algorithms depend on, so that queues holding the student can re-sift it
+@FunctionalInterface
+public interface StudentPriorityListener
+{
+	public void priorityChanged(Student student);
+	
+	// For queues that can only find the student under its old priority, such as a skip list, which take it out here and put it back in priorityChanged
+	public default void priorityChanging(Student student)
+	{
+		
+	}
+}
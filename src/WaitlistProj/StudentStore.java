@@ -0,0 +1,305 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A student added to the store is copied into its columns, later changes to the Student object do not change the store and
+ * 		get returns a new Student every call
+ * 	- A released handle is reused by the next student added, so a handle must be removed from every StudentHandleQueue before it is released
+ * 	- Red ids are usually a non negative decimal number, any other red id is kept as a String on the side
+ * 	- Emails usually share a few domains, the part after the last '@' is stored once per distinct domain
+ */
+package WaitlistProj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores students column by column and refers to each one by an int handle instead of an object reference.
+ *
+ * Red ids are stored as ints, email domains as an index into a dictionary of domains, GPAs as a float[] and units taken as a short[],
+ * so a student costs a few array slots plus its name and the local part of its email. Scans over a numeric column, such as every student
+ * with a GPA of at least 3.5, read one primitive array front to back. The GPA of a released handle is NaN, which no valid student has, so
+ * scans skip released handles without a separate check.
+ */
+public class StudentStore
+{
+	public static final int NOHANDLE = -1; // Returned in place of a handle when there is no student
+	
+	private static final int DEFAULTCAPACITY = 1024; // Students
+	private static final int TEXTREDID = -1; // The red id column value of a red id kept in textRedIds
+	private static final int NODOMAIN = -1; // The domain column value of an email without an '@'
+	private static final int MAXNUMERICREDIDLENGTH = 9; // Every decimal number of up to 9 digits fits in an int
+	
+	private String[] names;
+	private int[] redIds; // The red id as a number, or TEXTREDID
+	private String[] emailLocals; // The email up to its last '@', or all of it when there is no '@'
+	private int[] emailDomains; // Index into domains of the email after its last '@', or NODOMAIN
+	private float[] gpas; // NaN for released handles
+	private short[] units;
+	
+	private final Map<Integer, String> textRedIds; // Red ids that are not a plain decimal number, by handle
+	private final List<String> domains; // The distinct email domains, in the order they were first seen
+	private final Map<String, Integer> domainIndexes; // The index of every domain in domains
+	
+	private int[] freeHandles; // Released handles, reused last released first
+	private int freeCount;
+	private int handleEnd; // Every handle below handleEnd has been handed out at some point
+	private int size;
+	
+	public StudentStore()
+	{
+		this(DEFAULTCAPACITY);
+	}
+	
+	/**
+	 *
+	 * @param initialCapacity - the number of students the store can hold before its columns have to grow
+	 */
+	public StudentStore(int initialCapacity)
+	{
+		if (initialCapacity < 1)
+		{
+			throw new IllegalArgumentException("Initial capacity must be at least 1: " + initialCapacity);
+		}
+		names = new String[initialCapacity];
+		redIds = new int[initialCapacity];
+		emailLocals = new String[initialCapacity];
+		emailDomains = new int[initialCapacity];
+		gpas = new float[initialCapacity];
+		units = new short[initialCapacity];
+		textRedIds = new HashMap<Integer, String>();
+		domains = new ArrayList<String>();
+		domainIndexes = new HashMap<String, Integer>();
+		freeHandles = new int[0];
+		freeCount = 0;
+		handleEnd = 0;
+		size = 0;
+	}
+	
+	// Copies every field of student into the store, returns the handle it is stored at
+	public int add(Student student)
+	{
+		int handle;
+		if (freeCount > 0)
+		{
+			handle = freeHandles[--freeCount];
+		}
+		else
+		{
+			if (handleEnd == gpas.length)
+			{
+				grow(gpas.length * 2);
+			}
+			handle = handleEnd++;
+		}
+		names[handle] = student.getStudentName();
+		putRedId(handle, student.getRedId());
+		putEmail(handle, student.getEmail());
+		gpas[handle] = student.getGpa();
+		units[handle] = (short) student.getUnitsTaken(); // Units taken are validated to be at most MAXIMUMUNITS, which fits in a short
+		size++;
+		return handle;
+	}
+	
+	// Releases handle for reuse, throws IllegalArgumentException if it does not hold a student
+	public void release(int handle)
+	{
+		checkHandle(handle);
+		names[handle] = null;
+		emailLocals[handle] = null;
+		textRedIds.remove(handle);
+		gpas[handle] = Float.NaN;
+		if (freeCount == freeHandles.length)
+		{
+			freeHandles = Arrays.copyOf(freeHandles, Math.max(16, freeCount * 2));
+		}
+		freeHandles[freeCount++] = handle;
+		size--;
+	}
+	
+	public boolean isLive(int handle)
+	{
+		return handle >= 0 && handle < handleEnd && !Float.isNaN(gpas[handle]);
+	}
+	
+	// A new Student with the fields stored at handle
+	public Student get(int handle)
+	{
+		checkHandle(handle);
+		return Student.create(names[handle], redId(handle), email(handle), gpas[handle], units[handle], null);
+	}
+	
+	public String studentName(int handle)
+	{
+		checkHandle(handle);
+		return names[handle];
+	}
+	
+	public String redId(int handle)
+	{
+		checkHandle(handle);
+		return redIds[handle] == TEXTREDID ? textRedIds.get(handle) : Integer.toString(redIds[handle]);
+	}
+	
+	public String email(int handle)
+	{
+		checkHandle(handle);
+		int domain = emailDomains[handle];
+		return domain == NODOMAIN ? emailLocals[handle] : emailLocals[handle] + '@' + domains.get(domain);
+	}
+	
+	public float gpa(int handle)
+	{
+		checkHandle(handle);
+		return gpas[handle];
+	}
+	
+	public int unitsTaken(int handle)
+	{
+		checkHandle(handle);
+		return units[handle];
+	}
+	
+	// Unchecked column reads for StudentHandleQueue, which only holds handles it has checked
+	float gpaAt(int handle)
+	{
+		return gpas[handle];
+	}
+	
+	int unitsAt(int handle)
+	{
+		return units[handle];
+	}
+	
+	// The handle of the student with redId, O(n) as the red id column is scanned
+	public int findRedId(String redId)
+	{
+		int numeric = numericRedId(redId);
+		for (int handle = 0; handle < handleEnd; handle++)
+		{
+			if (redIds[handle] == numeric && !Float.isNaN(gpas[handle]) && (numeric != TEXTREDID || redId.equals(textRedIds.get(handle))))
+			{
+				return handle;
+			}
+		}
+		return NOHANDLE;
+	}
+	
+	// The number of students with a GPA of at least minimumGpa, a single pass over the GPA column
+	public int countGpaAtLeast(float minimumGpa)
+	{
+		float[] column = gpas; // Locals so the loop reads the array and its bound once
+		int end = handleEnd;
+		int count = 0;
+		for (int handle = 0; handle < end; handle++)
+		{
+			if (column[handle] >= minimumGpa) // NaN compares false
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	// The handles of every student with a GPA of at least minimumGpa, in handle order
+	public int[] gpaAtLeast(float minimumGpa)
+	{
+		int[] matches = new int[countGpaAtLeast(minimumGpa)];
+		int found = 0;
+		for (int handle = 0; found < matches.length; handle++)
+		{
+			if (gpas[handle] >= minimumGpa)
+			{
+				matches[found++] = handle;
+			}
+		}
+		return matches;
+	}
+	
+	// The distinct email domains stored so far, domains of released students included
+	public int domainCount()
+	{
+		return domains.size();
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+	
+	private void checkHandle(int handle)
+	{
+		if (!isLive(handle))
+		{
+			throw new IllegalArgumentException("Not the handle of a student in the store: " + handle);
+		}
+	}
+	
+	private void putRedId(int handle, String redId)
+	{
+		int numeric = numericRedId(redId);
+		redIds[handle] = numeric;
+		if (numeric == TEXTREDID)
+		{
+			textRedIds.put(handle, redId);
+		}
+	}
+	
+	// redId as a number if it is one written without a sign or leading zeros, so that converting it back gives the same String; TEXTREDID otherwise
+	private static int numericRedId(String redId)
+	{
+		if (redId == null || redId.isEmpty() || redId.length() > MAXNUMERICREDIDLENGTH || (redId.charAt(0) == '0' && redId.length() > 1))
+		{
+			return TEXTREDID;
+		}
+		int numeric = 0;
+		for (int index = 0; index < redId.length(); index++)
+		{
+			char digit = redId.charAt(index);
+			if (digit < '0' || digit > '9')
+			{
+				return TEXTREDID;
+			}
+			numeric = numeric * 10 + (digit - '0');
+		}
+		return numeric;
+	}
+	
+	private void putEmail(int handle, String email)
+	{
+		int at = email == null ? -1 : email.lastIndexOf('@');
+		if (at < 0)
+		{
+			emailLocals[handle] = email;
+			emailDomains[handle] = NODOMAIN;
+			return;
+		}
+		String domain = email.substring(at + 1);
+		Integer index = domainIndexes.get(domain);
+		if (index == null)
+		{
+			index = domains.size();
+			domains.add(domain);
+			domainIndexes.put(domain, index);
+		}
+		emailLocals[handle] = email.substring(0, at);
+		emailDomains[handle] = index;
+	}
+	
+	private void grow(int newCapacity)
+	{
+		names = Arrays.copyOf(names, newCapacity);
+		redIds = Arrays.copyOf(redIds, newCapacity);
+		emailLocals = Arrays.copyOf(emailLocals, newCapacity);
+		emailDomains = Arrays.copyOf(emailDomains, newCapacity);
+		gpas = Arrays.copyOf(gpas, newCapacity);
+		units = Arrays.copyOf(units, newCapacity);
+	}
+}
@@ -0,0 +1,388 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Units taken fits in an unsigned byte as long as it is valid, so encode validates every student first, setUnitsTaken does not
+ * 	- Students are encoded in iteration order, for a PriorityQueue that is heap order so decoding rebuilds the queue without reordering it
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A compact, versioned binary format for a whole table of students, used to ship waitlists between nodes and to disk.
+ * 
+ * Layout, every number big endian:
+ * 	header: int magic, short version, byte string index width, int total length in bytes, int student count, int string count
+ * 	string table: every distinct string once, as a varint UTF-8 length followed by the bytes. Index 0 stands for null and is not stored
+ * 	columns: name indexes, redId indexes and email indexes, each index string index width bytes wide, then every GPA as a float,
+ * 		then every units taken as an unsigned byte
+ * 	trailer: int CRC32 of everything before it
+ * 
+ * Columns of fixed width let decode read every student by offset, and the string table stores a string shared by many students only once
+ */
+public final class StudentTableCodec
+{
+	public static final int MAGIC = 0x57535442; // "WSTB"
+	public static final short VERSION = 1;
+	public static final int HEADERSIZE = Integer.BYTES + Short.BYTES + 1 + 3 * Integer.BYTES;
+	private static final int PREFIXSIZE = Integer.BYTES + Short.BYTES + 1 + Integer.BYTES; // The part of the header that holds the total length
+	private static final int TRAILERSIZE = Integer.BYTES;
+	
+	// A table with a valid checksum but a GPA or units out of range was written by something other than encode, reported by decode as an IOException
+	private static final StudentErrorSink REJECT = (problem, redId) -> 
+	{
+		throw new UncheckedIOException(new IOException("Corrupt student table, Student " + redId + ": " + problem.getMessage()));
+	};
+	
+	private StudentTableCodec()
+	{
+		
+	}
+	
+	/**
+	 * 
+	 * @param students - encoded in iteration order
+	 * @return a buffer, ready to be read, holding exactly the encoded students
+	 * @throws IllegalArgumentException - if the GPA or units taken of a student are out of range, a units taken above 255 would not fit its column
+	 */
+	public static ByteBuffer encode(Collection<? extends Student> students)
+	{
+		// Sized for three distinct strings per student so that the map never rehashes
+		Map<String, Integer> stringIndexes = new HashMap<String, Integer>(Math.max(16, students.size() * 4));
+		List<String> stringTable = new ArrayList<String>(students.size() * 3);
+		long tableSize = 0;
+		for (Student student : students)
+		{
+			StudentValidation validation = Student.validate(student.getGpa(), student.getUnitsTaken());
+			if (!validation.isValid())
+			{
+				throw new IllegalArgumentException("Cannot encode Student " + student.getRedId() + ": " + validation.getMessage());
+			}
+			tableSize += addString(student.getStudentName(), stringIndexes, stringTable);
+			tableSize += addString(student.getRedId(), stringIndexes, stringTable);
+			tableSize += addString(student.getEmail(), stringIndexes, stringTable);
+		}
+		
+		int count = students.size();
+		int indexWidth = indexWidthFor(stringTable.size());
+		long totalSize = HEADERSIZE + tableSize + (long) count * (3 * indexWidth + Float.BYTES + 1) + TRAILERSIZE;
+		if (totalSize > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Too many students to encode in one table: " + count);
+		}
+		
+		ByteBuffer out = ByteBuffer.allocate((int) totalSize);
+		out.putInt(MAGIC);
+		out.putShort(VERSION);
+		out.put((byte) indexWidth);
+		out.putInt((int) totalSize);
+		out.putInt(count);
+		out.putInt(stringTable.size());
+		for (String string : stringTable)
+		{
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			putVarInt(bytes.length, out);
+			out.put(bytes);
+		}
+		
+		// Each column is filled in one pass over students, at its own offset into out
+		int namePosition = out.position();
+		int redIdPosition = namePosition + count * indexWidth;
+		int emailPosition = redIdPosition + count * indexWidth;
+		int gpaPosition = emailPosition + count * indexWidth;
+		int unitsPosition = gpaPosition + count * Float.BYTES;
+		for (Student student : students)
+		{
+			putIndex(out, namePosition, indexWidth, indexOf(student.getStudentName(), stringIndexes));
+			putIndex(out, redIdPosition, indexWidth, indexOf(student.getRedId(), stringIndexes));
+			putIndex(out, emailPosition, indexWidth, indexOf(student.getEmail(), stringIndexes));
+			out.putFloat(gpaPosition, student.getGpa());
+			out.put(unitsPosition, (byte) student.getUnitsTaken());
+			namePosition += indexWidth;
+			redIdPosition += indexWidth;
+			emailPosition += indexWidth;
+			gpaPosition += Float.BYTES;
+			unitsPosition++;
+		}
+		out.position(unitsPosition);
+		
+		CRC32 checksum = new CRC32();
+		checksum.update(out.array(), 0, out.position());
+		out.putInt((int) checksum.getValue());
+		return out.flip();
+	}
+	
+	// Encodes the contents of queue in heap order, which toArray returns without sorting
+	public static ByteBuffer encode(PriorityQueue<Student> queue)
+	{
+		List<Student> students = new ArrayList<Student>(queue.size());
+		for (Object student : queue.toArray())
+		{
+			students.add((Student) student);
+		}
+		return encode(students);
+	}
+	
+	/**
+	 * Decodes one table from the position of in, leaving in positioned after it
+	 * @return the students in the order they were encoded
+	 * @throws IOException if in does not hold a valid table of this version
+	 */
+	public static List<Student> decode(ByteBuffer in) throws IOException
+	{
+		try
+		{
+			int start = in.position();
+			if (in.getInt() != MAGIC)
+			{
+				throw new IOException("Not an encoded student table");
+			}
+			short version = in.getShort();
+			if (version != VERSION)
+			{
+				throw new IOException("Unsupported student table version: " + version);
+			}
+			int indexWidth = in.get();
+			int totalSize = in.getInt();
+			int count = in.getInt();
+			int stringCount = in.getInt();
+			if (indexWidth != indexWidthFor(stringCount) || totalSize < HEADERSIZE + TRAILERSIZE || totalSize > in.limit() - start || count < 0)
+			{
+				throw new IOException("Corrupt student table header");
+			}
+			
+			ByteBuffer table = in.slice(start, totalSize);
+			CRC32 checksum = new CRC32();
+			checksum.update(table.slice(0, totalSize - TRAILERSIZE));
+			if ((int) checksum.getValue() != table.getInt(totalSize - TRAILERSIZE))
+			{
+				throw new IOException("Student table checksum does not match");
+			}
+			
+			table.position(HEADERSIZE);
+			String[] strings = new String[stringCount + 1]; // strings[0] stays null
+			for (int index = 1; index <= stringCount; index++)
+			{
+				int length = getVarInt(table);
+				if (length < 0 || length > table.remaining())
+				{
+					throw new IOException("Corrupt string length in student table: " + length);
+				}
+				byte[] bytes = new byte[length];
+				table.get(bytes);
+				strings[index] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			
+			int namePosition = table.position();
+			int redIdPosition = namePosition + count * indexWidth;
+			int emailPosition = redIdPosition + count * indexWidth;
+			int gpaPosition = emailPosition + count * indexWidth;
+			int unitsPosition = gpaPosition + count * Float.BYTES;
+			if (unitsPosition + count != totalSize - TRAILERSIZE)
+			{
+				throw new IOException("Corrupt student table columns");
+			}
+			List<Student> students = new ArrayList<Student>(count);
+			for (int index = 0; index < count; index++)
+			{
+				students.add(Student.create(strings[getIndex(table, namePosition, indexWidth)], strings[getIndex(table, redIdPosition, indexWidth)], 
+						strings[getIndex(table, emailPosition, indexWidth)], table.getFloat(gpaPosition), Byte.toUnsignedInt(table.get(unitsPosition)), REJECT));
+				namePosition += indexWidth;
+				redIdPosition += indexWidth;
+				emailPosition += indexWidth;
+				gpaPosition += Float.BYTES;
+				unitsPosition++;
+			}
+			in.position(start + totalSize);
+			return students;
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException e)
+		{
+			throw new IOException("Corrupt student table", e);
+		}
+	}
+	
+	// Decodes a table written from a PriorityQueue back into a queue ordered by compareMethod, in O(n)
+	public static PriorityQueue<Student> decode(ByteBuffer in, Comparator<Student> compareMethod) throws IOException
+	{
+		return new PriorityQueue<Student>(decode(in), compareMethod);
+	}
+	
+	// Validates every student before anything is written to channel, see encode
+	public static void writeTo(Collection<? extends Student> students, WritableByteChannel channel) throws IOException
+	{
+		ByteBuffer encoded = encode(students);
+		while (encoded.hasRemaining())
+		{
+			channel.write(encoded);
+		}
+	}
+	
+	// Reads exactly one table from channel, so several tables can be read back to back from a stream
+	public static List<Student> readFrom(ReadableByteChannel channel) throws IOException
+	{
+		ByteBuffer prefix = ByteBuffer.allocate(PREFIXSIZE);
+		readFully(channel, prefix);
+		int totalSize = prefix.getInt(PREFIXSIZE - Integer.BYTES);
+		if (totalSize < HEADERSIZE + TRAILERSIZE)
+		{
+			throw new IOException("Corrupt student table header");
+		}
+		ByteBuffer table = ByteBuffer.allocate(totalSize);
+		table.put(prefix.flip());
+		readFully(channel, table);
+		return decode(table.flip());
+	}
+	
+	private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0)
+			{
+				throw new IOException("Student table ended early");
+			}
+		}
+	}
+	
+	// Adds value to the string table if it is not already there, returns the bytes it adds to the encoded table
+	private static int addString(String value, Map<String, Integer> stringIndexes, List<String> stringTable)
+	{
+		if (value == null || stringIndexes.putIfAbsent(value, stringTable.size() + 1) != null)
+		{
+			return 0;
+		}
+		stringTable.add(value);
+		int length = utf8Length(value);
+		return varIntSize(length) + length;
+	}
+	
+	// The UTF-8 length of value, counted without encoding it so that the table is sized before any bytes are produced
+	private static int utf8Length(String value)
+	{
+		int length = 0;
+		for (int index = 0; index < value.length(); index++)
+		{
+			char next = value.charAt(index);
+			if (next < 0x80)
+			{
+				length++;
+			}
+			else if (next < 0x800)
+			{
+				length += 2;
+			}
+			else if (!Character.isSurrogate(next))
+			{
+				length += 3;
+			}
+			else if (Character.isHighSurrogate(next) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1)))
+			{
+				length += 4;
+				index++;
+			}
+			else
+			{
+				length++; // getBytes replaces an unpaired surrogate with '?'
+			}
+		}
+		return length;
+	}
+	
+	private static int indexOf(String value, Map<String, Integer> stringIndexes)
+	{
+		return value == null ? 0 : stringIndexes.get(value);
+	}
+	
+	// The narrowest width that holds every index into a table of stringCount strings plus the null index
+	private static int indexWidthFor(int stringCount)
+	{
+		if (stringCount < 0xFF)
+		{
+			return 1;
+		}
+		return stringCount < 0xFFFF ? Short.BYTES : Integer.BYTES;
+	}
+	
+	private static void putIndex(ByteBuffer out, int position, int indexWidth, int index)
+	{
+		switch (indexWidth)
+		{
+			case 1:
+				out.put(position, (byte) index);
+				break;
+			case Short.BYTES:
+				out.putShort(position, (short) index);
+				break;
+			default:
+				out.putInt(position, index);
+		}
+	}
+	
+	private static int getIndex(ByteBuffer in, int position, int indexWidth)
+	{
+		switch (indexWidth)
+		{
+			case 1:
+				return Byte.toUnsignedInt(in.get(position));
+			case Short.BYTES:
+				return Short.toUnsignedInt(in.getShort(position));
+			default:
+				return in.getInt(position);
+		}
+	}
+	
+	// 7 bits per byte, the high bit set on every byte but the last
+	private static void putVarInt(int value, ByteBuffer out)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+	
+	private static int getVarInt(ByteBuffer in) throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += 7)
+		{
+			byte next = in.get();
+			value |= (next & 0x7F) << shift;
+			if (next >= 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("Corrupt string length in student table");
+	}
+	
+	private static int varIntSize(int value)
+	{
+		int size = 1;
+		while ((value & ~0x7F) != 0)
+		{
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,31 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- The messages match those of GpaOutOfRangeException and UnitsOutOfRangeException thrown by the Student constructor
+ */
+package WaitlistProj;
+
+// The outcome of Student.validate, returned instead of thrown so that validating a bad row allocates nothing
+public enum StudentValidation
+{
+	VALID("Student is valid"),
+	GPAOUTOFRANGE("GPA is not valid! It must reside between 0 and 4.0"),
+	UNITSOUTOFRANGE("Number of units is not valid! It must reside between 0 and 150");
+	
+	private final String message;
+	
+	private StudentValidation(String message)
+	{
+		this.message = message;
+	}
+	
+	public boolean isValid()
+	{
+		return this == VALID;
+	}
+	
+	public String getMessage()
+	{
+		return message;
+	}
+}
@@ -0,0 +1,337 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- StudentWaitlist is a drop in replacement for PriorityQueue<Student> when priority can be expressed as a StudentPriorityKey
+ * 	- Each students key is computed once by offer, and again by updatePriority, which a listening waitlist calls itself when a student's GPA or units taken change
+ * 	- Like Heap, the iterator does not enforce priority order
+ */
+package WaitlistProj;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary max heap of students specialized for primitive priority keys.
+ * The key of every student is stored in a float array parallel to the array of students, so sifting compares floats and never allocates.
+ * offer and poll run at O(log(n)) complexity and allocate nothing beyond growing the arrays, unless the waitlist listens to priority changes.
+ * A waitlist told to listenToPriorityChanges re-sifts a student whose GPA or units taken change, a linear search for the student followed by an
+ * O(log(n)) re-sift, but then every offer and removal also copies the listener array of the student under the student's lock
+ */
+public class StudentWaitlist extends AbstractQueue<Student>
+{
+	private static final int DEFAULTCAPACITY = 16;
+	
+	private Student[] students; // students[i] is the student stored at heap index i
+	private float[] keys; // keys[i] is the precomputed priority of students[i]
+	private int size; // Keeps track of the number of students in the waitlist
+	private long modificationCounter; // Used by the iterator to detect the waitlist being modified while iterating
+	private final StudentPriorityKey priorityKey; // The algorithm used to compute the priority of a student
+	private StudentPriorityListener resifter; // Added to every student in the waitlist, null unless listenToPriorityChanges(true)
+	
+	public StudentWaitlist()
+	{
+		this(StudentPriorityKey.gpa()); // GPA matches the natural order of Student
+	}
+	
+	public StudentWaitlist(StudentPriorityKey priorityKey)
+	{
+		students = new Student[DEFAULTCAPACITY];
+		keys = new float[DEFAULTCAPACITY];
+		size = 0;
+		modificationCounter = 0;
+		this.priorityKey = priorityKey;
+		resifter = null;
+	}
+	
+	public StudentWaitlist(Collection<? extends Student> col)
+	{
+		this(col, StudentPriorityKey.gpa());
+	}
+	
+	// Builds the waitlist bottom up in O(n)
+	public StudentWaitlist(Collection<? extends Student> col, StudentPriorityKey priorityKey)
+	{
+		students = col.toArray(new Student[Math.max(col.size(), DEFAULTCAPACITY)]);
+		size = col.size();
+		keys = new float[students.length];
+		modificationCounter = 0;
+		this.priorityKey = priorityKey;
+		resifter = null;
+		
+		for (int index = 0; index < size; index++)
+		{
+			keys[index] = priorityKey.priorityOf(students[index]);
+		}
+		for (int index = size / 2 - 1; index >= 0; index--)
+		{
+			trickleDown(index, students[index], keys[index]);
+		}
+	}
+	
+	public StudentPriorityKey priorityKey()
+	{
+		return priorityKey;
+	}
+	
+	// Moves the hole at heapIndex towards the head until student, with priority key, fits there
+	private void trickleUp(int heapIndex, Student student, float key)
+	{
+		while (heapIndex != 0)
+		{
+			int parentIndex = (heapIndex - 1) / 2;
+			if (key <= keys[parentIndex])
+			{
+				break;
+			}
+			students[heapIndex] = students[parentIndex];
+			keys[heapIndex] = keys[parentIndex];
+			heapIndex = parentIndex;
+		}
+		students[heapIndex] = student;
+		keys[heapIndex] = key;
+	}
+	
+	// Moves the hole at heapIndex towards the leaves until student, with priority key, fits there
+	private void trickleDown(int heapIndex, Student student, float key)
+	{
+		int half = size / 2; // Every index below half has at least a left child
+		while (heapIndex < half)
+		{
+			int childIndex = 2 * heapIndex + 1;
+			int rightChildIndex = childIndex + 1;
+			if (rightChildIndex < size && keys[rightChildIndex] >= keys[childIndex])
+			{
+				childIndex = rightChildIndex;
+			}
+			if (key >= keys[childIndex])
+			{
+				break;
+			}
+			students[heapIndex] = students[childIndex];
+			keys[heapIndex] = keys[childIndex];
+			heapIndex = childIndex;
+		}
+		students[heapIndex] = student;
+		keys[heapIndex] = key;
+	}
+	
+	// Removes the student at heapIndex by moving the last student into the hole and sifting it into place
+	private Student removeAt(int heapIndex)
+	{
+		Student removedStudent = students[heapIndex];
+		size--;
+		Student lastStudent = students[size];
+		float lastKey = keys[size];
+		students[size] = null; // Do not hold on to students that have left the waitlist
+		if (resifter != null)
+		{
+			removedStudent.removePriorityListener(resifter);
+		}
+		
+		if (heapIndex != size)
+		{
+			trickleDown(heapIndex, lastStudent, lastKey);
+			if (students[heapIndex] == lastStudent)
+			{
+				trickleUp(heapIndex, lastStudent, lastKey);
+			}
+		}
+		modificationCounter++;
+		return removedStudent;
+	}
+	
+	@Override
+	public boolean offer(Student student)
+	{
+		if (student == null)
+		{
+			throw new NullPointerException();
+		}
+		if (size == students.length)
+		{
+			students = Arrays.copyOf(students, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		size++;
+		trickleUp(size - 1, student, priorityKey.priorityOf(student));
+		if (resifter != null)
+		{
+			student.addPriorityListener(resifter);
+		}
+		modificationCounter++;
+		return true;
+	}
+	
+	/**
+	 * Whether the waitlist re-sifts a student whose GPA or units taken change, it does not by default. Listening makes every offer and removal
+	 * register or unregister with the student, and a listening waitlist must be cleared or stop listening before it is dropped
+	 */
+	public void listenToPriorityChanges(boolean listen)
+	{
+		if (listen == (resifter != null))
+		{
+			return;
+		}
+		StudentPriorityListener listener = listen ? this::updatePriority : resifter;
+		for (int index = 0; index < size; index++)
+		{
+			if (listen)
+			{
+				students[index].addPriorityListener(listener);
+			}
+			else
+			{
+				students[index].removePriorityListener(listener);
+			}
+		}
+		resifter = listen ? listener : null;
+	}
+	
+	/**
+	 * Recomputes the key of student and moves it to its new position, after a change to a field its priority key depends on
+	 * @return false if student is not in the waitlist
+	 */
+	public boolean updatePriority(Student student)
+	{
+		for (int index = 0; index < size; index++)
+		{
+			if (students[index] == student)
+			{
+				float key = priorityKey.priorityOf(student);
+				trickleDown(index, student, key);
+				if (students[index] == student)
+				{
+					trickleUp(index, student, key);
+				}
+				modificationCounter++;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public Student poll()
+	{
+		if (size == 0)
+		{
+			return null;
+		}
+		return removeAt(0);
+	}
+	
+	@Override
+	public Student peek()
+	{
+		if (size == 0)
+		{
+			return null;
+		}
+		return students[0];
+	}
+	
+	// Returns the precomputed priority of the head of the waitlist, throws NoSuchElementException if it is empty
+	public float peekPriority()
+	{
+		if (size == 0)
+		{
+			throw new NoSuchElementException();
+		}
+		return keys[0];
+	}
+	
+	// Students are matched by reference, like Heap
+	@Override
+	public boolean remove(Object o)
+	{
+		for (int index = 0; index < size; index++)
+		{
+			if (students[index] == o)
+			{
+				removeAt(index);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		for (int index = 0; index < size; index++)
+		{
+			if (students[index] == o)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public void clear()
+	{
+		for (int index = 0; index < size && resifter != null; index++)
+		{
+			students[index].removePriorityListener(resifter);
+		}
+		Arrays.fill(students, 0, size, null);
+		size = 0;
+		modificationCounter++;
+	}
+	
+	@Override
+	public int size()
+	{
+		return size;
+	}
+	
+	@Override
+	public Object[] toArray()
+	{
+		return Arrays.copyOf(students, size, Object[].class);
+	}
+	
+	@Override
+	public Iterator<Student> iterator()
+	{
+		return new WaitlistIterator();
+	}
+	
+	// Iterates over the students in heap order, not priority order
+	class WaitlistIterator implements Iterator<Student>
+	{
+		private int iterIdx; // index of the next student to be returned
+		private final long modCounter; // should remain equal to modificationCounter while the iterator is being used
+		
+		public WaitlistIterator()
+		{
+			iterIdx = 0;
+			modCounter = modificationCounter;
+		}
+		
+		@Override
+		public boolean hasNext()
+		{
+			if (modCounter != modificationCounter)
+			{
+				throw new ConcurrentModificationException();
+			}
+			return iterIdx < size;
+		}
+		
+		@Override
+		public Student next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			return students[iterIdx++];
+		}
+	}
+}
@@ -0,0 +1,22 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Whatever is encoded must decode to an element with the same priority, otherwise a waitlist restored from disk would be in a different order
+ */
+package WaitlistProj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Strategy used by DurableWaitlist to turn its elements into bytes and back
+public interface WaitlistCodec<E>
+{
+	// Writes element at the position of out, out is guaranteed to have at least maxEncodedSize(element) bytes remaining
+	public void encode(E element, ByteBuffer out);
+	
+	// An upper bound on the number of bytes encode will write for element
+	public int maxEncodedSize(E element);
+	
+	// Reads an element written by encode from the position of in, throws IOException if the bytes are not a valid element
+	public E decode(ByteBuffer in) throws IOException;
+}
@@ -0,0 +1,209 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- Only one WaitlistLog has a log file open at a time
+ * 	- A record is only durable once sync has run after it was appended, how often that happens is decided by syncBatchSize
+ */
+package WaitlistProj;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of waitlist operations in a memory-mapped file.
+ * 
+ * Every record is laid out as: int payload length, int generation, byte type, payload, int CRC32 of generation, type and payload.
+ * The generation ties records to the snapshot they follow, so records left over from before the last snapshot are never replayed,
+ * and the CRC detects a record that was only partially written when the JVM stopped. Replay stops at the first record that fails either check
+ */
+public class WaitlistLog implements Closeable
+{
+	private static final int HEADERSIZE = Integer.BYTES + Integer.BYTES + 1; // payload length, generation and type
+	private static final int TRAILERSIZE = Integer.BYTES; // CRC32
+	private static final int MAPPINGCHUNK = 1 << 20; // The mapped region grows one MiB at a time
+	
+	private final FileChannel channel; // The log file
+	private MappedByteBuffer mappedLog; // The mapped region of the log file, position is where the next record is appended
+	private final CRC32 checksum; // Reused for every record
+	private int generation; // The generation of records appended from now on
+	private final int syncBatchSize; // Records appended between each sync, 0 leaves syncing to the operating system and explicit calls to sync
+	private int unsyncedRecords; // Records appended since the last sync
+	
+	// Receives every valid record during replay
+	@FunctionalInterface
+	public interface RecordVisitor
+	{
+		public void visit(byte type, ByteBuffer payload) throws IOException;
+	}
+	
+	/**
+	 * 
+	 * @param logFile - the file holding the log, created if it does not exist
+	 * @param syncBatchSize - the number of records appended between each fsync, 1 syncs every record and 0 never syncs on its own
+	 */
+	public WaitlistLog(Path logFile, int syncBatchSize) throws IOException
+	{
+		if (syncBatchSize < 0)
+		{
+			throw new IllegalArgumentException("syncBatchSize cannot be negative: " + syncBatchSize);
+		}
+		channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		mappedLog = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), MAPPINGCHUNK));
+		checksum = new CRC32();
+		this.syncBatchSize = syncBatchSize;
+		unsyncedRecords = 0;
+		generation = 0;
+	}
+	
+	/**
+	 * Visits every record of the given generation from the start of the log, then positions the log to append after the last of them.
+	 * Anything after the last valid record is zeroed so that it can never be mistaken for a record by a later replay
+	 * @return the number of records visited
+	 */
+	public int replay(int generation, RecordVisitor visitor) throws IOException
+	{
+		this.generation = generation;
+		ByteBuffer reader = mappedLog.duplicate();
+		reader.position(0);
+		int recordCount = 0;
+		
+		while (reader.remaining() >= HEADERSIZE + TRAILERSIZE)
+		{
+			int recordStart = reader.position();
+			int payloadLength = reader.getInt();
+			int recordGeneration = reader.getInt();
+			byte type = reader.get();
+			if (recordGeneration != generation || payloadLength < 0 || payloadLength > reader.remaining() - TRAILERSIZE)
+			{
+				reader.position(recordStart);
+				break;
+			}
+			
+			ByteBuffer payload = reader.slice(reader.position(), payloadLength);
+			reader.position(reader.position() + payloadLength);
+			if (reader.getInt() != checksumOf(recordGeneration, type, payload.duplicate()))
+			{
+				reader.position(recordStart);
+				break;
+			}
+			visitor.visit(type, payload);
+			recordCount++;
+		}
+		
+		mappedLog.position(reader.position());
+		zeroFrom(reader.position());
+		return recordCount;
+	}
+	
+	// Starts a new generation at the beginning of the log, the records of older generations will not be replayed again
+	public void reset(int newGeneration) throws IOException
+	{
+		generation = newGeneration;
+		mappedLog.position(0);
+		zeroFrom(0);
+	}
+	
+	// Drops every record from length on, the log appends there next, used by a replay that finds its tail incomplete
+	void truncate(int length)
+	{
+		mappedLog.position(length);
+		zeroFrom(length);
+	}
+	
+	// The bytes a record with a payload of payloadLength takes up in the log
+	static int recordLength(int payloadLength)
+	{
+		return HEADERSIZE + payloadLength + TRAILERSIZE;
+	}
+	
+	// Appends one record, payload is read from its position to its limit
+	public void append(byte type, ByteBuffer payload) throws IOException
+	{
+		int payloadLength = payload.remaining();
+		ensureCapacity(HEADERSIZE + payloadLength + TRAILERSIZE);
+		int crc = checksumOf(generation, type, payload.duplicate());
+		mappedLog.putInt(payloadLength);
+		mappedLog.putInt(generation);
+		mappedLog.put(type);
+		mappedLog.put(payload);
+		mappedLog.putInt(crc);
+		
+		if (syncBatchSize > 0 && ++unsyncedRecords >= syncBatchSize)
+		{
+			sync();
+		}
+	}
+	
+	// Forces every appended record to disk
+	public void sync()
+	{
+		mappedLog.force();
+		unsyncedRecords = 0;
+	}
+	
+	public int generation()
+	{
+		return generation;
+	}
+	
+	// The number of bytes of records in the current generation
+	public int length()
+	{
+		return mappedLog.position();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		sync();
+		channel.close();
+	}
+	
+	private int checksumOf(int recordGeneration, byte type, ByteBuffer payload)
+	{
+		checksum.reset();
+		checksum.update(recordGeneration >>> 24);
+		checksum.update(recordGeneration >>> 16);
+		checksum.update(recordGeneration >>> 8);
+		checksum.update(recordGeneration);
+		checksum.update(type);
+		checksum.update(payload);
+		return (int) checksum.getValue();
+	}
+	
+	// Grows the mapped region, and with it the file, so that recordSize more bytes can be appended
+	private void ensureCapacity(int recordSize) throws IOException
+	{
+		if (mappedLog.remaining() >= recordSize)
+		{
+			return;
+		}
+		int position = mappedLog.position();
+		long newSize = (long) mappedLog.capacity() + Math.max(recordSize, MAPPINGCHUNK);
+		if (newSize > Integer.MAX_VALUE)
+		{
+			throw new IOException("Waitlist log is full, take a snapshot to start a new generation");
+		}
+		mappedLog.force();
+		mappedLog = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+		mappedLog.position(position);
+	}
+	
+	private void zeroFrom(int position)
+	{
+		ByteBuffer zeroer = mappedLog.duplicate();
+		zeroer.position(position);
+		byte[] zeros = new byte[Math.min(zeroer.remaining(), 8192)];
+		while (zeroer.hasRemaining())
+		{
+			zeroer.put(zeros, 0, Math.min(zeros.length, zeroer.remaining()));
+		}
+		mappedLog.force();
+	}
+}
@@ -0,0 +1,289 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- A student is identified by their red id, and sits on a given section's waitlist at most once
+ * 	- A student's red id must not change while they are on a waitlist. Their GPA and units taken may, every waitlist holding them re-sifts them
+ * 		when notified, but a change must not race with other operations on the sections the student is waiting on
+ * 	- Thread safe: operations on one section are serialized by that section's lock, operations on different sections run in parallel
+ */
+package WaitlistProj;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Keeps one position indexed PriorityQueue per course section, and an index from every student's red id to the sections they wait on.
+ * 
+ * The index is what makes cross section operations cheap: removing an enrolled student from every waitlist visits only the sections
+ * they are on, at O(log(n)) each, instead of scanning thousands of queues. admitAll admits students from many sections at once on a fork join pool.
+ * The manager listens to every student it holds, so a change to a student's GPA or units taken re-sifts them in each of their waitlists
+ */
+public class WaitlistManager
+{
+	private static final int SECTIONSPERTASK = 16; // Sections admitted by one fork join task before it stops splitting
+	
+	private final ConcurrentHashMap<String, PriorityQueue<Student>> sections; // Section id to its waitlist, each waitlist is also the lock for its section
+	private final ConcurrentHashMap<String, Map<String, Student>> sectionsByRedId; // Red id to the sections the student waits on, and the Student queued in each
+	private final Comparator<Student> compareMethod; // The order of every waitlist
+	private final ForkJoinPool pool; // Runs admitAll
+	private final StudentPriorityListener resifter; // Listens to every student on a waitlist of this manager
+	
+	public WaitlistManager(Comparator<Student> compareMethod)
+	{
+		this(compareMethod, ForkJoinPool.commonPool());
+	}
+	
+	public WaitlistManager(Comparator<Student> compareMethod, ForkJoinPool pool)
+	{
+		this.compareMethod = compareMethod;
+		this.pool = pool;
+		sections = new ConcurrentHashMap<String, PriorityQueue<Student>>();
+		sectionsByRedId = new ConcurrentHashMap<String, Map<String, Student>>();
+		resifter = this::resift;
+	}
+	
+	/**
+	 * Puts student on the waitlist of sectionId, creating the waitlist if it is the first student of the section
+	 * @return false if a student with the same red id is already on that waitlist
+	 */
+	public boolean add(String sectionId, Student student)
+	{
+		PriorityQueue<Student> waitlist = sections.computeIfAbsent(sectionId, id -> new PriorityQueue<Student>(compareMethod, true));
+		synchronized (waitlist)
+		{
+			// Index entries are only ever changed inside compute, so an entry cannot be dropped by unindex while it is being added to
+			boolean[] indexed = new boolean[1];
+			sectionsByRedId.compute(student.getRedId(), (redId, waitingOn) -> 
+			{
+				Map<String, Student> entry = waitingOn == null ? new ConcurrentHashMap<String, Student>() : waitingOn;
+				indexed[0] = entry.putIfAbsent(sectionId, student) == null;
+				if (indexed[0])
+				{
+					student.addPriorityListener(resifter);
+				}
+				return entry;
+			});
+			if (indexed[0])
+			{
+				waitlist.offer(student);
+			}
+			return indexed[0];
+		}
+	}
+	
+	/**
+	 * Takes the student with redId off the waitlist of sectionId in O(log(n))
+	 * @return false if they were not on it
+	 */
+	public boolean remove(String sectionId, String redId)
+	{
+		PriorityQueue<Student> waitlist = sections.get(sectionId);
+		if (waitlist == null)
+		{
+			return false;
+		}
+		synchronized (waitlist)
+		{
+			Student removed = unindex(redId, sectionId);
+			return removed != null && waitlist.remove(removed);
+		}
+	}
+	
+	/**
+	 * Takes the student with redId off every waitlist they are on, visiting only those waitlists
+	 * @return the number of waitlists the student was removed from
+	 */
+	public int removeFromAllWaitlists(String redId)
+	{
+		Map<String, Student> waitingOn = sectionsByRedId.get(redId);
+		if (waitingOn == null)
+		{
+			return 0;
+		}
+		int removedCount = 0;
+		for (String sectionId : new ArrayList<String>(waitingOn.keySet()))
+		{
+			if (remove(sectionId, redId))
+			{
+				removedCount++;
+			}
+		}
+		return removedCount;
+	}
+	
+	// The sections the student with redId is waiting on
+	public Set<String> sectionsOf(String redId)
+	{
+		Map<String, Student> waitingOn = sectionsByRedId.get(redId);
+		return waitingOn == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(new HashSet<String>(waitingOn.keySet()));
+	}
+	
+	// The highest priority student waiting on sectionId, or null if nobody is
+	public Student peek(String sectionId)
+	{
+		PriorityQueue<Student> waitlist = sections.get(sectionId);
+		if (waitlist == null)
+		{
+			return null;
+		}
+		synchronized (waitlist)
+		{
+			return waitlist.peek();
+		}
+	}
+	
+	// The k highest priority students waiting on sectionId in priority order, they stay on the waitlist
+	public List<Student> peekTopK(String sectionId, int k)
+	{
+		PriorityQueue<Student> waitlist = sections.get(sectionId);
+		if (waitlist == null)
+		{
+			return Collections.<Student>emptyList();
+		}
+		synchronized (waitlist)
+		{
+			return waitlist.peekTopK(k);
+		}
+	}
+	
+	public int size(String sectionId)
+	{
+		PriorityQueue<Student> waitlist = sections.get(sectionId);
+		if (waitlist == null)
+		{
+			return 0;
+		}
+		synchronized (waitlist)
+		{
+			return waitlist.size();
+		}
+	}
+	
+	public int sectionCount()
+	{
+		return sections.size();
+	}
+	
+	public Comparator<Student> comparator()
+	{
+		return compareMethod;
+	}
+	
+	/**
+	 * Admits the highest priority students of sectionId into its open seats, they are taken off that waitlist only
+	 * @return the admitted students in priority order
+	 */
+	public List<Student> admit(String sectionId, int seats)
+	{
+		PriorityQueue<Student> waitlist = sections.get(sectionId);
+		if (waitlist == null)
+		{
+			return Collections.<Student>emptyList();
+		}
+		synchronized (waitlist)
+		{
+			List<Student> admitted = waitlist.pollTopK(seats);
+			for (Student student : admitted)
+			{
+				unindex(student.getRedId(), sectionId);
+			}
+			return admitted;
+		}
+	}
+	
+	/**
+	 * Admits students into every section of seatsBySection in parallel, each section exactly as admit would
+	 * @return the students admitted to each section in priority order
+	 */
+	public Map<String, List<Student>> admitAll(Map<String, Integer> seatsBySection)
+	{
+		List<String> sectionIds = new ArrayList<String>(seatsBySection.keySet());
+		Map<String, List<Student>> admittedBySection = new ConcurrentHashMap<String, List<Student>>();
+		pool.invoke(new AdmissionTask(sectionIds, 0, sectionIds.size(), seatsBySection, admittedBySection));
+		return new HashMap<String, List<Student>>(admittedBySection);
+	}
+	
+	// Removes sectionId from the index entry of redId, dropping the entry once the student waits on nothing. Returns the Student that was indexed
+	private Student unindex(String redId, String sectionId)
+	{
+		Student[] removed = new Student[1];
+		sectionsByRedId.computeIfPresent(redId, (id, waitingOn) -> 
+		{
+			removed[0] = waitingOn.remove(sectionId);
+			if (removed[0] != null && !waitingOn.containsValue(removed[0]))
+			{
+				removed[0].removePriorityListener(resifter);
+			}
+			return waitingOn.isEmpty() ? null : waitingOn;
+		});
+		return removed[0];
+	}
+	
+	// Restores the order of every waitlist holding student after its GPA or units taken changed, O(log(n)) per waitlist
+	private void resift(Student student)
+	{
+		Map<String, Student> waitingOn = sectionsByRedId.get(student.getRedId());
+		if (waitingOn == null)
+		{
+			return;
+		}
+		for (Map.Entry<String, Student> waiting : waitingOn.entrySet())
+		{
+			if (waiting.getValue() == student)
+			{
+				PriorityQueue<Student> waitlist = sections.get(waiting.getKey());
+				synchronized (waitlist)
+				{
+					waitlist.updatePriority(student);
+				}
+			}
+		}
+	}
+	
+	// Admits the sections in [from, to) of sectionIds, splitting in half until few enough sections are left for one task
+	private class AdmissionTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final List<String> sectionIds;
+		private final int from;
+		private final int to;
+		private final Map<String, Integer> seatsBySection;
+		private final Map<String, List<Student>> admittedBySection;
+		
+		AdmissionTask(List<String> sectionIds, int from, int to, Map<String, Integer> seatsBySection, Map<String, List<Student>> admittedBySection)
+		{
+			this.sectionIds = sectionIds;
+			this.from = from;
+			this.to = to;
+			this.seatsBySection = seatsBySection;
+			this.admittedBySection = admittedBySection;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if (to - from <= SECTIONSPERTASK)
+			{
+				for (int index = from; index < to; index++)
+				{
+					String sectionId = sectionIds.get(index);
+					admittedBySection.put(sectionId, admit(sectionId, seatsBySection.get(sectionId)));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new AdmissionTask(sectionIds, from, middle, seatsBySection, admittedBySection), 
+					new AdmissionTask(sectionIds, middle, to, seatsBySection, admittedBySection));
+		}
+	}
+}
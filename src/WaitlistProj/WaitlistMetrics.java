@@ -0,0 +1,420 @@
+/***
+ * @author William Ritchie
+ * ASSUMPTIONS:
+ * 	- One WaitlistMetrics may be shared by any number of heaps, queues and command processors, their counts are added together
+ * 	- Counters are LongAdders, so they are safe to share between threads, but the structures they instrument keep their own thread safety rules
+ * 	- Comparisons are only counted for heaps ordered by a Comparator, a keyed heap compares cached doubles and never calls one.
+ * 		They are the calls made by sifting, which Heap works out from the levels each sift moved, so the comparisons of a priority iterator are not counted.
+ * 		Comparisons and sift levels are added to the count at the end of each offer, poll and remove
+ */
+package WaitlistProj;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the hot paths of Heap, PriorityQueue and CommandProcessor. Nothing is counted until a WaitlistMetrics
+ * is passed to their instrument method, and an uninstrumented structure pays only a null check per operation: no counters and no clock reads.
+ * An instrumented heap calls its comparator directly as well, so counting comparisons costs nothing per comparison.
+ * 
+ * Reading the clock costs about as much as a small offer, so latencies are only recorded when asked for at construction.
+ * The counts can be read through snapshot, or over JMX once register has been called
+ */
+public class WaitlistMetrics implements WaitlistMetricsMBean
+{
+	public static final String JMXDOMAIN = "WaitlistProj";
+	
+	private final boolean recordLatency;
+	private final LongAdder offers;
+	private final LongAdder polls;
+	private final LongAdder removes;
+	private final LongAdder comparisons;
+	private final LongAdder siftLevels; // Levels moved by every sift, up or down
+	private final LongAdder iterators;
+	private final LongAdder iteratedElements;
+	private final LongAdder commandsExecuted;
+	private final LongAdder commandsUndone;
+	private final LongAdder commandsRedone;
+	private final LatencyHistogram offerLatency;
+	private final LatencyHistogram pollLatency;
+	private final LatencyHistogram removeLatency;
+	private final LatencyHistogram commandLatency;
+	private ObjectName registeredName; // null unless registered with the platform MBean server
+	
+	// Counts only
+	public WaitlistMetrics()
+	{
+		this(false);
+	}
+	
+	/**
+	 * 
+	 * @param recordLatency - true to also time offer, poll, remove and doIt into histograms, at the cost of two clock reads each
+	 */
+	public WaitlistMetrics(boolean recordLatency)
+	{
+		this.recordLatency = recordLatency;
+		offers = new LongAdder();
+		polls = new LongAdder();
+		removes = new LongAdder();
+		comparisons = new LongAdder();
+		siftLevels = new LongAdder();
+		iterators = new LongAdder();
+		iteratedElements = new LongAdder();
+		commandsExecuted = new LongAdder();
+		commandsUndone = new LongAdder();
+		commandsRedone = new LongAdder();
+		offerLatency = new LatencyHistogram();
+		pollLatency = new LatencyHistogram();
+		removeLatency = new LatencyHistogram();
+		commandLatency = new LatencyHistogram();
+	}
+	
+	// Hot path hooks, only called by instrumented structures
+	
+	// The start time to pass to the matching hook, 0 when latencies are not recorded so the clock is never read
+	long startTimer()
+	{
+		return recordLatency ? System.nanoTime() : 0;
+	}
+	
+	void offered(long start)
+	{
+		offers.increment();
+		record(offerLatency, start);
+	}
+	
+	// A batch of offers, such as addAll or merge, is counted but not timed as it is not comparable to a single offer
+	void offered(int count)
+	{
+		offers.add(count);
+	}
+	
+	void polled(long start)
+	{
+		polls.increment();
+		record(pollLatency, start);
+	}
+	
+	// A batch of polls, such as pollTopK, is counted but not timed as it is not comparable to a single poll
+	void polled(int count)
+	{
+		polls.add(count);
+	}
+	
+	void removed(long start)
+	{
+		removes.increment();
+		record(removeLatency, start);
+	}
+	
+	void sifted(long levels)
+	{
+		if (levels != 0)
+		{
+			siftLevels.add(levels);
+		}
+	}
+	
+	void compared(long count)
+	{
+		if (count != 0)
+		{
+			comparisons.add(count);
+		}
+	}
+	
+	void iteratorCreated()
+	{
+		iterators.increment();
+	}
+	
+	void elementIterated()
+	{
+		iteratedElements.increment();
+	}
+	
+	void commandExecuted(long start)
+	{
+		commandsExecuted.increment();
+		record(commandLatency, start);
+	}
+	
+	void commandUndone()
+	{
+		commandsUndone.increment();
+	}
+	
+	void commandRedone()
+	{
+		commandsRedone.increment();
+	}
+	
+	private void record(LatencyHistogram histogram, long start)
+	{
+		if (recordLatency)
+		{
+			histogram.record(System.nanoTime() - start);
+		}
+	}
+	
+	// Snapshot API
+	
+	// Every count and histogram at one instant, not atomic across counters that are updated while the snapshot is taken
+	public Snapshot snapshot()
+	{
+		return new Snapshot(this);
+	}
+	
+	@Override
+	public void reset()
+	{
+		for (LongAdder counter : new LongAdder[] { offers, polls, removes, comparisons, siftLevels, iterators, iteratedElements, 
+				commandsExecuted, commandsUndone, commandsRedone })
+		{
+			counter.reset();
+		}
+		offerLatency.reset();
+		pollLatency.reset();
+		removeLatency.reset();
+		commandLatency.reset();
+	}
+	
+	// JMX
+	
+	/**
+	 * Registers these metrics with the platform MBean server under WaitlistProj:type=WaitlistMetrics,name=name
+	 * @return the name it was registered under
+	 */
+	public synchronized ObjectName register(String name) throws JMException
+	{
+		if (registeredName != null)
+		{
+			throw new IllegalStateException("Already registered as " + registeredName);
+		}
+		ObjectName objectName = new ObjectName(JMXDOMAIN + ":type=WaitlistMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		registeredName = objectName;
+		return objectName;
+	}
+	
+	// Does nothing if these metrics are not registered
+	public synchronized void unregister() throws JMException
+	{
+		if (registeredName != null)
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+			registeredName = null;
+		}
+	}
+	
+	@Override
+	public long getOffers()
+	{
+		return offers.sum();
+	}
+	
+	@Override
+	public long getPolls()
+	{
+		return polls.sum();
+	}
+	
+	@Override
+	public long getRemoves()
+	{
+		return removes.sum();
+	}
+	
+	@Override
+	public long getComparisons()
+	{
+		return comparisons.sum();
+	}
+	
+	@Override
+	public long getSiftLevels()
+	{
+		return siftLevels.sum();
+	}
+	
+	@Override
+	public long getIterators()
+	{
+		return iterators.sum();
+	}
+	
+	@Override
+	public long getIteratedElements()
+	{
+		return iteratedElements.sum();
+	}
+	
+	@Override
+	public long getCommandsExecuted()
+	{
+		return commandsExecuted.sum();
+	}
+	
+	@Override
+	public long getCommandsUndone()
+	{
+		return commandsUndone.sum();
+	}
+	
+	@Override
+	public long getCommandsRedone()
+	{
+		return commandsRedone.sum();
+	}
+	
+	@Override
+	public long getOfferP99Nanos()
+	{
+		return offerLatency.snapshot().getPercentileNanos(99);
+	}
+	
+	@Override
+	public long getPollP99Nanos()
+	{
+		return pollLatency.snapshot().getPercentileNanos(99);
+	}
+	
+	@Override
+	public long getRemoveP99Nanos()
+	{
+		return removeLatency.snapshot().getPercentileNanos(99);
+	}
+	
+	@Override
+	public long getCommandP99Nanos()
+	{
+		return commandLatency.snapshot().getPercentileNanos(99);
+	}
+	
+	@Override
+	public boolean isRecordingLatency()
+	{
+		return recordLatency;
+	}
+	
+	// Every count and latency histogram of a WaitlistMetrics at one instant
+	public static final class Snapshot
+	{
+		private final long offers;
+		private final long polls;
+		private final long removes;
+		private final long comparisons;
+		private final long siftLevels;
+		private final long iterators;
+		private final long iteratedElements;
+		private final long commandsExecuted;
+		private final long commandsUndone;
+		private final long commandsRedone;
+		private final LatencyHistogram.Snapshot offerLatency;
+		private final LatencyHistogram.Snapshot pollLatency;
+		private final LatencyHistogram.Snapshot removeLatency;
+		private final LatencyHistogram.Snapshot commandLatency;
+		
+		Snapshot(WaitlistMetrics metrics)
+		{
+			offers = metrics.getOffers();
+			polls = metrics.getPolls();
+			removes = metrics.getRemoves();
+			comparisons = metrics.getComparisons();
+			siftLevels = metrics.getSiftLevels();
+			iterators = metrics.getIterators();
+			iteratedElements = metrics.getIteratedElements();
+			commandsExecuted = metrics.getCommandsExecuted();
+			commandsUndone = metrics.getCommandsUndone();
+			commandsRedone = metrics.getCommandsRedone();
+			offerLatency = metrics.offerLatency.snapshot();
+			pollLatency = metrics.pollLatency.snapshot();
+			removeLatency = metrics.removeLatency.snapshot();
+			commandLatency = metrics.commandLatency.snapshot();
+		}
+		
+		public long getOffers()
+		{
+			return offers;
+		}
+		
+		public long getPolls()
+		{
+			return polls;
+		}
+		
+		public long getRemoves()
+		{
+			return removes;
+		}
+		
+		public long getComparisons()
+		{
+			return comparisons;
+		}
+		
+		public long getSiftLevels()
+		{
+			return siftLevels;
+		}
+		
+		public long getIterators()
+		{
+			return iterators;
+		}
+		
+		public long getIteratedElements()
+		{
+			return iteratedElements;
+		}
+		
+		public long getCommandsExecuted()
+		{
+			return commandsExecuted;
+		}
+		
+		public long getCommandsUndone()
+		{
+			return commandsUndone;
+		}
+		
+		public long getCommandsRedone()
+		{
+			return commandsRedone;
+		}
+		
+		// Empty unless the metrics were recording latency
+		public LatencyHistogram.Snapshot getOfferLatency()
+		{
+			return offerLatency;
+		}
+		
+		public LatencyHistogram.Snapshot getPollLatency()
+		{
+			return pollLatency;
+		}
+		
+		public LatencyHistogram.Snapshot getRemoveLatency()
+		{
+			return removeLatency;
+		}
+		
+		public LatencyHistogram.Snapshot getCommandLatency()
+		{
+			return commandLatency;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return "offers=" + offers + " polls=" + polls + " removes=" + removes + " comparisons=" + comparisons + " siftLevels=" + siftLevels 
+					+ " iterators=" + iterators + " iteratedElements=" + iteratedElements + " commandsExecuted=" + commandsExecuted 
+					+ " commandsUndone=" + commandsUndone + " commandsRedone=" + commandsRedone + "\noffer: " + offerLatency + "\npoll: " + pollLatency 
+					+ "\nremove: " + removeLatency + "\ncommand: " + commandLatency;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package WaitlistProj;
+
+// The attributes and operations WaitlistMetrics exposes over JMX, every attribute is read live from the counters
+public interface WaitlistMetricsMBean
+{
+	public long getOffers();
+	
+	public long getPolls();
+	
+	public long getRemoves();
+	
+	public long getComparisons();
+	
+	public long getSiftLevels();
+	
+	public long getIterators();
+	
+	public long getIteratedElements();
+	
+	public long getCommandsExecuted();
+	
+	public long getCommandsUndone();
+	
+	public long getCommandsRedone();
+	
+	public long getOfferP99Nanos();
+	
+	public long getPollP99Nanos();
+	
+	public long getRemoveP99Nanos();
+	
+	public long getCommandP99Nanos();
+	
+	public boolean isRecordingLatency();
+	
+	public void reset();
+}